@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import com.marklogic.client.ext.helper.LoggingObject;
+
+/**
+ * Adjusts the batch size and the number of batches in flight used by a BatchWriterSupport instance based on how long
+ * each batch takes to be written and whether it fails. Uses AIMD - additive increase, multiplicative decrease: each
+ * batch written within targetLatencyMillis increases the batch size by batchSizeIncrement and the concurrency by
+ * concurrencyIncrement, while a batch that is slower than the target or fails multiplies both by decreaseFactor.
+ * <p>
+ * Only one decrease happens per round of batches - i.e. batches that started before the last decrease do not cause
+ * another decrease when they complete, as they were started under the previous settings. This avoids a single slow
+ * period collapsing both values to their minimums.
+ * <p>
+ * The batch size can only reduce the size of the lists passed to BatchWriter.write; the lists are split as needed but
+ * never combined. The concurrency cannot usefully exceed the number of threads used by the BatchWriter.
+ *
+ * @since 4.8.0
+ */
+public class AdaptiveBatchController extends LoggingObject {
+
+	private long targetLatencyMillis = 1000;
+	private int minBatchSize = 1;
+	private int maxBatchSize = 1000;
+	private int batchSizeIncrement = 10;
+	private int minConcurrency = 1;
+	private int maxConcurrency = 16;
+	private int concurrencyIncrement = 1;
+	private double decreaseFactor = 0.5;
+
+	private int batchSize = 100;
+	private int concurrency = 4;
+
+	private long batchesStarted;
+	private long lastDecreaseAt = -1;
+
+	/**
+	 * @return a value to pass to batchFinished when the batch has been written
+	 */
+	public synchronized long batchStarted() {
+		return batchesStarted++;
+	}
+
+	/**
+	 * @param startToken     the value returned by batchStarted
+	 * @param latencyMillis  how long it took to write the batch
+	 * @param failed         whether the batch failed to be written
+	 */
+	public synchronized void batchFinished(long startToken, long latencyMillis, boolean failed) {
+		if (failed || latencyMillis > targetLatencyMillis) {
+			if (startToken > lastDecreaseAt) {
+				batchSize = Math.max(minBatchSize, (int) (batchSize * decreaseFactor));
+				concurrency = Math.max(minConcurrency, (int) (concurrency * decreaseFactor));
+				lastDecreaseAt = batchesStarted - 1;
+				if (logger.isInfoEnabled()) {
+					logger.info(format("Batch %s after %d ms; decreased batch size to %d and concurrency to %d",
+						failed ? "failed" : "completed", latencyMillis, batchSize, concurrency));
+				}
+			}
+		} else {
+			batchSize = Math.min(maxBatchSize, batchSize + batchSizeIncrement);
+			concurrency = Math.min(maxConcurrency, concurrency + concurrencyIncrement);
+			if (logger.isDebugEnabled()) {
+				logger.debug(format("Batch completed in %d ms; increased batch size to %d and concurrency to %d",
+					latencyMillis, batchSize, concurrency));
+			}
+		}
+	}
+
+	public synchronized int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @param batchSize the initial batch size
+	 */
+	public synchronized void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public synchronized int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * @param concurrency the initial number of batches that can be in flight at one time
+	 */
+	public synchronized void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public long getTargetLatencyMillis() {
+		return targetLatencyMillis;
+	}
+
+	public void setTargetLatencyMillis(long targetLatencyMillis) {
+		this.targetLatencyMillis = targetLatencyMillis;
+	}
+
+	public int getMinBatchSize() {
+		return minBatchSize;
+	}
+
+	public void setMinBatchSize(int minBatchSize) {
+		this.minBatchSize = minBatchSize;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	public int getBatchSizeIncrement() {
+		return batchSizeIncrement;
+	}
+
+	public void setBatchSizeIncrement(int batchSizeIncrement) {
+		this.batchSizeIncrement = batchSizeIncrement;
+	}
+
+	public int getMinConcurrency() {
+		return minConcurrency;
+	}
+
+	public void setMinConcurrency(int minConcurrency) {
+		this.minConcurrency = minConcurrency;
+	}
+
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	public void setMaxConcurrency(int maxConcurrency) {
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	public int getConcurrencyIncrement() {
+		return concurrencyIncrement;
+	}
+
+	public void setConcurrencyIncrement(int concurrencyIncrement) {
+		this.concurrencyIncrement = concurrencyIncrement;
+	}
+
+	public double getDecreaseFactor() {
+		return decreaseFactor;
+	}
+
+	public void setDecreaseFactor(double decreaseFactor) {
+		this.decreaseFactor = decreaseFactor;
+	}
+}
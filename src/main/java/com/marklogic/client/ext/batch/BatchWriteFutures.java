@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Static methods for combining and waiting on the futures returned by BatchWriterSupport.writeAsync.
+ *
+ * @since 4.8.0
+ */
+public abstract class BatchWriteFutures {
+
+	/**
+	 * @param futures
+	 * @return a future that completes with the result of each given future, in the same order, once all of them have
+	 * completed; if any of them completes exceptionally, the returned future does as well
+	 */
+	public static CompletableFuture<List<BatchWriteResult>> allOf(Collection<CompletableFuture<BatchWriteResult>> futures) {
+		final List<CompletableFuture<BatchWriteResult>> list = new ArrayList<>(futures);
+		return CompletableFuture.allOf(list.toArray(new CompletableFuture[0])).thenApply(ignore -> {
+			List<BatchWriteResult> results = new ArrayList<>(list.size());
+			list.forEach(future -> results.add(future.join()));
+			return results;
+		});
+	}
+
+	/**
+	 * Blocks until all the given futures have completed.
+	 *
+	 * @param futures
+	 * @return the result of each future, in the same order
+	 * @throws RuntimeException if any of the futures completed exceptionally; the cause is the original error
+	 */
+	public static List<BatchWriteResult> await(Collection<CompletableFuture<BatchWriteResult>> futures) {
+		try {
+			return allOf(futures).join();
+		} catch (CompletionException ex) {
+			Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+			throw new RuntimeException("Unable to write batch: " + cause.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * Blocks until all the given futures have completed or the given timeout has passed.
+	 *
+	 * @param futures
+	 * @param timeout
+	 * @param unit
+	 * @return the result of each future, in the same order
+	 * @throws RuntimeException if any of the futures completed exceptionally or the timeout passed
+	 */
+	public static List<BatchWriteResult> await(Collection<CompletableFuture<BatchWriteResult>> futures, long timeout, TimeUnit unit) {
+		try {
+			return allOf(futures).get(timeout, unit);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+			throw new RuntimeException("Unable to write batch: " + cause.getMessage(), cause);
+		} catch (TimeoutException ex) {
+			throw new RuntimeException("Timed out waiting for batches to be written", ex);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for batches to be written", ex);
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import com.marklogic.client.document.DocumentWriteOperation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Describes a batch that was successfully written to MarkLogic; passed to WriteListener.onWriteSuccess and returned by
+ * the future from BatchWriterSupport.writeAsync.
+ *
+ * @since 4.8.0
+ */
+public class BatchWriteResult {
+
+	private final List<? extends DocumentWriteOperation> items;
+	private final String host;
+	private final long queueMillis;
+	private final long latencyMillis;
+	private final long byteCount;
+	private final int retryCount;
+	private final List<? extends DocumentWriteOperation> failedItems;
+
+	/**
+	 * @param items         the documents in the batch
+	 * @param host          describes the host the batch was written to; may be null if not known
+	 * @param queueMillis   how long the batch waited to be written after being submitted; -1 if not known
+	 * @param latencyMillis how long it took to write the batch, including any retries; -1 if not known
+	 * @param byteCount     the estimated number of content bytes in the batch
+	 * @param retryCount    the number of times writing the batch was retried
+	 */
+	public BatchWriteResult(List<? extends DocumentWriteOperation> items, String host, long queueMillis,
+	                        long latencyMillis, long byteCount, int retryCount) {
+		this(items, host, queueMillis, latencyMillis, byteCount, retryCount, null);
+	}
+
+	/**
+	 * @param failedItems documents that were part of the batch but could not be written; these have already been
+	 *                    reported to the WriteListener
+	 */
+	public BatchWriteResult(List<? extends DocumentWriteOperation> items, String host, long queueMillis,
+	                        long latencyMillis, long byteCount, int retryCount, List<? extends DocumentWriteOperation> failedItems) {
+		this.items = items;
+		this.host = host;
+		this.queueMillis = queueMillis;
+		this.latencyMillis = latencyMillis;
+		this.byteCount = byteCount;
+		this.retryCount = retryCount;
+		this.failedItems = failedItems != null ? failedItems : new ArrayList<>();
+	}
+
+	/**
+	 * Combines the results for the batches that a single list of documents was split into. The host is retained only
+	 * if every batch was written to the same host, and the queue and latency values are the maximum of each batch.
+	 *
+	 * @param results
+	 * @return a single result describing all the given results
+	 */
+	static BatchWriteResult combine(List<BatchWriteResult> results) {
+		List<DocumentWriteOperation> items = new ArrayList<>();
+		List<DocumentWriteOperation> failedItems = new ArrayList<>();
+		String host = results.isEmpty() ? null : results.get(0).getHost();
+		long queueMillis = 0, latencyMillis = 0, byteCount = 0;
+		int retryCount = 0;
+		for (BatchWriteResult result : results) {
+			items.addAll(result.getItems());
+			failedItems.addAll(result.getFailedItems());
+			if (host != null && !host.equals(result.getHost())) {
+				host = null;
+			}
+			queueMillis = Math.max(queueMillis, result.getQueueMillis());
+			latencyMillis = Math.max(latencyMillis, result.getLatencyMillis());
+			byteCount += result.getByteCount();
+			retryCount += result.getRetryCount();
+		}
+		return new BatchWriteResult(items, host, queueMillis, latencyMillis, byteCount, retryCount, failedItems);
+	}
+
+	/**
+	 * @return the URI of each document that was written
+	 */
+	public List<String> getUris() {
+		return items.stream().map(DocumentWriteOperation::getUri).collect(Collectors.toList());
+	}
+
+	public List<? extends DocumentWriteOperation> getFailedItems() {
+		return failedItems;
+	}
+
+	public List<? extends DocumentWriteOperation> getItems() {
+		return items;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public long getQueueMillis() {
+		return queueMillis;
+	}
+
+	public long getLatencyMillis() {
+		return latencyMillis;
+	}
+
+	public long getByteCount() {
+		return byteCount;
+	}
+
+	public int getRetryCount() {
+		return retryCount;
+	}
+}
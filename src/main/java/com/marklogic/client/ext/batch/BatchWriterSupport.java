@@ -17,27 +17,89 @@ package com.marklogic.client.ext.batch;
 
 import com.marklogic.client.document.DocumentWriteOperation;
 import com.marklogic.client.ext.helper.LoggingObject;
+import com.marklogic.client.ext.helper.VirtualThreadUtil;
+import com.marklogic.client.io.BytesHandle;
+import com.marklogic.client.io.FileHandle;
+import com.marklogic.client.io.StringHandle;
+import com.marklogic.client.io.marker.AbstractWriteHandle;
+import com.marklogic.client.io.marker.ContentDescriptor;
 import org.springframework.core.task.AsyncListenableTaskExecutor;
 import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
 import org.springframework.scheduling.concurrent.ExecutorConfigurationSupport;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Support class for BatchWriter implementations that uses Spring's TaskExecutor interface for parallelizing writes to
  * MarkLogic. Allows for setting a TaskExecutor instance, and if one is not set, a default one will be created based
  * on the threadCount attribute. That attribute is ignored if a TaskExecutor is set.
+ * <p>
+ * The number of batches that have been submitted but not yet written - i.e. those that are queued or executing - can
+ * be limited via maxBatchesInFlight and maxBytesInFlight. The latter is based on an estimate of the size of the content
+ * in each batch. When a limit is reached, the thread calling write() will block until a batch has been written, unless
+ * callerRunsWhenLimitReached is set to true, in which case the batch is written on the calling thread. Either way, the
+ * memory held by batches that are waiting to be written is bounded by these limits instead of by the number of
+ * documents being written. Both limits are disabled by default.
+ * <p>
+ * If a RetryPolicy is set, subclasses that write via writeWithRetry will retry batches that fail due to a transient
+ * error, and will split a batch that fails for any other reason so that only the documents that cannot be written are
+ * reported to the WriteListener.
+ * <p>
+ * If an AdaptiveBatchController is set, the time taken to write each batch is reported to it, and the batch size and
+ * number of batches in flight that it computes are used in place of fixed values.
+ * <p>
+ * Each batch that is written successfully is reported to the WriteListener via onWriteSuccess, along with how long it
+ * took and its size. If WriteMetrics is set, counts and latencies for every batch are captured by it as well.
+ * <p>
+ * By default, the TaskExecutor is shut down by waitForCompletion. To reuse the same threads across many sets of writes,
+ * set shutdownTaskExecutorOnCompletion to false; waitForCompletion will then only wait for the batches submitted so
+ * far to be written, and close() must be called to shut down the TaskExecutor.
+ * <p>
+ * If useVirtualThreads is set to true and Java 21 or higher is being used, the default TaskExecutor starts a new virtual
+ * thread for each batch instead of using a thread pool. threadCount then limits the number of batches being written at
+ * once, unless maxBatchesInFlight is set.
+ * <p>
+ * writeAsync can be used in place of write to receive a CompletableFuture for the items being written.
  */
-public abstract class BatchWriterSupport extends LoggingObject implements BatchWriter {
+public abstract class BatchWriterSupport extends LoggingObject implements BatchWriter, AutoCloseable {
 
 	private TaskExecutor taskExecutor;
 	private int threadCount = 16;
 	private WriteListener writeListener = new DefaultWriteListener();
 
+	private int maxBatchesInFlight = 0;
+	private long maxBytesInFlight = 0;
+	private boolean callerRunsWhenLimitReached = false;
+	private RetryPolicy retryPolicy;
+	private AdaptiveBatchController adaptiveBatchController;
+
+	private WriteMetrics writeMetrics;
+	private boolean shutdownTaskExecutorOnCompletion = true;
+	private boolean useVirtualThreads = false;
+	private ExecutorService virtualThreadExecutorService;
+
+	private final ThreadLocal<BatchTracker> currentBatchTracker = new ThreadLocal<>();
+	private final ThreadLocal<List<CompletableFuture<BatchWriteResult>>> currentAsyncFutures = new ThreadLocal<>();
+
+	private final Object inFlightMonitor = new Object();
+	private int batchesInFlight;
+	private long bytesInFlight;
+
 	@Override
 	public void initialize() {
 		if (taskExecutor == null) {
@@ -45,9 +107,43 @@ public abstract class BatchWriterSupport extends LoggingObject implements BatchW
 		}
 	}
 
+	/**
+	 * If shutdownTaskExecutorOnCompletion is true - the default - the TaskExecutor is shut down, which waits for every
+	 * batch to be written, and a new one is created the next time initialize() is called. Otherwise, this waits for
+	 * every batch submitted so far to be written, and the TaskExecutor is kept for the next set of writes until
+	 * close() is called.
+	 */
 	@Override
 	public void waitForCompletion() {
-		if (taskExecutor instanceof ExecutorConfigurationSupport) {
+		if (shutdownTaskExecutorOnCompletion) {
+			shutdownTaskExecutor();
+		} else {
+			awaitBatchesInFlight();
+		}
+
+		if (writeListener != null) {
+			writeListener.afterCompletion();
+		}
+	}
+
+	/**
+	 * Shuts down the TaskExecutor, waiting for any batches to be written. Only needed when
+	 * shutdownTaskExecutorOnCompletion is false.
+	 *
+	 * @since 4.8.0
+	 */
+	@Override
+	public void close() {
+		shutdownTaskExecutor();
+	}
+
+	private void shutdownTaskExecutor() {
+		if (virtualThreadExecutorService != null) {
+			awaitBatchesInFlight();
+			virtualThreadExecutorService.shutdown();
+			virtualThreadExecutorService = null;
+			taskExecutor = null;
+		} else if (taskExecutor instanceof ExecutorConfigurationSupport) {
 			if (logger.isDebugEnabled()) {
 				logger.debug("Calling shutdown on thread pool");
 			}
@@ -57,13 +153,39 @@ public abstract class BatchWriterSupport extends LoggingObject implements BatchW
 			}
 			taskExecutor = null;
 		}
+	}
 
-		if (writeListener != null) {
-			writeListener.afterCompletion();
+	/**
+	 * Blocks until every batch that has been submitted has been written or has failed, with any failure having been
+	 * reported to the WriteListener.
+	 *
+	 * @since 4.8.0
+	 */
+	protected void awaitBatchesInFlight() {
+		synchronized (inFlightMonitor) {
+			while (batchesInFlight > 0) {
+				try {
+					inFlightMonitor.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("Interrupted while waiting for batches to be written", e);
+				}
+			}
 		}
 	}
 
 	protected void initializeDefaultTaskExecutor() {
+		if (useVirtualThreads) {
+			if (VirtualThreadUtil.isSupported()) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Using virtual threads, with at most " + threadCount + " batches being written at once");
+				}
+				this.virtualThreadExecutorService = VirtualThreadUtil.newVirtualThreadPerTaskExecutor();
+				this.taskExecutor = new ConcurrentTaskExecutor(virtualThreadExecutorService);
+				return;
+			}
+			logger.warn("Virtual threads are not supported by this version of Java, so using a thread pool instead");
+		}
 		if (threadCount > 1) {
 			if (logger.isDebugEnabled()) {
 				logger.debug("Initializing thread pool with a count of " + threadCount);
@@ -88,25 +210,449 @@ public abstract class BatchWriterSupport extends LoggingObject implements BatchW
 	/**
 	 * Will use the WriteListener if the TaskExecutor is an instance of AsyncListenableTaskExecutor. The WriteListener
 	 * will then be used to listen for failures.
+	 * <p>
+	 * If maxBatchesInFlight or maxBytesInFlight has been set, this will first wait until the batch can be submitted
+	 * without exceeding either limit.
 	 *
 	 * @param runnable
 	 * @param items
 	 */
 	protected void executeRunnable(Runnable runnable, final List<? extends DocumentWriteOperation> items) {
+		executeRunnable(runnable, items, null);
+	}
+
+	private void executeRunnable(Runnable runnable, final List<? extends DocumentWriteOperation> items, String host) {
+		final long byteCount = estimateByteCount(items);
+		final CompletableFuture<BatchWriteResult> future = newAsyncFutureIfNecessary();
+		final Runnable task = trackRunnable(runnable, items, host, byteCount, future);
+
+		// Every submitted batch is counted as in flight, even without a limit, so that waitForCompletion can wait for
+		// them without shutting down the TaskExecutor
+		if (!acquireInFlight(byteCount, !callerRunsWhenLimitReached)) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("In-flight limit reached, so writing batch on the calling thread");
+			}
+			runOnCallingThread(task, items);
+			return;
+		}
+
+		final AtomicBoolean released = new AtomicBoolean(false);
+		final Runnable release = () -> {
+			if (released.compareAndSet(false, true)) {
+				releaseInFlight(byteCount);
+			}
+		};
+		try {
+			submitRunnable(task, items, release);
+		} catch (RuntimeException ex) {
+			// Either the task was rejected, in which case it will never release what it acquired, or it was run
+			// synchronously and failed, in which case it has already released
+			release.run();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Executes the given runnable via executeRunnable, and releases the given host back to the given HostSelector once
+	 * the runnable has finished, including whether it failed.
+	 *
+	 * @param hostSelector
+	 * @param host         a host acquired from the HostSelector
+	 * @param runnable
+	 * @param items
+	 * @param <T>
+	 * @since 4.8.0
+	 */
+	protected <T> void executeRunnable(HostSelector<T> hostSelector, T host, Runnable runnable, List<? extends DocumentWriteOperation> items) {
+		final AtomicBoolean released = new AtomicBoolean(false);
+		Runnable releasingRunnable = () -> {
+			Throwable failure = null;
+			try {
+				runnable.run();
+			} catch (RuntimeException | Error ex) {
+				failure = ex;
+				throw ex;
+			} finally {
+				if (released.compareAndSet(false, true)) {
+					hostSelector.release(host, failure);
+				}
+			}
+		};
+		try {
+			executeRunnable(releasingRunnable, items, describeHost(host));
+		} catch (RuntimeException | Error ex) {
+			// Either the task was rejected, in which case it will never release the host, or it was run synchronously
+			// and failed, in which case it has already released the host along with the failure
+			if (released.compareAndSet(false, true)) {
+				hostSelector.release(host, null);
+			}
+			throw ex;
+		}
+	}
+
+	/**
+	 * @param host
+	 * @return a description of the host, used for the host-specific values captured by WriteMetrics
+	 * @since 4.8.0
+	 */
+	protected String describeHost(Object host) {
+		return String.valueOf(host);
+	}
+
+	/**
+	 * Writes the given items in the same manner as write(), but returns a future that completes once every batch
+	 * containing the items has been written. The future's result describes the written items; any items that were
+	 * split off of a batch and reported to the WriteListener as failures are available via getFailedItems. If an
+	 * entire batch fails, the future completes exceptionally with the error that caused the failure.
+	 * <p>
+	 * The calling thread is blocked only as long as write() would block it - e.g. while waiting for an in-flight limit.
+	 * BatchWriteFutures can be used to combine and wait on the futures for a subset of the batches that are written.
+	 *
+	 * @param items
+	 * @return a future that completes when the items have been written
+	 * @since 4.8.0
+	 */
+	public CompletableFuture<BatchWriteResult> writeAsync(List<? extends DocumentWriteOperation> items) {
+		List<CompletableFuture<BatchWriteResult>> futures = new ArrayList<>();
+		currentAsyncFutures.set(futures);
+		try {
+			write(items);
+		} catch (RuntimeException ex) {
+			// Either the batch was rejected, or it was written on the calling thread and failed
+			if (futures.isEmpty()) {
+				CompletableFuture<BatchWriteResult> failed = new CompletableFuture<>();
+				failed.completeExceptionally(ex);
+				return failed;
+			}
+			futures.forEach(future -> future.completeExceptionally(ex));
+		} finally {
+			currentAsyncFutures.remove();
+		}
+
+		if (futures.isEmpty()) {
+			return CompletableFuture.completedFuture(new BatchWriteResult(new ArrayList<>(), null, 0, 0, 0, 0));
+		}
+		return futures.size() == 1 ? futures.get(0) : BatchWriteFutures.allOf(futures).thenApply(BatchWriteResult::combine);
+	}
+
+	/**
+	 * @return a future for the batch about to be submitted, if writeAsync is being called on this thread; else null
+	 */
+	private CompletableFuture<BatchWriteResult> newAsyncFutureIfNecessary() {
+		List<CompletableFuture<BatchWriteResult>> futures = currentAsyncFutures.get();
+		if (futures == null) {
+			return null;
+		}
+		CompletableFuture<BatchWriteResult> future = new CompletableFuture<>();
+		futures.add(future);
+		return future;
+	}
+
+	/**
+	 * Wraps the given runnable so that how long it waited to be run, how long it took to run, whether it failed, and how
+	 * many times it was retried are reported to the AdaptiveBatchController, WriteMetrics, WriteListener, and - if
+	 * writeAsync was used - the future for the batch.
+	 */
+	private Runnable trackRunnable(Runnable runnable, List<? extends DocumentWriteOperation> items, String host, long byteCount,
+	                               CompletableFuture<BatchWriteResult> future) {
+		final AdaptiveBatchController controller = adaptiveBatchController;
+		final WriteMetrics metrics = writeMetrics;
+		final WriteListener listener = writeListener;
+		final long submittedAt = System.currentTimeMillis();
+		return () -> {
+			final long token = controller != null ? controller.batchStarted() : 0;
+			final long start = System.currentTimeMillis();
+			final BatchTracker tracker = new BatchTracker();
+			currentBatchTracker.set(tracker);
+			try {
+				runnable.run();
+			} catch (RuntimeException | Error ex) {
+				if (controller != null) {
+					controller.batchFinished(token, System.currentTimeMillis() - start, true);
+				}
+				if (metrics != null) {
+					metrics.recordFailure(host, items.size(), tracker.retryCount);
+				}
+				if (future != null) {
+					future.completeExceptionally(ex);
+				}
+				throw ex;
+			} finally {
+				currentBatchTracker.remove();
+			}
+
+			final long latency = System.currentTimeMillis() - start;
+			if (controller != null) {
+				controller.batchFinished(token, latency, !tracker.failedItems.isEmpty());
+			}
+			List<? extends DocumentWriteOperation> writtenItems = items;
+			long writtenByteCount = byteCount;
+			if (!tracker.failedItems.isEmpty()) {
+				// Part of the batch failed and was reported to the WriteListener by writeWithRetry
+				if (metrics != null) {
+					metrics.recordFailure(host, tracker.failedItems.size(), 0);
+				}
+				Set<DocumentWriteOperation> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+				failed.addAll(tracker.failedItems);
+				writtenItems = items.stream().filter(item -> !failed.contains(item)).collect(Collectors.toList());
+				writtenByteCount = estimateByteCount(writtenItems);
+			}
+			if (metrics != null || listener != null || future != null) {
+				BatchWriteResult result = new BatchWriteResult(writtenItems, host, start - submittedAt, latency,
+					writtenByteCount, tracker.retryCount, tracker.failedItems);
+				if (!writtenItems.isEmpty()) {
+					if (metrics != null) {
+						metrics.recordSuccess(result);
+					}
+					if (listener != null) {
+						listener.onWriteSuccess(result);
+					}
+				}
+				if (future != null) {
+					future.complete(result);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Captures what happens while a single batch is being written, so that it can be reported once the batch is done.
+	 */
+	private static class BatchTracker {
+		int retryCount;
+		List<DocumentWriteOperation> failedItems = new ArrayList<>();
+	}
+
+	/**
+	 * Passes the given items to the given consumer. If an AdaptiveBatchController is set, the items are first split
+	 * into lists no larger than the controller's current batch size, which is checked before each list is passed on.
+	 *
+	 * @param items
+	 * @param consumer
+	 * @since 4.8.0
+	 */
+	protected void forEachBatch(List<? extends DocumentWriteOperation> items, Consumer<List<? extends DocumentWriteOperation>> consumer) {
+		if (adaptiveBatchController == null) {
+			consumer.accept(items);
+			return;
+		}
+		int start = 0;
+		final int size = items.size();
+		while (start < size) {
+			int end = Math.min(size, start + Math.max(1, adaptiveBatchController.getBatchSize()));
+			consumer.accept(start == 0 && end == size ? items : new ArrayList<>(items.subList(start, end)));
+			start = end;
+		}
+	}
+
+	/**
+	 * @param onDone invoked once the runnable has finished and any failure has been reported to the WriteListener
+	 */
+	private void submitRunnable(Runnable runnable, final List<? extends DocumentWriteOperation> items, final Runnable onDone) {
 		if (writeListener != null && taskExecutor instanceof AsyncListenableTaskExecutor) {
 			AsyncListenableTaskExecutor asyncListenableTaskExecutor = (AsyncListenableTaskExecutor)taskExecutor;
 			ListenableFuture<?> future = asyncListenableTaskExecutor.submitListenable(runnable);
 			future.addCallback(new ListenableFutureCallback<Object>() {
 				@Override
 				public void onFailure(Throwable ex) {
-					writeListener.onWriteFailure(ex, items);
+					try {
+						writeListener.onWriteFailure(ex, items);
+					} finally {
+						onDone.run();
+					}
 				}
 				@Override
 				public void onSuccess(Object result) {
+					onDone.run();
 				}
 			});
 		} else {
-			taskExecutor.execute(runnable);
+			taskExecutor.execute(() -> {
+				try {
+					runnable.run();
+				} finally {
+					onDone.run();
+				}
+			});
+		}
+	}
+
+	private void runOnCallingThread(Runnable runnable, final List<? extends DocumentWriteOperation> items) {
+		try {
+			runnable.run();
+		} catch (RuntimeException ex) {
+			if (writeListener != null) {
+				writeListener.onWriteFailure(ex, items);
+			} else {
+				throw ex;
+			}
+		}
+	}
+
+	/**
+	 * Writes the given items via the given writer. If a RetryPolicy has been set, a transient failure results in the
+	 * items being written again after a backoff, and any other failure results in the items being split in half and
+	 * each half being written separately. Each half that still fails is reported to the WriteListener instead of
+	 * failing the entire batch. A batch is never split once its transient retries have been exhausted, as the server is
+	 * then most likely unavailable; the failure is instead thrown or reported like any other. Without a RetryPolicy,
+	 * the writer is simply invoked once.
+	 *
+	 * @param items
+	 * @param writer
+	 * @since 4.8.0
+	 */
+	protected void writeWithRetry(List<? extends DocumentWriteOperation> items, Consumer<List<? extends DocumentWriteOperation>> writer) {
+		if (retryPolicy == null || !retryPolicy.canBeResent(items)) {
+			writer.accept(items);
+			return;
+		}
+		// Items whose content can only be sent once are replaced; failures are reported with the original items
+		List<DocumentWriteOperation> resendableItems = retryPolicy.toResendable(items);
+		Map<DocumentWriteOperation, DocumentWriteOperation> originals = new IdentityHashMap<>();
+		for (int i = 0; i < items.size(); i++) {
+			if (resendableItems.get(i) != items.get(i)) {
+				originals.put(resendableItems.get(i), items.get(i));
+			}
+		}
+		writeWithRetry(resendableItems, writer, true, originals);
+	}
+
+	private void writeWithRetry(List<? extends DocumentWriteOperation> items, Consumer<List<? extends DocumentWriteOperation>> writer,
+	                            boolean isOriginalBatch, Map<DocumentWriteOperation, DocumentWriteOperation> originals) {
+		int retryNumber = 0;
+		while (true) {
+			try {
+				writer.accept(items);
+				return;
+			} catch (RuntimeException ex) {
+				final boolean isTransient = retryPolicy.isTransient(ex);
+				if (isTransient && retryNumber < retryPolicy.getMaxRetries()) {
+					long backoff = retryPolicy.getBackoffMillis(retryNumber);
+					retryNumber++;
+					BatchTracker tracker = currentBatchTracker.get();
+					if (tracker != null) {
+						tracker.retryCount++;
+					}
+					logger.warn(format("Unable to write batch of %d documents due to transient error, will retry in %d ms; attempt %d of %d; cause: %s",
+						items.size(), backoff, retryNumber, retryPolicy.getMaxRetries(), ex.getMessage()));
+					sleep(backoff);
+				} else if (!isTransient && retryPolicy.isBisectOnFailure() && items.size() > 1) {
+					logger.warn(format("Unable to write batch of %d documents, will split batch and retry; cause: %s", items.size(), ex.getMessage()));
+					int middle = items.size() / 2;
+					writeWithRetry(items.subList(0, middle), writer, false, originals);
+					writeWithRetry(items.subList(middle, items.size()), writer, false, originals);
+					return;
+				} else if (isOriginalBatch || writeListener == null) {
+					throw ex;
+				} else {
+					logger.error(format("Unable to write batch of %d documents; cause: %s", items.size(), ex.getMessage()));
+					List<DocumentWriteOperation> failedItems = new ArrayList<>(items.size());
+					items.forEach(item -> failedItems.add(originals.getOrDefault(item, item)));
+					BatchTracker tracker = currentBatchTracker.get();
+					if (tracker != null) {
+						tracker.failedItems.addAll(failedItems);
+					}
+					writeListener.onWriteFailure(ex, failedItems);
+					return;
+				}
+			}
+		}
+	}
+
+	private void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting to retry writing batch", e);
+		}
+	}
+
+	/**
+	 * @param byteCount
+	 * @param block     if false and a limit has been reached, false is returned instead of waiting
+	 * @return true if the batch was counted as being in flight
+	 */
+	protected boolean acquireInFlight(long byteCount, boolean block) {
+		synchronized (inFlightMonitor) {
+			while (inFlightLimitReached(byteCount)) {
+				if (!block) {
+					return false;
+				}
+				try {
+					inFlightMonitor.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("Interrupted while waiting to submit batch to be written", e);
+				}
+			}
+			batchesInFlight++;
+			bytesInFlight += byteCount;
+			return true;
+		}
+	}
+
+	protected void releaseInFlight(long byteCount) {
+		synchronized (inFlightMonitor) {
+			batchesInFlight--;
+			bytesInFlight -= byteCount;
+			inFlightMonitor.notifyAll();
+		}
+	}
+
+	/**
+	 * A batch larger than maxBytesInFlight is still allowed when no other batch is in flight; otherwise it could never
+	 * be written.
+	 */
+	private boolean inFlightLimitReached(long byteCount) {
+		if (maxBatchesInFlight > 0 && batchesInFlight >= maxBatchesInFlight) {
+			return true;
+		}
+		if (adaptiveBatchController != null && batchesInFlight >= adaptiveBatchController.getConcurrency()) {
+			return true;
+		}
+		// With virtual threads, there is no thread pool to limit how many batches are written at once
+		if (virtualThreadExecutorService != null && maxBatchesInFlight <= 0 && batchesInFlight >= threadCount) {
+			return true;
+		}
+		return maxBytesInFlight > 0 && batchesInFlight > 0 && bytesInFlight + byteCount > maxBytesInFlight;
+	}
+
+	/**
+	 * Estimates the number of bytes of content in the given items. The length of String content is used as-is, and
+	 * content whose length cannot be determined - e.g. an InputStream without a known byte length - is counted as
+	 * zero bytes.
+	 *
+	 * @param items
+	 * @return the estimated number of content bytes in the given items
+	 */
+	protected long estimateByteCount(List<? extends DocumentWriteOperation> items) {
+		return estimateContentLength(items);
+	}
+
+	static long estimateContentLength(List<? extends DocumentWriteOperation> items) {
+		long total = 0;
+		for (DocumentWriteOperation op : items) {
+			AbstractWriteHandle content = op.getContent();
+			if (content instanceof StringHandle) {
+				String value = ((StringHandle) content).get();
+				total += value != null ? value.length() : 0;
+			} else if (content instanceof BytesHandle) {
+				byte[] value = ((BytesHandle) content).get();
+				total += value != null ? value.length : 0;
+			} else if (content instanceof FileHandle) {
+				total += ((FileHandle) content).get() != null ? ((FileHandle) content).get().length() : 0;
+			} else if (content instanceof ContentDescriptor) {
+				long length = ((ContentDescriptor) content).getByteLength();
+				total += length > 0 ? length : 0;
+			}
+		}
+		return total;
+	}
+
+	protected int getBatchesInFlight() {
+		synchronized (inFlightMonitor) {
+			return batchesInFlight;
 		}
 	}
 
@@ -133,4 +679,106 @@ public abstract class BatchWriterSupport extends LoggingObject implements BatchW
 	public int getThreadCount() {
 		return threadCount;
 	}
+
+	/**
+	 * @param maxBatchesInFlight the maximum number of batches that can be queued or executing at one time; a value
+	 *                           less than 1 means there is no limit
+	 * @since 4.8.0
+	 */
+	public void setMaxBatchesInFlight(int maxBatchesInFlight) {
+		this.maxBatchesInFlight = maxBatchesInFlight;
+	}
+
+	public int getMaxBatchesInFlight() {
+		return maxBatchesInFlight;
+	}
+
+	/**
+	 * @param maxBytesInFlight the maximum estimated number of content bytes across all batches that are queued or
+	 *                         executing at one time; a value less than 1 means there is no limit
+	 * @since 4.8.0
+	 */
+	public void setMaxBytesInFlight(long maxBytesInFlight) {
+		this.maxBytesInFlight = maxBytesInFlight;
+	}
+
+	public long getMaxBytesInFlight() {
+		return maxBytesInFlight;
+	}
+
+	/**
+	 * @param callerRunsWhenLimitReached if true, a batch that would exceed an in-flight limit is written on the
+	 *                                   calling thread instead of the calling thread blocking until it can be submitted
+	 * @since 4.8.0
+	 */
+	public void setCallerRunsWhenLimitReached(boolean callerRunsWhenLimitReached) {
+		this.callerRunsWhenLimitReached = callerRunsWhenLimitReached;
+	}
+
+	public boolean isCallerRunsWhenLimitReached() {
+		return callerRunsWhenLimitReached;
+	}
+
+	/**
+	 * @param retryPolicy if set, defines how batches written via writeWithRetry are retried and split when they fail
+	 * @since 4.8.0
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * @param adaptiveBatchController if set, determines the size of each batch and the number of batches that can be
+	 *                                in flight based on how long batches take to be written
+	 * @since 4.8.0
+	 */
+	public void setAdaptiveBatchController(AdaptiveBatchController adaptiveBatchController) {
+		this.adaptiveBatchController = adaptiveBatchController;
+	}
+
+	public AdaptiveBatchController getAdaptiveBatchController() {
+		return adaptiveBatchController;
+	}
+
+	/**
+	 * @param writeMetrics if set, captures counts and latencies for each batch that is written or fails
+	 * @since 4.8.0
+	 */
+	public void setWriteMetrics(WriteMetrics writeMetrics) {
+		this.writeMetrics = writeMetrics;
+	}
+
+	public WriteMetrics getWriteMetrics() {
+		return writeMetrics;
+	}
+
+	/**
+	 * @param shutdownTaskExecutorOnCompletion if false, waitForCompletion keeps the TaskExecutor so that it can be
+	 *                                         reused, and close() must be called to shut it down
+	 * @since 4.8.0
+	 */
+	public void setShutdownTaskExecutorOnCompletion(boolean shutdownTaskExecutorOnCompletion) {
+		this.shutdownTaskExecutorOnCompletion = shutdownTaskExecutorOnCompletion;
+	}
+
+	public boolean isShutdownTaskExecutorOnCompletion() {
+		return shutdownTaskExecutorOnCompletion;
+	}
+
+	/**
+	 * @param useVirtualThreads if true and a TaskExecutor has not been set, a new virtual thread is used to write each
+	 *                          batch when running on Java 21 or higher; a thread pool is used otherwise
+	 * @since 4.8.0
+	 */
+	public void setUseVirtualThreads(boolean useVirtualThreads) {
+		this.useVirtualThreads = useVirtualThreads;
+	}
+
+	public boolean isUseVirtualThreads() {
+		return useVirtualThreads;
+	}
 }
@@ -22,8 +22,16 @@ import com.marklogic.client.datamovement.WriteBatcher;
 import com.marklogic.client.document.DocumentWriteOperation;
 import com.marklogic.client.ext.helper.LoggingObject;
 
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Data Movement SDK implementation, which delegates batching and threading to a WriteBatcher.
+ * <p>
+ * As of 4.8.0, a WriteListener and WriteMetrics can be set; each is informed of the batches that the WriteBatcher
+ * writes or fails to write. The WriteBatcher does not report how long each batch takes, so the latency in each
+ * BatchWriteResult is -1.
+ */
 public class DataMovementBatchWriter extends LoggingObject implements BatchWriter {
 
 	private DatabaseClient client;
@@ -32,6 +40,8 @@ public class DataMovementBatchWriter extends LoggingObject implements BatchWrite
 	private int batchSize = 100;
 	private int threadCount = 10;
 	private JobTicket jobTicket;
+	private WriteListener writeListener;
+	private WriteMetrics writeMetrics;
 
 	public DataMovementBatchWriter(DatabaseClient client) {
 		this.client = client;
@@ -43,9 +53,47 @@ public class DataMovementBatchWriter extends LoggingObject implements BatchWrite
 		writeBatcher = this.dataMovementManager.newWriteBatcher();
 		writeBatcher.withThreadCount(threadCount);
 		writeBatcher.withBatchSize(batchSize);
+		if (writeListener != null || writeMetrics != null) {
+			addBatchListeners(writeBatcher);
+		}
 		jobTicket = dataMovementManager.startJob(writeBatcher);
 	}
 
+	/**
+	 * Reports each batch written by the WriteBatcher to the WriteListener and WriteMetrics, if set.
+	 *
+	 * @param writeBatcher
+	 * @since 4.8.0
+	 */
+	protected void addBatchListeners(WriteBatcher writeBatcher) {
+		final WriteListener listener = writeListener;
+		final WriteMetrics metrics = writeMetrics;
+		writeBatcher.onBatchSuccess(batch -> {
+			List<DocumentWriteOperation> items = Arrays.asList(batch.getItems());
+			BatchWriteResult result = new BatchWriteResult(items, describeHost(batch.getClient()), -1, -1,
+				BatchWriterSupport.estimateContentLength(items), 0);
+			if (metrics != null) {
+				metrics.recordSuccess(result);
+			}
+			if (listener != null) {
+				listener.onWriteSuccess(result);
+			}
+		});
+		writeBatcher.onBatchFailure((batch, throwable) -> {
+			List<DocumentWriteOperation> items = Arrays.asList(batch.getItems());
+			if (metrics != null) {
+				metrics.recordFailure(describeHost(batch.getClient()), items.size(), 0);
+			}
+			if (listener != null) {
+				listener.onWriteFailure(throwable, items);
+			}
+		});
+	}
+
+	private String describeHost(DatabaseClient client) {
+		return client != null ? client.getHost() + ":" + client.getPort() : null;
+	}
+
 	@Override
 	public void write(List<? extends DocumentWriteOperation> items) {
 		for (DocumentWriteOperation op : items) {
@@ -63,6 +111,9 @@ public class DataMovementBatchWriter extends LoggingObject implements BatchWrite
 				dataMovementManager.stopJob(writeBatcher);
 			}
 		}
+		if (writeListener != null) {
+			writeListener.afterCompletion();
+		}
 	}
 
 	public void setBatchSize(int batchSize) {
@@ -72,4 +123,24 @@ public class DataMovementBatchWriter extends LoggingObject implements BatchWrite
 	public void setThreadCount(int threadCount) {
 		this.threadCount = threadCount;
 	}
+
+	/**
+	 * @param writeListener if set, is informed of each batch that is written or fails to be written
+	 * @since 4.8.0
+	 */
+	public void setWriteListener(WriteListener writeListener) {
+		this.writeListener = writeListener;
+	}
+
+	/**
+	 * @param writeMetrics if set, captures counts for each batch that is written or fails to be written
+	 * @since 4.8.0
+	 */
+	public void setWriteMetrics(WriteMetrics writeMetrics) {
+		this.writeMetrics = writeMetrics;
+	}
+
+	public WriteMetrics getWriteMetrics() {
+		return writeMetrics;
+	}
 }
@@ -30,11 +30,17 @@ public class DefaultWriteListener extends WriteListenerSupport {
 		}
 	}
 
+	/**
+	 * Throws the first error that occurred, if any. The error is then cleared so that the BatchWriter can be reused for
+	 * another set of writes.
+	 */
 	@Override
-	public void afterCompletion() {
+	public synchronized void afterCompletion() {
 		if (firstError != null) {
+			Throwable error = firstError;
+			firstError = null;
 			throw new RuntimeException("Caught exception before writing was completed: " +
-				firstError.getMessage(), firstError);
+				error.getMessage(), error);
 		}
 	}
 }
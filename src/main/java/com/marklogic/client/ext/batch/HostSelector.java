@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+/**
+ * Strategy for choosing which host - e.g. a DatabaseClient or an XCC ContentSource - a batch is written to. Every call
+ * to acquire must be followed by a call to release with the same host once the batch has been written or has failed,
+ * which allows implementations to track outstanding requests and failures per host. Implementations must be
+ * thread-safe.
+ *
+ * @param <T> the type of object representing a host
+ * @since 4.8.0
+ */
+public interface HostSelector<T> {
+
+	/**
+	 * @return the host to write the next batch to
+	 */
+	T acquire();
+
+	/**
+	 * @param host    a host returned by acquire
+	 * @param failure the error that occurred while writing to the host, or null if the write succeeded
+	 */
+	void release(T host, Throwable failure);
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import com.marklogic.client.ext.helper.LoggingObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class for HostSelector implementations. Tracks the number of outstanding requests for each host, and temporarily
+ * ejects a host that fails maxConsecutiveFailures times in a row, such that it is not selected again until
+ * ejectionMillis has passed. Only failures that the RetryPolicy considers transient - such as a connection being
+ * refused or a 503 response - count toward ejection; any other failure, such as a document being rejected, shows that
+ * the host is responding and thus resets its failure count. If every host has been ejected, all hosts are considered
+ * available so that writes are not blocked entirely. Subclasses only need to choose a host from the hosts that are
+ * currently available.
+ *
+ * @param <T>
+ * @since 4.8.0
+ */
+public abstract class HostSelectorSupport<T> extends LoggingObject implements HostSelector<T> {
+
+	private final List<HostState<T>> hostStates;
+	private final Map<T, HostState<T>> hostStateMap;
+
+	private int maxConsecutiveFailures = 3;
+	private long ejectionMillis = 30000;
+	private RetryPolicy retryPolicy = new RetryPolicy();
+
+	protected HostSelectorSupport(List<T> hosts) {
+		if (hosts == null || hosts.isEmpty()) {
+			throw new IllegalArgumentException("At least one host must be provided");
+		}
+		List<HostState<T>> states = new ArrayList<>();
+		Map<T, HostState<T>> map = new IdentityHashMap<>();
+		for (T host : hosts) {
+			// A host that is listed more than once shares its state, and is thus selected more often
+			HostState<T> state = map.computeIfAbsent(host, HostState::new);
+			states.add(state);
+		}
+		this.hostStates = Collections.unmodifiableList(states);
+		this.hostStateMap = map;
+	}
+
+	/**
+	 * @param candidates the hosts that are available; never empty
+	 * @return the host to use for the next batch
+	 */
+	protected abstract HostState<T> choose(List<HostState<T>> candidates);
+
+	@Override
+	public T acquire() {
+		HostState<T> state = choose(getAvailableHostStates());
+		state.outstanding.incrementAndGet();
+		return state.host;
+	}
+
+	@Override
+	public void release(T host, Throwable failure) {
+		HostState<T> state = hostStateMap.get(host);
+		if (state == null) {
+			return;
+		}
+		state.outstanding.decrementAndGet();
+		if (failure == null || !retryPolicy.isTransient(failure)) {
+			state.consecutiveFailures.set(0);
+		} else if (maxConsecutiveFailures > 0 && state.consecutiveFailures.incrementAndGet() >= maxConsecutiveFailures) {
+			state.consecutiveFailures.set(0);
+			state.ejectedUntil = System.currentTimeMillis() + ejectionMillis;
+			logger.warn(format("Host failed %d consecutive times, so it will not be used for %d ms; host: %s; cause: %s",
+				maxConsecutiveFailures, ejectionMillis, host, failure.getMessage()));
+		}
+	}
+
+	protected List<HostState<T>> getAvailableHostStates() {
+		if (hostStates.size() == 1) {
+			return hostStates;
+		}
+		final long now = System.currentTimeMillis();
+		List<HostState<T>> available = null;
+		for (int i = 0; i < hostStates.size(); i++) {
+			HostState<T> state = hostStates.get(i);
+			if (state.ejectedUntil > now) {
+				if (available == null) {
+					available = new ArrayList<>(hostStates.subList(0, i));
+				}
+			} else if (available != null) {
+				available.add(state);
+			}
+		}
+		if (available == null) {
+			return hostStates;
+		}
+		return available.isEmpty() ? hostStates : available;
+	}
+
+	protected List<HostState<T>> getHostStates() {
+		return hostStates;
+	}
+
+	/**
+	 * @param host
+	 * @return the number of batches that have been assigned to the host but not yet released
+	 */
+	public int getOutstandingCount(T host) {
+		HostState<T> state = hostStateMap.get(host);
+		return state != null ? state.outstanding.get() : 0;
+	}
+
+	/**
+	 * @param host
+	 * @return true if the host has been ejected due to consecutive failures and is not yet available again
+	 */
+	public boolean isEjected(T host) {
+		HostState<T> state = hostStateMap.get(host);
+		return state != null && state.ejectedUntil > System.currentTimeMillis();
+	}
+
+	public int getMaxConsecutiveFailures() {
+		return maxConsecutiveFailures;
+	}
+
+	/**
+	 * @param maxConsecutiveFailures the number of consecutive failures that causes a host to be ejected; a value less
+	 *                               than 1 means hosts are never ejected
+	 */
+	public void setMaxConsecutiveFailures(int maxConsecutiveFailures) {
+		this.maxConsecutiveFailures = maxConsecutiveFailures;
+	}
+
+	public long getEjectionMillis() {
+		return ejectionMillis;
+	}
+
+	public void setEjectionMillis(long ejectionMillis) {
+		this.ejectionMillis = ejectionMillis;
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * @param retryPolicy determines which failures are transient and thus count toward ejecting a host; defaults to a
+	 *                    RetryPolicy with default settings
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * Tracks the state of a single host.
+	 *
+	 * @param <T>
+	 */
+	protected static class HostState<T> {
+
+		private final T host;
+		private final AtomicInteger outstanding = new AtomicInteger();
+		private final AtomicInteger consecutiveFailures = new AtomicInteger();
+		private volatile long ejectedUntil;
+
+		HostState(T host) {
+			this.host = host;
+		}
+
+		public T getHost() {
+			return host;
+		}
+
+		public int getOutstanding() {
+			return outstanding.get();
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of latencies in milliseconds, using a fixed set of buckets so that recording a latency never
+ * allocates or locks. Percentiles are thus approximate - each is reported as the upper bound of the bucket that it
+ * falls in, except for the last bucket, which is reported as the maximum latency.
+ *
+ * @since 4.8.0
+ */
+public class LatencyHistogram {
+
+	private final static long[] BUCKET_UPPER_BOUNDS = new long[]{
+		1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000, 60000, Long.MAX_VALUE
+	};
+
+	private final LongAdder[] buckets = new LongAdder[BUCKET_UPPER_BOUNDS.length];
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	public LatencyHistogram() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	public void record(long latencyMillis) {
+		if (latencyMillis < 0) {
+			return;
+		}
+		int index = 0;
+		while (latencyMillis > BUCKET_UPPER_BOUNDS[index]) {
+			index++;
+		}
+		buckets[index].increment();
+		count.increment();
+		sum.add(latencyMillis);
+		max.accumulateAndGet(latencyMillis, Math::max);
+	}
+
+	public Snapshot getSnapshot() {
+		long[] counts = new long[buckets.length];
+		for (int i = 0; i < buckets.length; i++) {
+			counts[i] = buckets[i].sum();
+		}
+		return new Snapshot(counts, count.sum(), sum.sum(), max.get());
+	}
+
+	/**
+	 * Point-in-time view of a LatencyHistogram. As the histogram may be updated while a snapshot is being taken, the
+	 * values are not guaranteed to be exactly consistent with one another.
+	 */
+	public static class Snapshot {
+
+		private final long[] bucketCounts;
+		private final long count;
+		private final long sum;
+		private final long max;
+
+		Snapshot(long[] bucketCounts, long count, long sum, long max) {
+			this.bucketCounts = bucketCounts;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		/**
+		 * @param percentile between 0 and 100
+		 * @return the approximate latency at the given percentile, or zero if nothing has been recorded
+		 */
+		public long getPercentile(double percentile) {
+			long total = 0;
+			for (long c : bucketCounts) {
+				total += c;
+			}
+			if (total == 0) {
+				return 0;
+			}
+			long target = (long) Math.ceil(total * percentile / 100.0);
+			long seen = 0;
+			for (int i = 0; i < bucketCounts.length; i++) {
+				seen += bucketCounts[i];
+				if (seen >= target && bucketCounts[i] > 0) {
+					return Math.min(BUCKET_UPPER_BOUNDS[i], max);
+				}
+			}
+			return max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getSum() {
+			return sum;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public double getMean() {
+			return count > 0 ? (double) sum / count : 0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("[count: %d, mean: %.1f, p50: %d, p99: %d, max: %d]",
+				count, getMean(), getPercentile(50), getPercentile(99), max);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Selects the available host with the fewest batches that have been assigned to it but not yet written. A slow host
+ * thus receives fewer batches than a fast one. Ties are broken in round-robin order.
+ *
+ * @param <T>
+ * @since 4.8.0
+ */
+public class LeastOutstandingHostSelector<T> extends HostSelectorSupport<T> {
+
+	private final AtomicInteger counter = new AtomicInteger();
+
+	public LeastOutstandingHostSelector(List<T> hosts) {
+		super(hosts);
+	}
+
+	@Override
+	protected HostState<T> choose(List<HostState<T>> candidates) {
+		final int size = candidates.size();
+		final int start = Math.floorMod(counter.getAndIncrement(), size);
+		HostState<T> selected = null;
+		for (int i = 0; i < size; i++) {
+			HostState<T> state = candidates.get((start + i) % size);
+			if (selected == null || state.getOutstanding() < selected.getOutstanding()) {
+				selected = state;
+			}
+		}
+		return selected;
+	}
+}
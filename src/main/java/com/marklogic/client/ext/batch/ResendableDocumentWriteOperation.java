@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import com.marklogic.client.document.DocumentWriteOperation;
+
+/**
+ * A DocumentWriteOperation whose content may only be sent once - e.g. because it is an InputStream - but that can
+ * provide an equivalent operation whose content can be sent again, such as by reading a file on each attempt. A
+ * RetryPolicy uses the latter when a batch containing this operation may need to be retried.
+ *
+ * @since 4.8.0
+ */
+public interface ResendableDocumentWriteOperation extends DocumentWriteOperation {
+
+	/**
+	 * Only called before the content of this operation has been sent; this operation is not used afterwards, so any
+	 * resources held by its content should be released.
+	 *
+	 * @return an operation with the same URI, metadata and content as this one, but whose content can be sent again
+	 */
+	DocumentWriteOperation toResendableOperation();
+}
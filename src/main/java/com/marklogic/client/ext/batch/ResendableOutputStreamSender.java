@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import com.marklogic.client.io.OutputStreamSender;
+
+/**
+ * Marks an OutputStreamSender that produces the same content each time it is invoked - e.g. because it re-reads a file
+ * on each call - such that a RetryPolicy can send a batch containing it again after a failed attempt.
+ *
+ * @since 4.8.0
+ */
+@FunctionalInterface
+public interface ResendableOutputStreamSender extends OutputStreamSender {
+}
@@ -30,12 +30,17 @@ import java.util.List;
  * <p>
  * To customize what this does with every batch, you can set a new instance of BatchHandler. This class defaults to using
  * DefaultBatchHandler; it'll pass its instances of Format and ServerTransform to that class.
+ * <p>
+ * The DatabaseClient used for each batch is chosen by a HostSelector, which defaults to a RoundRobinHostSelector. A
+ * LeastOutstandingHostSelector or WeightedHostSelector can be set instead to account for hosts that are slower or
+ * have less capacity than others.
  */
 public class RestBatchWriter extends BatchWriterSupport {
 
 	private List<DatabaseClient> databaseClients;
-	private int clientIndex = 0;
+	private HostSelector<DatabaseClient> hostSelector;
 	private boolean releaseDatabaseClients = true;
+	private boolean databaseClientsReleased;
 
 	private Format contentFormat;
 	private ServerTransform serverTransform;
@@ -63,9 +68,11 @@ public class RestBatchWriter extends BatchWriterSupport {
 	@Override
 	public void write(List<? extends DocumentWriteOperation> items) {
 		initialize();
-		DatabaseClient client = determineDatabaseClientToUse();
-		Runnable runnable = buildRunnable(client, items);
-		executeRunnable(runnable, items);
+		forEachBatch(items, batch -> {
+			DatabaseClient client = determineDatabaseClientToUse();
+			Runnable runnable = buildRunnable(client, batch);
+			executeRunnable(getHostSelector(), client, runnable, batch);
+		});
 	}
 
 	@Override
@@ -79,29 +86,71 @@ public class RestBatchWriter extends BatchWriterSupport {
 		}
 	}
 
+	/**
+	 * @return a DatabaseClient acquired from the HostSelector; it is released once the batch has been written
+	 */
 	protected DatabaseClient determineDatabaseClientToUse() {
-		if (clientIndex >= databaseClients.size()) {
-			clientIndex = 0;
+		return getHostSelector().acquire();
+	}
+
+	@Override
+	protected String describeHost(Object host) {
+		if (host instanceof DatabaseClient) {
+			DatabaseClient client = (DatabaseClient) host;
+			return client.getHost() + ":" + client.getPort();
+		}
+		return super.describeHost(host);
+	}
+
+	/**
+	 * @return the HostSelector, which is created from the list of DatabaseClient objects if one has not been set
+	 * @since 4.8.0
+	 */
+	protected synchronized HostSelector<DatabaseClient> getHostSelector() {
+		if (hostSelector == null) {
+			hostSelector = new RoundRobinHostSelector<>(databaseClients);
 		}
-		DatabaseClient client = databaseClients.get(clientIndex);
-		clientIndex++;
-		return client;
+		return hostSelector;
+	}
+
+	/**
+	 * @param hostSelector chooses which of the DatabaseClient objects is used for each batch
+	 * @since 4.8.0
+	 */
+	public synchronized void setHostSelector(HostSelector<DatabaseClient> hostSelector) {
+		this.hostSelector = hostSelector;
 	}
 
 	protected Runnable buildRunnable(final DatabaseClient client, final List<? extends DocumentWriteOperation> items) {
 		return new Runnable() {
 			@Override
 			public void run() {
-				batchHandler.handleBatch(client, items);
+				writeWithRetry(items, batch -> batchHandler.handleBatch(client, batch));
 			}
 		};
 	}
 
+	/**
+	 * If shutdownTaskExecutorOnCompletion is false, the DatabaseClient objects are not released until close() is
+	 * called, as they may be used for subsequent writes.
+	 */
 	@Override
 	public void waitForCompletion() {
 		super.waitForCompletion();
+		if (isShutdownTaskExecutorOnCompletion()) {
+			releaseDatabaseClientsIfNecessary();
+		}
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		releaseDatabaseClientsIfNecessary();
+	}
 
-		if (databaseClients != null && releaseDatabaseClients) {
+	private synchronized void releaseDatabaseClientsIfNecessary() {
+		if (databaseClients != null && releaseDatabaseClients && !databaseClientsReleased) {
+			databaseClientsReleased = true;
 			logger.info("Releasing DatabaseClient instances...");
 			for (DatabaseClient client : databaseClients) {
 				client.release();
@@ -122,8 +171,13 @@ public class RestBatchWriter extends BatchWriterSupport {
 		return databaseClients;
 	}
 
+	/**
+	 * @return always zero, as the DatabaseClient for each batch is now chosen by a HostSelector
+	 * @deprecated since 4.8.0; see getHostSelector
+	 */
+	@Deprecated
 	protected int getClientIndex() {
-		return clientIndex;
+		return 0;
 	}
 
 	protected boolean isReleaseDatabaseClients() {
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import com.marklogic.client.FailedRequestException;
+import com.marklogic.client.MarkLogicIOException;
+import com.marklogic.client.document.DocumentWriteOperation;
+import com.marklogic.client.io.BytesHandle;
+import com.marklogic.client.io.FileHandle;
+import com.marklogic.client.io.OutputStreamHandle;
+import com.marklogic.client.io.StringHandle;
+import com.marklogic.client.io.marker.AbstractWriteHandle;
+import com.marklogic.xcc.exceptions.RequestException;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Defines how a BatchWriterSupport subclass retries a batch that could not be written. Transient errors - such as a
+ * connection being reset, a 502/503/504 response, or a MarkLogic lock timeout - cause the batch to be retried up to
+ * maxRetries times, waiting an exponentially increasing amount of time between attempts. If the error is not transient
+ * and bisectOnFailure is true, the batch is split in half and each half is written separately, recursively, so that
+ * only the documents that actually cannot be written are reported as failures.
+ * <p>
+ * A batch is only retried if the content of each of its documents can be sent again - i.e. the content is a String,
+ * byte array, File, or a ResendableOutputStreamSender, or the document is a ResendableDocumentWriteOperation. Content
+ * based on an InputStream cannot be sent again once it has been read.
+ *
+ * @since 4.8.0
+ */
+public class RetryPolicy {
+
+	private int maxRetries = 3;
+	private long initialBackoffMillis = 500;
+	private long maxBackoffMillis = 30000;
+	private double backoffMultiplier = 2.0;
+	private boolean bisectOnFailure = true;
+
+	private List<Integer> transientStatusCodes = new ArrayList<>(Arrays.asList(502, 503, 504));
+	private List<String> transientMessageCodes = new ArrayList<>(Arrays.asList("XDMP-LOCK", "XDMP-DEADLOCK"));
+
+	/**
+	 * @param ex
+	 * @return true if the given error, or any of its causes, indicates that writing the batch again may succeed
+	 */
+	public boolean isTransient(Throwable ex) {
+		Throwable t = ex;
+		while (t != null) {
+			if (t instanceof FailedRequestException) {
+				FailedRequestException fre = (FailedRequestException) t;
+				if (transientStatusCodes.contains(fre.getServerStatusCode()) || hasTransientMessageCode(fre.getServerMessageCode())) {
+					return true;
+				}
+			} else if (t instanceof RequestException && ((RequestException) t).isRetryable()) {
+				return true;
+			} else if (t instanceof MarkLogicIOException || (t instanceof IOException && !(t instanceof FileNotFoundException))) {
+				return true;
+			}
+			if (hasTransientMessageCode(t.getMessage())) {
+				return true;
+			}
+			t = t.getCause() != t ? t.getCause() : null;
+		}
+		return false;
+	}
+
+	private boolean hasTransientMessageCode(String message) {
+		if (message != null) {
+			for (String code : transientMessageCodes) {
+				if (message.contains(code)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param items
+	 * @return true if the content of every item can be sent to MarkLogic again after a failed attempt, either as-is or
+	 * via {@code toResendable}
+	 */
+	public boolean canBeResent(List<? extends DocumentWriteOperation> items) {
+		for (DocumentWriteOperation op : items) {
+			if (!isResendable(op.getContent()) && !(op instanceof ResendableDocumentWriteOperation)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Should only be called once canBeResent has returned true for the given items, and before any of them have been
+	 * sent.
+	 *
+	 * @param items
+	 * @return the given items, except that each ResendableDocumentWriteOperation whose content cannot be sent again is
+	 * replaced with its equivalent operation whose content can be
+	 */
+	public List<DocumentWriteOperation> toResendable(List<? extends DocumentWriteOperation> items) {
+		List<DocumentWriteOperation> resendable = new ArrayList<>(items.size());
+		for (DocumentWriteOperation op : items) {
+			if (!isResendable(op.getContent()) && op instanceof ResendableDocumentWriteOperation) {
+				resendable.add(((ResendableDocumentWriteOperation) op).toResendableOperation());
+			} else {
+				resendable.add(op);
+			}
+		}
+		return resendable;
+	}
+
+	private boolean isResendable(AbstractWriteHandle content) {
+		return content == null || content instanceof StringHandle || content instanceof BytesHandle
+			|| content instanceof FileHandle || isResendableOutputStreamHandle(content);
+	}
+
+	private boolean isResendableOutputStreamHandle(AbstractWriteHandle content) {
+		return content instanceof OutputStreamHandle && ((OutputStreamHandle) content).get() instanceof ResendableOutputStreamSender;
+	}
+
+	/**
+	 * @param retryNumber zero for the first retry
+	 * @return the number of milliseconds to wait before the given retry
+	 */
+	public long getBackoffMillis(int retryNumber) {
+		double backoff = initialBackoffMillis * Math.pow(backoffMultiplier, retryNumber);
+		return backoff > maxBackoffMillis ? maxBackoffMillis : (long) backoff;
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	public long getInitialBackoffMillis() {
+		return initialBackoffMillis;
+	}
+
+	public void setInitialBackoffMillis(long initialBackoffMillis) {
+		this.initialBackoffMillis = initialBackoffMillis;
+	}
+
+	public long getMaxBackoffMillis() {
+		return maxBackoffMillis;
+	}
+
+	public void setMaxBackoffMillis(long maxBackoffMillis) {
+		this.maxBackoffMillis = maxBackoffMillis;
+	}
+
+	public double getBackoffMultiplier() {
+		return backoffMultiplier;
+	}
+
+	public void setBackoffMultiplier(double backoffMultiplier) {
+		this.backoffMultiplier = backoffMultiplier;
+	}
+
+	public boolean isBisectOnFailure() {
+		return bisectOnFailure;
+	}
+
+	public void setBisectOnFailure(boolean bisectOnFailure) {
+		this.bisectOnFailure = bisectOnFailure;
+	}
+
+	public List<Integer> getTransientStatusCodes() {
+		return transientStatusCodes;
+	}
+
+	public void setTransientStatusCodes(List<Integer> transientStatusCodes) {
+		this.transientStatusCodes = transientStatusCodes;
+	}
+
+	public List<String> getTransientMessageCodes() {
+		return transientMessageCodes;
+	}
+
+	public void setTransientMessageCodes(List<String> transientMessageCodes) {
+		this.transientMessageCodes = transientMessageCodes;
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Selects each available host in turn. This is the default HostSelector for RestBatchWriter and XccBatchWriter.
+ *
+ * @param <T>
+ * @since 4.8.0
+ */
+public class RoundRobinHostSelector<T> extends HostSelectorSupport<T> {
+
+	private final AtomicInteger counter = new AtomicInteger();
+
+	public RoundRobinHostSelector(List<T> hosts) {
+		super(hosts);
+	}
+
+	@Override
+	protected HostState<T> choose(List<HostState<T>> candidates) {
+		return candidates.get(Math.floorMod(counter.getAndIncrement(), candidates.size()));
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Selects available hosts in proportion to their weights, using smooth weighted round-robin so that the batches for a
+ * heavily-weighted host are interleaved with those for other hosts instead of being sent in a burst.
+ *
+ * @param <T>
+ * @since 4.8.0
+ */
+public class WeightedHostSelector<T> extends HostSelectorSupport<T> {
+
+	private final Map<T, Integer> weights = new IdentityHashMap<>();
+	private final Map<T, Integer> currentWeights = new IdentityHashMap<>();
+
+	/**
+	 * @param hosts
+	 * @param weights the weight of each host, in the same order as the hosts; each weight must be at least 1. Each host
+	 *                may only be listed once; its weight determines how often it is selected.
+	 */
+	public WeightedHostSelector(List<T> hosts, List<Integer> weights) {
+		super(hosts);
+		if (weights == null || weights.size() != hosts.size()) {
+			throw new IllegalArgumentException("A weight must be provided for each host");
+		}
+		for (int i = 0; i < hosts.size(); i++) {
+			int weight = weights.get(i);
+			if (weight < 1) {
+				throw new IllegalArgumentException("Each weight must be at least 1; invalid weight: " + weight);
+			}
+			if (this.weights.containsKey(hosts.get(i))) {
+				throw new IllegalArgumentException("Each host may only be listed once; use its weight to select it more often; duplicate host: " + hosts.get(i));
+			}
+			this.weights.put(hosts.get(i), weight);
+			this.currentWeights.put(hosts.get(i), 0);
+		}
+	}
+
+	@Override
+	protected synchronized HostState<T> choose(List<HostState<T>> candidates) {
+		int total = 0;
+		HostState<T> selected = null;
+		int selectedWeight = 0;
+		for (HostState<T> state : candidates) {
+			int weight = weights.get(state.getHost());
+			total += weight;
+			int current = currentWeights.get(state.getHost()) + weight;
+			currentWeights.put(state.getHost(), current);
+			if (selected == null || current > selectedWeight) {
+				selected = state;
+				selectedWeight = current;
+			}
+		}
+		currentWeights.put(selected.getHost(), selectedWeight - total);
+		return selected;
+	}
+}
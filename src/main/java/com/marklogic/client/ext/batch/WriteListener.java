@@ -20,11 +20,21 @@ import com.marklogic.client.document.DocumentWriteOperation;
 import java.util.List;
 
 /**
- * Callback interface for when a list of DocumentWriteOperation instances cannot be written to MarkLogic.
+ * Callback interface for when a list of DocumentWriteOperation instances cannot be written to MarkLogic, and - as of
+ * 4.8.0 - for when a list has been written successfully.
  */
 public interface WriteListener {
 
 	void onWriteFailure(Throwable ex, List<? extends DocumentWriteOperation> items);
 
+	/**
+	 * Invoked on the thread that wrote the batch, so implementations should return quickly and must be thread-safe.
+	 *
+	 * @param result describes the batch, including how long it took to write it
+	 * @since 4.8.0
+	 */
+	default void onWriteSuccess(BatchWriteResult result) {
+	}
+
 	void afterCompletion();
 }
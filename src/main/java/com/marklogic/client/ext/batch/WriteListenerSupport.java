@@ -29,6 +29,10 @@ public class WriteListenerSupport implements WriteListener {
 	public void onWriteFailure(Throwable ex, List<? extends DocumentWriteOperation> items) {
 	}
 
+	@Override
+	public void onWriteSuccess(BatchWriteResult result) {
+	}
+
 	@Override
 	public void afterCompletion() {
 	}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import com.marklogic.client.ext.helper.LoggingObject;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects counts and latencies for the batches written by a BatchWriter, both in total and per host, along with
+ * latency histograms for each phase of writing a batch. All methods are thread-safe and recording does not lock.
+ * Values can be read via getSnapshot, and can optionally be exposed via JMX by calling registerMBean.
+ *
+ * @since 4.8.0
+ */
+public class WriteMetrics extends LoggingObject implements WriteMetricsMBean {
+
+	/**
+	 * The time between a batch being submitted and a thread starting to write it.
+	 */
+	public final static String PHASE_QUEUE = "queue";
+
+	/**
+	 * The time taken to write a batch, including any retries.
+	 */
+	public final static String PHASE_WRITE = "write";
+
+	private final static String UNKNOWN_HOST = "unknown";
+
+	private volatile Counters totals = new Counters();
+	private volatile Map<String, Counters> hostCounters = new ConcurrentHashMap<>();
+	private volatile LatencyHistogram queueLatency = new LatencyHistogram();
+
+	private ObjectName registeredName;
+
+	public void recordSuccess(BatchWriteResult result) {
+		totals.recordSuccess(result);
+		getHostCounters(result.getHost()).recordSuccess(result);
+		queueLatency.record(result.getQueueMillis());
+	}
+
+	/**
+	 * @param host          describes the host the batch was written to; may be null
+	 * @param documentCount the number of documents in the batch
+	 * @param retryCount    the number of times the batch was retried before failing
+	 */
+	public void recordFailure(String host, int documentCount, int retryCount) {
+		totals.recordFailure(documentCount, retryCount);
+		getHostCounters(host).recordFailure(documentCount, retryCount);
+	}
+
+	private Counters getHostCounters(String host) {
+		return hostCounters.computeIfAbsent(host != null ? host : UNKNOWN_HOST, key -> new Counters());
+	}
+
+	public WriteMetricsSnapshot getSnapshot() {
+		Map<String, WriteMetricsSnapshot.Counts> hosts = new LinkedHashMap<>();
+		hostCounters.forEach((host, counters) -> hosts.put(host, counters.toCounts()));
+		Map<String, LatencyHistogram.Snapshot> phases = new LinkedHashMap<>();
+		Counters currentTotals = totals;
+		phases.put(PHASE_QUEUE, queueLatency.getSnapshot());
+		phases.put(PHASE_WRITE, currentTotals.writeLatency.getSnapshot());
+		return new WriteMetricsSnapshot(currentTotals.toCounts(), hosts, phases);
+	}
+
+	/**
+	 * Discards all values recorded so far.
+	 */
+	@Override
+	public void reset() {
+		totals = new Counters();
+		hostCounters = new ConcurrentHashMap<>();
+		queueLatency = new LatencyHistogram();
+	}
+
+	/**
+	 * Registers this object with the platform MBeanServer.
+	 *
+	 * @param objectName e.g. "com.marklogic.client.ext:type=WriteMetrics,name=myLoad"
+	 */
+	public synchronized void registerMBean(String objectName) {
+		try {
+			ObjectName name = new ObjectName(objectName);
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+			this.registeredName = name;
+		} catch (Exception e) {
+			throw new RuntimeException("Unable to register WriteMetrics MBean with name: " + objectName + "; cause: " + e.getMessage(), e);
+		}
+	}
+
+	public synchronized void unregisterMBean() {
+		if (registeredName != null) {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			try {
+				if (server.isRegistered(registeredName)) {
+					server.unregisterMBean(registeredName);
+				}
+			} catch (Exception e) {
+				logger.warn("Unable to unregister WriteMetrics MBean; cause: " + e.getMessage());
+			}
+			registeredName = null;
+		}
+	}
+
+	@Override
+	public long getBatchesWritten() {
+		return totals.batchesWritten.sum();
+	}
+
+	@Override
+	public long getBatchesFailed() {
+		return totals.batchesFailed.sum();
+	}
+
+	@Override
+	public long getDocumentsWritten() {
+		return totals.documentsWritten.sum();
+	}
+
+	@Override
+	public long getDocumentsFailed() {
+		return totals.documentsFailed.sum();
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return totals.bytesWritten.sum();
+	}
+
+	@Override
+	public long getRetries() {
+		return totals.retries.sum();
+	}
+
+	@Override
+	public double getMeanWriteLatencyMillis() {
+		return totals.writeLatency.getSnapshot().getMean();
+	}
+
+	@Override
+	public long getWriteLatency99thPercentileMillis() {
+		return totals.writeLatency.getSnapshot().getPercentile(99);
+	}
+
+	@Override
+	public long getMaxWriteLatencyMillis() {
+		return totals.writeLatency.getSnapshot().getMax();
+	}
+
+	@Override
+	public double getMeanQueueMillis() {
+		return queueLatency.getSnapshot().getMean();
+	}
+
+	private static class Counters {
+		final LongAdder batchesWritten = new LongAdder();
+		final LongAdder batchesFailed = new LongAdder();
+		final LongAdder documentsWritten = new LongAdder();
+		final LongAdder documentsFailed = new LongAdder();
+		final LongAdder bytesWritten = new LongAdder();
+		final LongAdder retries = new LongAdder();
+		final LatencyHistogram writeLatency = new LatencyHistogram();
+
+		void recordSuccess(BatchWriteResult result) {
+			batchesWritten.increment();
+			documentsWritten.add(result.getItems() != null ? result.getItems().size() : 0);
+			bytesWritten.add(result.getByteCount());
+			retries.add(result.getRetryCount());
+			writeLatency.record(result.getLatencyMillis());
+		}
+
+		void recordFailure(int documentCount, int retryCount) {
+			batchesFailed.increment();
+			documentsFailed.add(documentCount);
+			retries.add(retryCount);
+		}
+
+		WriteMetricsSnapshot.Counts toCounts() {
+			return new WriteMetricsSnapshot.Counts(batchesWritten.sum(), batchesFailed.sum(), documentsWritten.sum(),
+				documentsFailed.sum(), bytesWritten.sum(), retries.sum(), writeLatency.getSnapshot());
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import java.util.Map;
+
+/**
+ * Point-in-time view of the values captured by WriteMetrics.
+ *
+ * @since 4.8.0
+ */
+public class WriteMetricsSnapshot {
+
+	private final Counts totals;
+	private final Map<String, Counts> hosts;
+	private final Map<String, LatencyHistogram.Snapshot> phases;
+
+	WriteMetricsSnapshot(Counts totals, Map<String, Counts> hosts, Map<String, LatencyHistogram.Snapshot> phases) {
+		this.totals = totals;
+		this.hosts = hosts;
+		this.phases = phases;
+	}
+
+	/**
+	 * @return counts across all hosts
+	 */
+	public Counts getTotals() {
+		return totals;
+	}
+
+	/**
+	 * @return counts for each host, keyed on the description of the host
+	 */
+	public Map<String, Counts> getHosts() {
+		return hosts;
+	}
+
+	/**
+	 * @return latencies for each phase of writing a batch - see WriteMetrics.PHASE_QUEUE and WriteMetrics.PHASE_WRITE
+	 */
+	public Map<String, LatencyHistogram.Snapshot> getPhases() {
+		return phases;
+	}
+
+	@Override
+	public String toString() {
+		return "[totals: " + totals + ", hosts: " + hosts + ", phases: " + phases + "]";
+	}
+
+	/**
+	 * Counts and write latencies for either a single host or all hosts.
+	 */
+	public static class Counts {
+
+		private final long batchesWritten;
+		private final long batchesFailed;
+		private final long documentsWritten;
+		private final long documentsFailed;
+		private final long bytesWritten;
+		private final long retries;
+		private final LatencyHistogram.Snapshot writeLatency;
+
+		Counts(long batchesWritten, long batchesFailed, long documentsWritten, long documentsFailed,
+		       long bytesWritten, long retries, LatencyHistogram.Snapshot writeLatency) {
+			this.batchesWritten = batchesWritten;
+			this.batchesFailed = batchesFailed;
+			this.documentsWritten = documentsWritten;
+			this.documentsFailed = documentsFailed;
+			this.bytesWritten = bytesWritten;
+			this.retries = retries;
+			this.writeLatency = writeLatency;
+		}
+
+		public long getBatchesWritten() {
+			return batchesWritten;
+		}
+
+		public long getBatchesFailed() {
+			return batchesFailed;
+		}
+
+		public long getDocumentsWritten() {
+			return documentsWritten;
+		}
+
+		public long getDocumentsFailed() {
+			return documentsFailed;
+		}
+
+		public long getBytesWritten() {
+			return bytesWritten;
+		}
+
+		public long getRetries() {
+			return retries;
+		}
+
+		public LatencyHistogram.Snapshot getWriteLatency() {
+			return writeLatency;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("[batches written: %d, batches failed: %d, documents written: %d, documents failed: %d, bytes written: %d, retries: %d, write latency: %s]",
+				batchesWritten, batchesFailed, documentsWritten, documentsFailed, bytesWritten, retries, writeLatency);
+		}
+	}
+}
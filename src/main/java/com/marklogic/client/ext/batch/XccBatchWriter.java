@@ -28,11 +28,13 @@ import java.util.List;
 /**
  * XCC implementation for batched writes. Most important thing here is we depend on an instance of
  * DocumentWriteOperationAdapter to adapt a DocumentWriteOperation instance into a Content instance.
+ * <p>
+ * The ContentSource used for each batch is chosen by a HostSelector, which defaults to a RoundRobinHostSelector.
  */
 public class XccBatchWriter extends BatchWriterSupport {
 
 	private List<ContentSource> contentSources;
-	private int contentSourceIndex = 0;
+	private HostSelector<ContentSource> hostSelector;
 	private DocumentWriteOperationAdapter documentWriteOperationAdapter;
 
 	public XccBatchWriter(List<ContentSource> contentSources) {
@@ -42,47 +44,70 @@ public class XccBatchWriter extends BatchWriterSupport {
 
 	@Override
 	public void write(final List<? extends DocumentWriteOperation> items) {
-		ContentSource contentSource = determineContentSourceToUse();
-		Runnable runnable = buildRunnable(contentSource, items);
-		executeRunnable(runnable, items);
+		forEachBatch(items, batch -> {
+			ContentSource contentSource = determineContentSourceToUse();
+			Runnable runnable = buildRunnable(contentSource, batch);
+			executeRunnable(getHostSelector(), contentSource, runnable, batch);
+		});
 	}
 
+	/**
+	 * @return a ContentSource acquired from the HostSelector; it is released once the batch has been written
+	 */
 	protected ContentSource determineContentSourceToUse() {
-		if (contentSourceIndex >= contentSources.size()) {
-			contentSourceIndex = 0;
+		return getHostSelector().acquire();
+	}
+
+	/**
+	 * @return the HostSelector, which is created from the list of ContentSource objects if one has not been set
+	 * @since 4.8.0
+	 */
+	protected synchronized HostSelector<ContentSource> getHostSelector() {
+		if (hostSelector == null) {
+			hostSelector = new RoundRobinHostSelector<>(contentSources);
 		}
-		ContentSource contentSource = contentSources.get(contentSourceIndex);
-		contentSourceIndex++;
-		return contentSource;
+		return hostSelector;
+	}
+
+	/**
+	 * @param hostSelector chooses which of the ContentSource objects is used for each batch
+	 * @since 4.8.0
+	 */
+	public synchronized void setHostSelector(HostSelector<ContentSource> hostSelector) {
+		this.hostSelector = hostSelector;
 	}
 
 	protected Runnable buildRunnable(final ContentSource contentSource, final List<? extends DocumentWriteOperation> items) {
 		return new Runnable() {
 			@Override
 			public void run() {
-				Session session = contentSource.newSession();
-				int count = items.size();
-				Content[] array = new Content[count];
-				for (int i = 0; i < count; i++) {
-					array[i] = documentWriteOperationAdapter.adapt(items.get(i));
-				}
-				if (logger.isDebugEnabled()) {
-					logger.debug("Writing " + count + " documents to MarkLogic");
-				}
-				try {
-					session.insertContent(array);
-					if (logger.isInfoEnabled()) {
-						logger.info("Wrote " + count + " documents to MarkLogic");
-					}
-				} catch (RequestException e) {
-					throw new RuntimeException("Unable to insert content: " + e.getMessage(), e);
-				} finally {
-					session.close();
-				}
+				writeWithRetry(items, batch -> insertContent(contentSource, batch));
 			}
 		};
 	}
 
+	protected void insertContent(ContentSource contentSource, List<? extends DocumentWriteOperation> items) {
+		Session session = contentSource.newSession();
+		int count = items.size();
+		Content[] array = new Content[count];
+		for (int i = 0; i < count; i++) {
+			array[i] = documentWriteOperationAdapter.adapt(items.get(i));
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Writing " + count + " documents to MarkLogic");
+		}
+		try {
+			session.insertContent(array);
+			if (logger.isInfoEnabled()) {
+				logger.info("Wrote " + count + " documents to MarkLogic");
+			}
+		} catch (RequestException e) {
+			throw new RuntimeException("Unable to insert content: " + e.getMessage(), e);
+		} finally {
+			session.close();
+		}
+	}
+
 	public void setDocumentWriteOperationAdapter(DocumentWriteOperationAdapter documentWriteOperationAdapter) {
 		this.documentWriteOperationAdapter = documentWriteOperationAdapter;
 	}
@@ -20,6 +20,7 @@ import org.springframework.util.ClassUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiFunction;
 
 /**
  * Defines some generic features for the DefaultDocumentFileReader and JarDocumentFileReader.
@@ -63,12 +64,26 @@ public abstract class AbstractDocumentFileReader extends LoggingObject {
 	 * @return the result of processing the given DocumentFile; may return null
 	 */
 	protected DocumentFile processDocumentFile(DocumentFile documentFile) {
+		return processDocumentFile(documentFile, (processor, file) -> processor.processDocumentFile(file));
+	}
+
+	/**
+	 * Applies each DocumentFileProcessor via the given function, which allows a subclass to control how a processor is
+	 * applied - e.g. by passing state to it that would otherwise be held by the processor.
+	 *
+	 * @param documentFile
+	 * @param processorFunction
+	 * @return the result of processing the given DocumentFile; may return null
+	 * @since 4.8.0
+	 */
+	protected DocumentFile processDocumentFile(DocumentFile documentFile,
+	                                           BiFunction<DocumentFileProcessor, DocumentFile, DocumentFile> processorFunction) {
 		for (DocumentFileProcessor processor : documentFileProcessors) {
 			try {
 				if (logger.isTraceEnabled()) {
 					logger.trace(String.format("Applying processor %s to DocumentFile with URI: %s", processor.getClass().getName(), documentFile.getUri()));
 				}
-				documentFile = processor.processDocumentFile(documentFile);
+				documentFile = processorFunction.apply(processor, documentFile);
 			} catch (Exception e) {
 				final String message = "Error while processing file: " + documentFile.getFile() + "; cause: " + e.getMessage();
 				if (catchProcessingError) {
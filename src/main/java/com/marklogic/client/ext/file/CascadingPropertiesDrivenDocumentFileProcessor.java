@@ -35,7 +35,7 @@ import java.util.Stack;
  */
 abstract class CascadingPropertiesDrivenDocumentFileProcessor extends PropertiesDrivenDocumentFileProcessor implements FileVisitor<Path> {
 
-	final private Stack<Properties> propertiesStack = new Stack<>();
+	final private Stack<PropertyPatterns> propertiesStack = new Stack<>();
 	private boolean cascadingEnabled = false;
 
 	protected CascadingPropertiesDrivenDocumentFileProcessor(String propertiesFilename) {
@@ -49,34 +49,49 @@ abstract class CascadingPropertiesDrivenDocumentFileProcessor extends Properties
 		if (logger.isDebugEnabled()) {
 			logger.debug(format("Visiting directory: %s", dir.toFile().getAbsolutePath()));
 		}
+		this.setPropertyPatterns(getPropertyPatternsForDirectory(dir, propertiesStack.isEmpty() ? null : propertiesStack.peek()));
+		propertiesStack.push(this.getPropertyPatterns());
+		return FileVisitResult.CONTINUE;
+	}
+
+	/**
+	 * Determines the property patterns that apply to the files in the given directory, without modifying any state in
+	 * this object. This allows for directories to be visited by multiple threads, with each thread keeping track of
+	 * the patterns for the directory it is visiting. Patterns inherited from a parent directory are reused instead of
+	 * being compiled again.
+	 *
+	 * @param dir
+	 * @param parentPatterns the patterns for the parent directory; null if the directory is the first one visited
+	 * @return the patterns from the properties file in the directory if it exists; else, the parent patterns if
+	 * cascading is enabled; else, empty patterns
+	 * @throws IOException
+	 * @since 4.8.0
+	 */
+	PropertyPatterns getPropertyPatternsForDirectory(Path dir, PropertyPatterns parentPatterns) throws IOException {
 		File propertiesFile = new File(dir.toFile(), this.getPropertiesFilename());
 		if (propertiesFile.exists()) {
 			if (logger.isDebugEnabled()) {
 				logger.debug(format("Loading properties from file: %s", propertiesFile.getAbsolutePath()));
 			}
-			this.loadProperties(propertiesFile);
-		} else {
-			if (cascadingEnabled && !propertiesStack.isEmpty()) {
-				if (logger.isDebugEnabled()) {
-					logger.debug("No properties file, and cascading is enabled, so using properties from top of stack.");
-				}
-				this.setProperties(propertiesStack.peek());
-			} else {
-				if (logger.isDebugEnabled()) {
-					logger.debug("No properties file, or cascading is disabled, so using empty properties.");
-				}
-				this.setProperties(new Properties());
+			return new PropertyPatterns(this.readProperties(propertiesFile));
+		}
+		if (cascadingEnabled && parentPatterns != null) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("No properties file, and cascading is enabled, so using properties from parent directory.");
 			}
+			return parentPatterns;
 		}
-		propertiesStack.push(this.getProperties());
-		return FileVisitResult.CONTINUE;
+		if (logger.isDebugEnabled()) {
+			logger.debug("No properties file, or cascading is disabled, so using empty properties.");
+		}
+		return new PropertyPatterns(new Properties());
 	}
 
 	@Override
 	public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
 		propertiesStack.pop();
 		if (!propertiesStack.isEmpty()) {
-			this.setProperties(propertiesStack.peek());
+			this.setPropertyPatterns(propertiesStack.peek());
 		}
 		return FileVisitResult.CONTINUE;
 	}
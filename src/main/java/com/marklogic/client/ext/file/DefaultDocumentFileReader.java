@@ -28,6 +28,7 @@ import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Non-threadsafe implementation that implements FileVisitor as a way of descending one or more file paths.
@@ -36,7 +37,7 @@ public class DefaultDocumentFileReader extends AbstractDocumentFileReader implem
 
 	private Path currentRootPath;
 	private List<FileFilter> fileFilters;
-	private List<DocumentFile> documentFiles;
+	private Consumer<DocumentFile> documentFileConsumer;
 	private String uriPrefix = "/";
 
 	// As of 4.6.0, these no longer need to be class fields but are being kept for backwards compatibility.
@@ -60,26 +61,44 @@ public class DefaultDocumentFileReader extends AbstractDocumentFileReader implem
 	 * @return list of DocumentFile objects in the given paths
 	 */
 	public List<DocumentFile> readDocumentFiles(String... paths) {
-		documentFiles = new ArrayList<>();
-		for (String path : paths) {
-			if (logger.isDebugEnabled()) {
-				logger.debug(format("Finding files at path: %s", path));
-			}
-			Path p = constructPath(path);
-			if (p != null) {
-				this.currentRootPath = p;
-				try {
-					Files.walkFileTree(this.currentRootPath, this);
-				} catch (IOException ie) {
-					throw new RuntimeException(format("IO error while walking file tree at path: %s", path), ie);
+		List<DocumentFile> documentFiles = new ArrayList<>();
+		readDocumentFiles(documentFiles::add, paths);
+		return documentFiles;
+	}
+
+	/**
+	 * Walk the file tree at each of the given paths, passing each processed DocumentFile to the given consumer as
+	 * soon as it has been visited.
+	 *
+	 * @param consumer
+	 * @param paths
+	 * @since 4.8.0
+	 */
+	@Override
+	public void readDocumentFiles(Consumer<DocumentFile> consumer, String... paths) {
+		this.documentFileConsumer = consumer;
+		try {
+			for (String path : paths) {
+				if (logger.isDebugEnabled()) {
+					logger.debug(format("Finding files at path: %s", path));
 				}
-			} else {
-				if (logger.isInfoEnabled()) {
-					logger.info("Path does not exist, so not reading files from it: " + path);
+				Path p = constructPath(path);
+				if (p != null) {
+					this.currentRootPath = p;
+					try {
+						Files.walkFileTree(this.currentRootPath, this);
+					} catch (IOException ie) {
+						throw new RuntimeException(format("IO error while walking file tree at path: %s", path), ie);
+					}
+				} else {
+					if (logger.isInfoEnabled()) {
+						logger.info("Path does not exist, so not reading files from it: " + path);
+					}
 				}
 			}
+		} finally {
+			this.documentFileConsumer = null;
 		}
-		return documentFiles;
 	}
 
 	/**
@@ -151,7 +170,7 @@ public class DefaultDocumentFileReader extends AbstractDocumentFileReader implem
 			DocumentFile documentFile = buildDocumentFile(path, currentRootPath);
 			documentFile = processDocumentFile(documentFile);
 			if (documentFile != null) {
-				this.documentFiles.add(documentFile);
+				this.documentFileConsumer.accept(documentFile);
 			}
 		}
 		return FileVisitResult.CONTINUE;
@@ -21,7 +21,9 @@ import org.springframework.core.io.Resource;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Default impl. Feel free to enhance this, subclass it, or roll your own.
@@ -33,40 +35,43 @@ public class DefaultDocumentFormatGetter implements FormatGetter {
 	public final static String[] DEFAULT_XML_EXTENSIONS = new String[]{"xml", "xsl", "xslt", "xsd", "tdex"};
 	public final static String[] DEFAULT_JSON_EXTENSIONS = new String[]{"json", "tdej"};
 
-	private List<String> binaryExtensions = new ArrayList<>();
-	private List<String> xmlExtensions = new ArrayList<>();
-	private List<String> jsonExtensions = new ArrayList<>();
+	private List<String> binaryExtensions;
+	private List<String> xmlExtensions;
+	private List<String> jsonExtensions;
+
+	private volatile ExtensionIndex extensionIndex;
 
 	public DefaultDocumentFormatGetter() {
-		binaryExtensions.addAll(Arrays.asList(DEFAULT_BINARY_EXTENSIONS));
-		xmlExtensions.addAll(Arrays.asList(DEFAULT_XML_EXTENSIONS));
-		jsonExtensions.addAll(Arrays.asList(DEFAULT_JSON_EXTENSIONS));
+		binaryExtensions = new ArrayList<>(Arrays.asList(DEFAULT_BINARY_EXTENSIONS));
+		xmlExtensions = new ArrayList<>(Arrays.asList(DEFAULT_XML_EXTENSIONS));
+		jsonExtensions = new ArrayList<>(Arrays.asList(DEFAULT_JSON_EXTENSIONS));
 	}
 
+	/**
+	 * A file is considered to be XML if its name ends with any of the XML extensions; else JSON if it ends with any of
+	 * the JSON extensions; else binary if it ends with any of the binary extensions; else text.
+	 * <p>
+	 * As of 4.8.0, the extensions are indexed in a trie of reversed extensions, such that the format is determined by
+	 * a single pass over the end of the filename instead of by checking each extension. The index is rebuilt whenever
+	 * one of the lists of extensions is replaced or its contents change, which is detected by comparing each list with
+	 * the copy of it that the index was built from.
+	 * </p>
+	 *
+	 * @param resource
+	 * @return
+	 */
 	@Override
 	public Format getFormat(Resource resource) {
-		String name = resource.getFilename();
-
-		for (String ext : xmlExtensions) {
-			if (name.endsWith(ext)) {
-				return Format.XML;
-			}
-		}
-
-		for (String ext : jsonExtensions) {
-			if (name.endsWith(ext)) {
-				return Format.JSON;
-			}
-		}
+		return getExtensionIndex().getFormat(resource.getFilename());
+	}
 
-		boolean isBinary = false;
-		for (String ext : binaryExtensions) {
-			if (name.endsWith(ext)) {
-				isBinary = true;
-				break;
-			}
+	private ExtensionIndex getExtensionIndex() {
+		ExtensionIndex index = this.extensionIndex;
+		if (index == null || !index.isCurrent(xmlExtensions, jsonExtensions, binaryExtensions)) {
+			index = new ExtensionIndex(xmlExtensions, jsonExtensions, binaryExtensions);
+			this.extensionIndex = index;
 		}
-		return isBinary ? Format.BINARY : Format.TEXT;
+		return index;
 	}
 
 	public List<String> getBinaryExtensions() {
@@ -92,4 +97,87 @@ public class DefaultDocumentFormatGetter implements FormatGetter {
 	public void setJsonExtensions(List<String> jsonExtensions) {
 		this.jsonExtensions = jsonExtensions;
 	}
+
+	/**
+	 * Immutable trie of reversed extensions; each node records which formats have an extension ending at that node.
+	 * Because a filename "ends with" an extension exactly when the extension is a prefix of the reversed filename,
+	 * walking the trie from the last character of a filename finds every matching extension.
+	 */
+	private static class ExtensionIndex {
+
+		private final static int XML = 4;
+		private final static int JSON = 2;
+		private final static int BINARY = 1;
+
+		private final List<String> xmlExtensions;
+		private final List<String> jsonExtensions;
+		private final List<String> binaryExtensions;
+		private final List<String> indexedXmlExtensions;
+		private final List<String> indexedJsonExtensions;
+		private final List<String> indexedBinaryExtensions;
+		private final Node root = new Node();
+
+		ExtensionIndex(List<String> xmlExtensions, List<String> jsonExtensions, List<String> binaryExtensions) {
+			this.xmlExtensions = xmlExtensions;
+			this.jsonExtensions = jsonExtensions;
+			this.binaryExtensions = binaryExtensions;
+			this.indexedXmlExtensions = copyOf(xmlExtensions);
+			this.indexedJsonExtensions = copyOf(jsonExtensions);
+			this.indexedBinaryExtensions = copyOf(binaryExtensions);
+			addExtensions(indexedXmlExtensions, XML);
+			addExtensions(indexedJsonExtensions, JSON);
+			addExtensions(indexedBinaryExtensions, BINARY);
+		}
+
+		/**
+		 * The copies hold the same String instances as the lists, so comparing them is cheap when nothing has changed.
+		 */
+		boolean isCurrent(List<String> xmlExtensions, List<String> jsonExtensions, List<String> binaryExtensions) {
+			return isUnchanged(this.xmlExtensions, indexedXmlExtensions, xmlExtensions)
+				&& isUnchanged(this.jsonExtensions, indexedJsonExtensions, jsonExtensions)
+				&& isUnchanged(this.binaryExtensions, indexedBinaryExtensions, binaryExtensions);
+		}
+
+		private static boolean isUnchanged(List<String> list, List<String> indexedCopy, List<String> currentList) {
+			return list == currentList && (currentList != null ? indexedCopy.equals(currentList) : indexedCopy.isEmpty());
+		}
+
+		private static List<String> copyOf(List<String> extensions) {
+			return extensions != null ? new ArrayList<>(extensions) : new ArrayList<>();
+		}
+
+		Format getFormat(String name) {
+			int formats = root.formats;
+			Node node = root;
+			for (int i = name.length() - 1; i >= 0 && (formats & XML) == 0; i--) {
+				node = node.children.get(name.charAt(i));
+				if (node == null) {
+					break;
+				}
+				formats |= node.formats;
+			}
+			if ((formats & XML) != 0) {
+				return Format.XML;
+			}
+			if ((formats & JSON) != 0) {
+				return Format.JSON;
+			}
+			return (formats & BINARY) != 0 ? Format.BINARY : Format.TEXT;
+		}
+
+		private void addExtensions(List<String> extensions, int format) {
+			for (String ext : extensions) {
+				Node node = root;
+				for (int i = ext.length() - 1; i >= 0; i--) {
+					node = node.children.computeIfAbsent(ext.charAt(i), c -> new Node());
+				}
+				node.formats |= format;
+			}
+		}
+
+		private static class Node {
+			private final Map<Character, Node> children = new HashMap<>();
+			private int formats;
+		}
+	}
 }
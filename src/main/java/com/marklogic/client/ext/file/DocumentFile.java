@@ -16,12 +16,17 @@
 package com.marklogic.client.ext.file;
 
 import com.marklogic.client.document.DocumentWriteOperation;
+import com.marklogic.client.ext.batch.ResendableDocumentWriteOperation;
 import com.marklogic.client.impl.DocumentWriteOperationImpl;
 import com.marklogic.client.io.DocumentMetadataHandle;
+import com.marklogic.client.io.FileHandle;
 import com.marklogic.client.io.Format;
 import com.marklogic.client.io.InputStreamHandle;
+import com.marklogic.client.io.OutputStreamHandle;
+import com.marklogic.client.io.OutputStreamSender;
 import com.marklogic.client.io.StringHandle;
 import com.marklogic.client.io.marker.AbstractWriteHandle;
+import com.marklogic.client.io.marker.DocumentMetadataWriteHandle;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 
@@ -45,6 +50,7 @@ public class DocumentFile {
 	private DocumentMetadataHandle documentMetadata;
 	private String temporalDocumentURI;
 	private String modifiedContent;
+	private OutputStreamSender modifiedContentSender;
 	private Path rootPath;
 
 	public DocumentFile(String uri, Resource resource) {
@@ -61,7 +67,17 @@ public class DocumentFile {
 		this.documentMetadata = new DocumentMetadataHandle();
 	}
 
+	/**
+	 * As of 4.8.0, the operation for a file whose content has not been modified is a
+	 * ResendableDocumentWriteOperation, so that a RetryPolicy can send its content again.
+	 *
+	 * @return
+	 */
 	public DocumentWriteOperation toDocumentWriteOperation() {
+		if (modifiedContent == null && modifiedContentSender == null && resource != null && resource.isFile()) {
+			return new FileDocumentWriteOperation(getOperationType(), uri, getMetadata(), getContent(),
+				getTemporalDocumentURI(), getFile(), format);
+		}
 		return new DocumentWriteOperationImpl(
 			getOperationType(),
 			uri,
@@ -88,15 +104,36 @@ public class DocumentFile {
 			StringHandle h = new StringHandle(modifiedContent);
 			return format != null ? h.withFormat(format) : h;
 		}
+		if (modifiedContentSender != null) {
+			OutputStreamHandle h = new OutputStreamHandle(modifiedContentSender);
+			return format != null ? h.withFormat(format) : h;
+		}
 		InputStreamHandle h = null;
 		try {
 			h = new InputStreamHandle(resource.getInputStream());
+			// Allows for a BatchWriter to account for the size of the content without reading the stream
+			if (resource.isFile()) {
+				h.setByteLength(resource.contentLength());
+			}
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 		return format != null ? h.withFormat(format) : h;
 	}
 
+	/**
+	 * @return the length of the content that will be written for this file, without reading the content; the length of
+	 * modified content is the number of characters in it, the length of content written by a modified content sender
+	 * is estimated to be the length of the file, and the length of a resource that is not a file is zero
+	 * @since 4.8.0
+	 */
+	public long getContentLength() {
+		if (modifiedContent != null) {
+			return modifiedContent.length();
+		}
+		return resource != null && resource.isFile() ? getFile().length() : 0;
+	}
+
 	public String getTemporalDocumentURI() {
 		return temporalDocumentURI;
 	}
@@ -160,6 +197,25 @@ public class DocumentFile {
 		return modifiedContent;
 	}
 
+	/**
+	 * Allows for modified content to be written when this file's DocumentWriteOperation is sent to MarkLogic, as
+	 * opposed to holding the modified content in memory. Ignored if modifiedContent is set.
+	 *
+	 * @param modifiedContentSender
+	 * @since 4.8.0
+	 */
+	public void setModifiedContentSender(OutputStreamSender modifiedContentSender) {
+		this.modifiedContentSender = modifiedContentSender;
+	}
+
+	/**
+	 * @return
+	 * @since 4.8.0
+	 */
+	public OutputStreamSender getModifiedContentSender() {
+		return modifiedContentSender;
+	}
+
 	public Path getRootPath() {
 		return rootPath;
 	}
@@ -172,4 +228,36 @@ public class DocumentFile {
 	public void setRootPath(Path rootPath) {
 		this.rootPath = rootPath;
 	}
+
+	/**
+	 * Sends the content of a file via the InputStreamHandle returned by getContent, and provides an equivalent operation
+	 * based on a FileHandle for when a batch containing it may need to be retried.
+	 */
+	private static class FileDocumentWriteOperation extends DocumentWriteOperationImpl implements ResendableDocumentWriteOperation {
+
+		private final File file;
+		private final Format format;
+
+		FileDocumentWriteOperation(OperationType operationType, String uri, DocumentMetadataWriteHandle metadata,
+		                           AbstractWriteHandle content, String temporalDocumentURI, File file, Format format) {
+			super(operationType, uri, metadata, content, temporalDocumentURI);
+			this.file = file;
+			this.format = format;
+		}
+
+		@Override
+		public DocumentWriteOperation toResendableOperation() {
+			AbstractWriteHandle content = getContent();
+			if (content instanceof InputStreamHandle && ((InputStreamHandle) content).get() != null) {
+				try {
+					((InputStreamHandle) content).get().close();
+				} catch (IOException e) {
+					// Nothing has been read from the stream, so there is nothing to recover
+				}
+			}
+			FileHandle h = new FileHandle(file);
+			return new DocumentWriteOperationImpl(getOperationType(), getUri(), getMetadata(),
+				format != null ? h.withFormat(format) : h, getTemporalDocumentURI());
+		}
+	}
 }
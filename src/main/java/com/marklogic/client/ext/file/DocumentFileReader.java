@@ -16,6 +16,7 @@
 package com.marklogic.client.ext.file;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Strategy interface for determining which files to load into MarkLogic, with those files being captured as a List of
@@ -29,4 +30,18 @@ import java.util.List;
 public interface DocumentFileReader {
 
 	List<DocumentFile> readDocumentFiles(String... paths);
+
+	/**
+	 * Read files from the given paths, handing each DocumentFile to the given consumer as soon as it has been read
+	 * and processed. This allows a client to start writing documents before every path has been read. The default
+	 * implementation simply reads all of the files first; implementations that walk a file tree are expected to
+	 * override this so that no list of DocumentFile objects needs to be retained.
+	 *
+	 * @param consumer
+	 * @param paths
+	 * @since 4.8.0
+	 */
+	default void readDocumentFiles(Consumer<DocumentFile> consumer, String... paths) {
+		readDocumentFiles(paths).forEach(consumer);
+	}
 }
@@ -25,6 +25,10 @@ import com.marklogic.client.ext.tokenreplacer.TokenReplacer;
 import java.io.FileFilter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -35,6 +39,16 @@ import java.util.stream.Collectors;
  * The batchSize property defaults to null, which means all files are written in one call via the BatchWriter. Setting
  * this means that the List of DocumentFile objects read from the DocumentFileReader will be written in batches, each
  * the size of the batchSize property, except for the final one that may be less than this size.
+ * <p>
+ * If streamingEnabled is set to true, files are instead read on a separate thread and handed off in batches via a
+ * bounded queue, and each batch is written as soon as it's full. Writing thus starts as soon as the first batch has
+ * been read, and memory usage depends on the batch size and queue capacity instead of on the number of files. In this
+ * mode, batchSize defaults to DEFAULT_STREAMING_BATCH_SIZE if not set.
+ * <p>
+ * Batches can also be limited by the combined length of the content of their files via batchSizeInBytes, in which case
+ * batchSize is an optional cap on the number of files in each batch. And any file whose content length is at least
+ * largeFileThresholdInBytes is written by itself in a batch of one, so that a few very large binaries do not make a
+ * batch of otherwise small files unpredictably large.
  */
 public class GenericFileLoader extends LoggingObject implements FileLoader {
 
@@ -44,6 +58,17 @@ public class GenericFileLoader extends LoggingObject implements FileLoader {
 	private boolean logFileUris = true;
 	private Integer batchSize;
 
+	public final static int DEFAULT_STREAMING_BATCH_SIZE = 100;
+
+	private boolean streamingEnabled = false;
+	private int streamingQueueCapacity = 4;
+
+	private long batchSizeInBytes = 0;
+	private long largeFileThresholdInBytes = 0;
+
+	private int readerParallelism = 0;
+	private long tokenReplacementStreamingThresholdInBytes = 0;
+
 	// These are passed on to the DefaultDocumentFileReader that is created if one isn't set
 	private List<FileFilter> fileFilters;
 	private List<DocumentFileProcessor> documentFileProcessors;
@@ -82,11 +107,18 @@ public class GenericFileLoader extends LoggingObject implements FileLoader {
 	 * Load files from each of the given paths, using the underlying DocumentFileReader.
 	 * <p>
 	 * If a DocumentFileReader has not been set yet, then one will be constructed before any files are read.
+	 * <p>
+	 * If streamingEnabled is true, then the DocumentFile objects are not retained once they have been written, and
+	 * thus an empty list is returned.
 	 *
 	 * @param paths
 	 * @return list of files from the given paths
 	 */
 	public List<DocumentFile> loadFiles(String... paths) {
+		if (streamingEnabled) {
+			streamDocumentFiles(paths);
+			return new ArrayList<>();
+		}
 		List<DocumentFile> documentFiles = getDocumentFiles(paths);
 		writeDocumentFiles(documentFiles);
 		return documentFiles;
@@ -100,13 +132,78 @@ public class GenericFileLoader extends LoggingObject implements FileLoader {
 	protected final void writeDocumentFiles(List<DocumentFile> documentFiles) {
 		if (documentFiles != null && !documentFiles.isEmpty()) {
 			batchWriter.initialize();
-			writeBatchOfDocuments(documentFiles, 0);
+			if (isBatchingBySize()) {
+				DocumentFileBatcher batcher = new DocumentFileBatcher(batchSize, this::writeBatch);
+				documentFiles.forEach(batcher::add);
+				batcher.flush();
+			} else {
+				writeBatchOfDocuments(documentFiles, 0);
+			}
 			if (waitForCompletion) {
 				batchWriter.waitForCompletion();
 			}
 		}
 	}
 
+	/**
+	 * Reads files from the given paths on a separate thread, which puts each full batch of DocumentFile objects onto
+	 * a bounded queue. The calling thread takes batches off the queue and passes them to the BatchWriter. When the
+	 * queue is full, the reading thread blocks until the BatchWriter catches up.
+	 *
+	 * @param paths
+	 * @since 4.8.0
+	 */
+	protected void streamDocumentFiles(String... paths) {
+		initializeDocumentFileReader();
+
+		// When batching by size, batchSize is only an optional cap on the number of files in each batch
+		final Integer streamingBatchSize = batchSize != null && batchSize > 0 ? batchSize :
+			(batchSizeInBytes > 0 ? null : DEFAULT_STREAMING_BATCH_SIZE);
+		final StreamingBatchProducer producer = new StreamingBatchProducer(streamingBatchSize, paths);
+		final Thread readerThread = new Thread(producer, "ml-javaclient-util-file-reader");
+		readerThread.setDaemon(true);
+		readerThread.start();
+
+		boolean wroteBatch = false;
+		try {
+			List<DocumentFile> batch;
+			while ((batch = producer.takeBatch()) != null) {
+				if (!wroteBatch) {
+					batchWriter.initialize();
+					wroteBatch = true;
+				}
+				writeBatch(batch);
+			}
+		} catch (RuntimeException ex) {
+			producer.cancel();
+			throw ex;
+		} finally {
+			try {
+				readerThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		Throwable readerError = producer.getError();
+		if (readerError != null) {
+			if (wroteBatch && waitForCompletion) {
+				try {
+					batchWriter.waitForCompletion();
+				} catch (RuntimeException ex) {
+					logger.warn("Unable to wait for batches to be written after failing to read files; cause: " + ex.getMessage());
+				}
+			}
+			throw readerError instanceof RuntimeException ?
+				(RuntimeException) readerError :
+				new RuntimeException("Unable to read files; cause: " + readerError.getMessage(), readerError);
+		}
+
+		if (wroteBatch && waitForCompletion) {
+			batchWriter.waitForCompletion();
+		}
+	}
+
 	/**
 	 * If batchSize is not set, then this method will load all the documents in one call to the BatchWriter. Otherwise,
 	 * this will divide up the list of documentFiles into batches matching the value of batchSize, with the last batch
@@ -133,18 +230,7 @@ public class GenericFileLoader extends LoggingObject implements FileLoader {
 
 		List<DocumentFile> batch = documentFiles.subList(startPosition, endPosition);
 		if (!batch.isEmpty()) {
-			final boolean infoEnabled = logger.isInfoEnabled();
-			if (infoEnabled) {
-				logger.info(format("Writing %d files", batch.size()));
-			}
-			List<DocumentWriteOperation> documentWriteOperations = batch.stream().map(file -> {
-				if (logFileUris && infoEnabled) {
-					final String uri = file.getUri();
-					logger.info("Writing: " + uri != null ? uri : file.getTemporalDocumentURI());
-				}
-				return file.toDocumentWriteOperation();
-			}).collect(Collectors.toList());
-			batchWriter.write(documentWriteOperations);
+			writeBatch(batch);
 		}
 
 		if (endPosition < documentFilesSize) {
@@ -152,13 +238,173 @@ public class GenericFileLoader extends LoggingObject implements FileLoader {
 		}
 	}
 
+	/**
+	 * Converts the given batch of DocumentFile objects into DocumentWriteOperation objects and passes them to the
+	 * BatchWriter.
+	 *
+	 * @param batch
+	 */
+	protected void writeBatch(List<DocumentFile> batch) {
+		final boolean infoEnabled = logger.isInfoEnabled();
+		if (infoEnabled) {
+			logger.info(format("Writing %d files", batch.size()));
+		}
+		List<DocumentWriteOperation> documentWriteOperations = batch.stream().map(file -> {
+			if (logFileUris && infoEnabled) {
+				final String uri = file.getUri();
+				logger.info("Writing: " + uri != null ? uri : file.getTemporalDocumentURI());
+			}
+			return file.toDocumentWriteOperation();
+		}).collect(Collectors.toList());
+		batchWriter.write(documentWriteOperations);
+	}
+
+	/**
+	 * @return true if either batchSizeInBytes or largeFileThresholdInBytes has been set
+	 * @since 4.8.0
+	 */
+	protected boolean isBatchingBySize() {
+		return batchSizeInBytes > 0 || largeFileThresholdInBytes > 0;
+	}
+
+	/**
+	 * Collects DocumentFile objects into batches based on batchSizeInBytes, largeFileThresholdInBytes, and an optional
+	 * maximum number of files, and passes each batch to the given consumer as soon as it is full.
+	 */
+	private class DocumentFileBatcher {
+
+		private final Integer maxFiles;
+		private final Consumer<List<DocumentFile>> batchConsumer;
+		private List<DocumentFile> currentBatch = new ArrayList<>();
+		private long currentBatchLength;
+
+		DocumentFileBatcher(Integer maxFiles, Consumer<List<DocumentFile>> batchConsumer) {
+			this.maxFiles = maxFiles != null && maxFiles > 0 ? maxFiles : null;
+			this.batchConsumer = batchConsumer;
+		}
+
+		void add(DocumentFile documentFile) {
+			final long length = isBatchingBySize() ? documentFile.getContentLength() : 0;
+			if (largeFileThresholdInBytes > 0 && length >= largeFileThresholdInBytes) {
+				if (logger.isDebugEnabled()) {
+					logger.debug(format("Writing file by itself due to its size of %d bytes: %s", length, documentFile.getUri()));
+				}
+				List<DocumentFile> batch = new ArrayList<>(1);
+				batch.add(documentFile);
+				batchConsumer.accept(batch);
+				return;
+			}
+			if (batchSizeInBytes > 0 && !currentBatch.isEmpty() && currentBatchLength + length > batchSizeInBytes) {
+				flush();
+			}
+			currentBatch.add(documentFile);
+			currentBatchLength += length;
+			if (maxFiles != null && currentBatch.size() >= maxFiles) {
+				flush();
+			}
+		}
+
+		void flush() {
+			if (!currentBatch.isEmpty()) {
+				List<DocumentFile> batch = currentBatch;
+				currentBatch = new ArrayList<>();
+				currentBatchLength = 0;
+				batchConsumer.accept(batch);
+			}
+		}
+	}
+
+	/**
+	 * Runs the DocumentFileReader on a separate thread, collecting each DocumentFile into a batch and putting every
+	 * full batch onto a bounded queue. An empty list is used to signal that all files have been read.
+	 */
+	private class StreamingBatchProducer implements Runnable, Consumer<DocumentFile> {
+
+		private final List<DocumentFile> endOfFiles = new ArrayList<>();
+		private final BlockingQueue<List<DocumentFile>> queue = new ArrayBlockingQueue<>(Math.max(1, streamingQueueCapacity));
+		private final String[] paths;
+		private final DocumentFileBatcher batcher;
+		private volatile boolean cancelled;
+		private volatile Throwable error;
+
+		StreamingBatchProducer(Integer size, String[] paths) {
+			this.paths = paths;
+			this.batcher = new DocumentFileBatcher(size, batch -> {
+				if (!putBatch(batch)) {
+					throw new IllegalStateException("Stopped reading files because batches are no longer being written");
+				}
+			});
+		}
+
+		@Override
+		public void run() {
+			try {
+				documentFileReader.readDocumentFiles(this, paths);
+				batcher.flush();
+			} catch (Throwable t) {
+				if (!cancelled) {
+					error = t;
+				}
+			} finally {
+				putBatch(endOfFiles);
+			}
+		}
+
+		@Override
+		public void accept(DocumentFile documentFile) {
+			batcher.add(documentFile);
+		}
+
+		/**
+		 * Blocks until the queue has space, unless the consumer has stopped taking batches.
+		 *
+		 * @return false if the batch could not be put onto the queue
+		 */
+		private boolean putBatch(List<DocumentFile> batch) {
+			try {
+				while (!cancelled) {
+					if (queue.offer(batch, 1, TimeUnit.SECONDS)) {
+						return true;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return false;
+		}
+
+		/**
+		 * @return the next batch, or null once all files have been read
+		 */
+		List<DocumentFile> takeBatch() {
+			try {
+				List<DocumentFile> batch = queue.take();
+				return batch == endOfFiles ? null : batch;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while waiting for files to be read", e);
+			}
+		}
+
+		void cancel() {
+			cancelled = true;
+			queue.clear();
+		}
+
+		Throwable getError() {
+			return error;
+		}
+	}
+
 	/**
 	 * If no DocumentFileReader is set, this will construct a DefaultDocumentFileReader, which is then configured based
 	 * on several properties of this class.
 	 */
 	public void initializeDocumentFileReader() {
 		if (this.documentFileReader == null) {
-			DefaultDocumentFileReader reader = new DefaultDocumentFileReader();
+			DefaultDocumentFileReader reader = readerParallelism > 0 ?
+				new ParallelDocumentFileReader(readerParallelism) :
+				new DefaultDocumentFileReader();
 
 			if (fileFilters != null) {
 				for (FileFilter filter : fileFilters) {
@@ -223,7 +469,9 @@ public class GenericFileLoader extends LoggingObject implements FileLoader {
 			processors.add(new CollectionsDocumentFileProcessor(collections));
 		}
 		if (tokenReplacer != null) {
-			processors.add(new TokenReplacerDocumentFileProcessor(tokenReplacer));
+			TokenReplacerDocumentFileProcessor processor = new TokenReplacerDocumentFileProcessor(tokenReplacer);
+			processor.setStreamingThresholdInBytes(tokenReplacementStreamingThresholdInBytes);
+			processors.add(processor);
 		}
 		if (documentFileProcessors != null) {
 			processors.addAll(documentFileProcessors);
@@ -313,6 +561,70 @@ public class GenericFileLoader extends LoggingObject implements FileLoader {
 		this.batchWriter = batchWriter;
 	}
 
+	/**
+	 * @param streamingEnabled
+	 * @since 4.8.0
+	 */
+	public void setStreamingEnabled(boolean streamingEnabled) {
+		this.streamingEnabled = streamingEnabled;
+	}
+
+	/**
+	 * @return
+	 * @since 4.8.0
+	 */
+	public boolean isStreamingEnabled() {
+		return streamingEnabled;
+	}
+
+	/**
+	 * @param streamingQueueCapacity the number of batches that can be read before the reading thread blocks and
+	 *                               waits for the BatchWriter to catch up
+	 * @since 4.8.0
+	 */
+	public void setStreamingQueueCapacity(int streamingQueueCapacity) {
+		this.streamingQueueCapacity = streamingQueueCapacity;
+	}
+
+	/**
+	 * @param readerParallelism if greater than zero, and no DocumentFileReader has been set, then a
+	 *                          {@code ParallelDocumentFileReader} with this parallelism is used to read files. Defaults
+	 *                          to zero, in which case files are read on a single thread. Should only be set when every
+	 *                          DocumentFileProcessor - including any TokenReplacer or ModulesManager it uses - is
+	 *                          thread-safe.
+	 * @since 4.8.0
+	 */
+	public void setReaderParallelism(int readerParallelism) {
+		this.readerParallelism = readerParallelism;
+	}
+
+	/**
+	 * @return
+	 * @since 4.8.0
+	 */
+	public int getReaderParallelism() {
+		return readerParallelism;
+	}
+
+	/**
+	 * @param tokenReplacementStreamingThresholdInBytes if greater than zero, and the TokenReplacer is a
+	 *                                                  StreamingTokenReplacer, then tokens in files at least this
+	 *                                                  large are replaced as each file is written instead of each
+	 *                                                  file being read into memory
+	 * @since 4.8.0
+	 */
+	public void setTokenReplacementStreamingThresholdInBytes(long tokenReplacementStreamingThresholdInBytes) {
+		this.tokenReplacementStreamingThresholdInBytes = tokenReplacementStreamingThresholdInBytes;
+	}
+
+	/**
+	 * @return
+	 * @since 4.8.0
+	 */
+	public long getTokenReplacementStreamingThresholdInBytes() {
+		return tokenReplacementStreamingThresholdInBytes;
+	}
+
 	/**
 	 * @param cascadeCollections
 	 * @since 4.6.0
@@ -344,4 +656,30 @@ public class GenericFileLoader extends LoggingObject implements FileLoader {
 	public boolean isCascadePermissions() {
 		return cascadePermissions;
 	}
+
+	/**
+	 * @param batchSizeInBytes the maximum combined content length of the files in a batch; a batch always contains at
+	 *                         least one file. A value less than 1 means batches are not limited by content length.
+	 * @since 4.8.0
+	 */
+	public void setBatchSizeInBytes(long batchSizeInBytes) {
+		this.batchSizeInBytes = batchSizeInBytes;
+	}
+
+	public long getBatchSizeInBytes() {
+		return batchSizeInBytes;
+	}
+
+	/**
+	 * @param largeFileThresholdInBytes any file whose content length is at least this value is written in its own
+	 *                                  batch; a value less than 1 disables this
+	 * @since 4.8.0
+	 */
+	public void setLargeFileThresholdInBytes(long largeFileThresholdInBytes) {
+		this.largeFileThresholdInBytes = largeFileThresholdInBytes;
+	}
+
+	public long getLargeFileThresholdInBytes() {
+		return largeFileThresholdInBytes;
+	}
 }
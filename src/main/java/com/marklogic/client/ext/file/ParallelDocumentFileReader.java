@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.file;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Reads document files by walking each directory in a separate fork/join task, which can significantly reduce the
+ * time spent reading a large directory tree, particularly on network or other high-latency filesystems.
+ * <p>
+ * The properties that the collections and permissions processors read from their properties files are tracked per
+ * directory instead of via the processors themselves, so the cascading behavior of those files is the same as with
+ * {@code DefaultDocumentFileReader}. All other DocumentFileProcessor objects must be safe to use by multiple threads.
+ * If any of those processors implements {@code FileVisitor} - and thus depends on the order in which directories are
+ * visited - this class falls back to walking the file tree on the calling thread.
+ * </p>
+ * <p>
+ * Processors that delegate to another object are only thread-safe if that object is. As of 4.8.0, the
+ * {@code PropertiesModuleManager}, {@code ContentHashModulesManager} and {@code DefaultTokenReplacer} classes are
+ * thread-safe, but a custom {@code ModulesManager} or {@code TokenReplacer} - or one from an earlier version - may not
+ * be. For this reason, {@code GenericFileLoader} only uses this class when its readerParallelism is set; files are
+ * read on a single thread by default.
+ * </p>
+ * <p>
+ * By default, each DocumentFile is passed to the consumer as soon as it has been processed, and thus the order of
+ * files is not deterministic. If {@code sortedOutput} is set to true, each directory's entries are instead sorted by
+ * name and each DocumentFile is passed to the consumer in that order once the whole tree has been walked.
+ * </p>
+ *
+ * @since 4.8.0
+ */
+public class ParallelDocumentFileReader extends DefaultDocumentFileReader {
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private boolean sortedOutput = false;
+
+	public ParallelDocumentFileReader() {
+		super();
+	}
+
+	public ParallelDocumentFileReader(int parallelism) {
+		this();
+		setParallelism(parallelism);
+	}
+
+	@Override
+	public void readDocumentFiles(Consumer<DocumentFile> consumer, String... paths) {
+		for (DocumentFileProcessor processor : getDocumentFileProcessors()) {
+			if (processor instanceof FileVisitor && !(processor instanceof CascadingPropertiesDrivenDocumentFileProcessor)) {
+				logger.warn(format("DocumentFileProcessor %s implements FileVisitor, so files will not be read in parallel",
+					processor.getClass().getName()));
+				super.readDocumentFiles(consumer, paths);
+				return;
+			}
+		}
+
+		final Consumer<DocumentFile> synchronizedConsumer = documentFile -> {
+			synchronized (consumer) {
+				consumer.accept(documentFile);
+			}
+		};
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			for (String path : paths) {
+				if (logger.isDebugEnabled()) {
+					logger.debug(format("Finding files in parallel at path: %s", path));
+				}
+				Path rootPath = constructPath(path);
+				if (rootPath == null) {
+					if (logger.isInfoEnabled()) {
+						logger.info("Path does not exist, so not reading files from it: " + path);
+					}
+					continue;
+				}
+				BasicFileAttributes attrs = readAttributes(rootPath);
+				if (attrs == null) {
+					continue;
+				}
+				if (!attrs.isDirectory()) {
+					processFile(rootPath, attrs, rootPath, new IdentityHashMap<>(), synchronizedConsumer, null);
+					continue;
+				}
+				List<DocumentFile> documentFiles = pool.invoke(
+					new DirectoryTask(rootPath, attrs, rootPath, new IdentityHashMap<>(), sortedOutput ? null : synchronizedConsumer));
+				if (documentFiles != null) {
+					documentFiles.forEach(consumer);
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Walks a single directory, forking a new task for each child directory that is accepted.
+	 */
+	private class DirectoryTask extends RecursiveTask<List<DocumentFile>> {
+
+		private final Path dir;
+		private final BasicFileAttributes attrs;
+		private final Path rootPath;
+		private final Map<CascadingPropertiesDrivenDocumentFileProcessor, PropertyPatterns> parentPatterns;
+		private final Consumer<DocumentFile> consumer;
+
+		/**
+		 * @param consumer if null, the DocumentFile objects are instead collected and returned in sorted order
+		 */
+		DirectoryTask(Path dir, BasicFileAttributes attrs, Path rootPath,
+		              Map<CascadingPropertiesDrivenDocumentFileProcessor, PropertyPatterns> parentPatterns,
+		              Consumer<DocumentFile> consumer) {
+			this.dir = dir;
+			this.attrs = attrs;
+			this.rootPath = rootPath;
+			this.parentPatterns = parentPatterns;
+			this.consumer = consumer;
+		}
+
+		@Override
+		protected List<DocumentFile> compute() {
+			if (!acceptPath(dir, attrs)) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Skipping directory: " + dir);
+				}
+				return consumer != null ? null : new ArrayList<>();
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Visiting directory: " + dir);
+			}
+
+			final Map<CascadingPropertiesDrivenDocumentFileProcessor, PropertyPatterns> directoryPatterns = getPatternsForDirectory();
+
+			List<Path> children = new ArrayList<>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+				stream.forEach(children::add);
+			} catch (IOException ex) {
+				logger.warn(format("Unable to read directory %s: %s", dir, ex.getMessage()), ex);
+			}
+			if (consumer == null) {
+				children.sort(null);
+			}
+
+			// Each entry is either a DocumentFile or a forked DirectoryTask, so that sorted output can be assembled
+			// in the order in which the children were listed
+			List<Object> entries = new ArrayList<>();
+			for (Path child : children) {
+				BasicFileAttributes childAttrs = readAttributes(child);
+				if (childAttrs == null) {
+					continue;
+				}
+				if (childAttrs.isDirectory()) {
+					entries.add(new DirectoryTask(child, childAttrs, rootPath, directoryPatterns, consumer).fork());
+				} else {
+					processFile(child, childAttrs, rootPath, directoryPatterns, consumer, entries);
+				}
+			}
+
+			List<DocumentFile> documentFiles = consumer != null ? null : new ArrayList<>();
+			for (Object entry : entries) {
+				if (entry instanceof ForkJoinTask) {
+					List<DocumentFile> childFiles = ((DirectoryTask) entry).join();
+					if (documentFiles != null) {
+						documentFiles.addAll(childFiles);
+					}
+				} else if (documentFiles != null) {
+					documentFiles.add((DocumentFile) entry);
+				}
+			}
+			return documentFiles;
+		}
+
+		private Map<CascadingPropertiesDrivenDocumentFileProcessor, PropertyPatterns> getPatternsForDirectory() {
+			Map<CascadingPropertiesDrivenDocumentFileProcessor, PropertyPatterns> map = new IdentityHashMap<>();
+			for (DocumentFileProcessor processor : getDocumentFileProcessors()) {
+				if (processor instanceof CascadingPropertiesDrivenDocumentFileProcessor) {
+					CascadingPropertiesDrivenDocumentFileProcessor cascadingProcessor = (CascadingPropertiesDrivenDocumentFileProcessor) processor;
+					try {
+						map.put(cascadingProcessor, cascadingProcessor.getPropertyPatternsForDirectory(dir, parentPatterns.get(cascadingProcessor)));
+					} catch (IOException ex) {
+						throw new RuntimeException(format("Unable to read properties file in directory: %s", dir), ex);
+					}
+				}
+			}
+			return map;
+		}
+	}
+
+	/**
+	 * Builds and processes a DocumentFile for the given path. The result is passed to the consumer if it is not null;
+	 * otherwise, it is added to the given list of entries.
+	 */
+	private void processFile(Path path, BasicFileAttributes attrs, Path rootPath,
+	                         Map<CascadingPropertiesDrivenDocumentFileProcessor, PropertyPatterns> directoryPatterns,
+	                         Consumer<DocumentFile> consumer, List<Object> entries) {
+		if (!acceptPath(path, attrs)) {
+			return;
+		}
+		DocumentFile documentFile = processDocumentFile(buildDocumentFile(path, rootPath), (processor, file) -> {
+			if (processor instanceof CascadingPropertiesDrivenDocumentFileProcessor) {
+				return ((CascadingPropertiesDrivenDocumentFileProcessor) processor).processDocumentFile(file, directoryPatterns.get(processor));
+			}
+			return processor.processDocumentFile(file);
+		});
+		if (documentFile != null) {
+			if (consumer != null) {
+				consumer.accept(documentFile);
+			} else {
+				entries.add(documentFile);
+			}
+		}
+	}
+
+	/**
+	 * Mirrors Files.walkFileTree, which does not follow symbolic links by default.
+	 */
+	private BasicFileAttributes readAttributes(Path path) {
+		try {
+			return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		} catch (IOException ex) {
+			logger.warn("Failed visiting file: " + ex.getMessage(), ex);
+			return null;
+		}
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be greater than zero");
+		}
+		this.parallelism = parallelism;
+	}
+
+	public boolean isSortedOutput() {
+		return sortedOutput;
+	}
+
+	/**
+	 * @param sortedOutput if true, each directory's entries are sorted by name, and DocumentFile objects are passed to
+	 *                     the consumer in a deterministic order after the entire file tree has been walked
+	 */
+	public void setSortedOutput(boolean sortedOutput) {
+		this.sortedOutput = sortedOutput;
+	}
+}
@@ -22,10 +22,7 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.FileReader;
 import java.io.IOException;
-import java.nio.file.FileSystems;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
-import java.util.Enumeration;
 import java.util.Properties;
 
 /**
@@ -38,6 +35,7 @@ public abstract class PropertiesDrivenDocumentFileProcessor extends LoggingObjec
 	private final String propertiesFilename;
 
 	private Properties properties;
+	private PropertyPatterns propertyPatterns;
 
 	private TokenReplacer tokenReplacer;
 
@@ -56,11 +54,24 @@ public abstract class PropertiesDrivenDocumentFileProcessor extends LoggingObjec
 	 */
 	@Override
 	public DocumentFile processDocumentFile(DocumentFile documentFile) {
+		return processDocumentFile(documentFile, propertyPatterns);
+	}
+
+	/**
+	 * Processes the given DocumentFile based on the given patterns instead of the ones held by this object, which
+	 * allows for this object to be used by multiple threads at once.
+	 *
+	 * @param documentFile
+	 * @param propertyPatterns
+	 * @return null if the file is not accepted, else the incoming DocumentFile
+	 * @since 4.8.0
+	 */
+	DocumentFile processDocumentFile(DocumentFile documentFile, PropertyPatterns propertyPatterns) {
 		File file = documentFile.getFile();
 		if (!accept(file)) {
 			return null;
 		}
-		processProperties(documentFile, properties);
+		processProperties(documentFile, propertyPatterns);
 		return documentFile;
 	}
 
@@ -69,20 +80,21 @@ public abstract class PropertiesDrivenDocumentFileProcessor extends LoggingObjec
 	 * compatibility with the previous approach of only supporting "*" and exact filename matches. When a property
 	 * is found to match the given file, then a subclass method is invoked to determine what to do with the value
 	 * associated with the property.
+	 * <p>
+	 * As of 4.8.0, the patterns are compiled once when the properties are set instead of once per file.
+	 * </p>
 	 *
 	 * @param documentFile
-	 * @param properties
+	 * @param propertyPatterns
 	 */
-	private void processProperties(DocumentFile documentFile, Properties properties) {
+	private void processProperties(DocumentFile documentFile, PropertyPatterns propertyPatterns) {
+		if (propertyPatterns == null) {
+			return;
+		}
 		final Path filename = documentFile.getFile().toPath().getFileName();
-		Enumeration patterns = properties.propertyNames();
-		while (patterns.hasMoreElements()) {
-			String pattern = (String) patterns.nextElement();
-			PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
-			if (matcher.matches(filename)) {
-				String value = getPropertyValue(properties, pattern);
-				this.applyPropertyMatch(documentFile, pattern, value);
-			}
+		for (String pattern : propertyPatterns.getMatchingPatterns(filename)) {
+			String value = getPropertyValue(propertyPatterns.getProperties(), pattern);
+			this.applyPropertyMatch(documentFile, pattern, value);
 		}
 	}
 
@@ -97,10 +109,21 @@ public abstract class PropertiesDrivenDocumentFileProcessor extends LoggingObjec
 	protected abstract void applyPropertyMatch(DocumentFile documentFile, String pattern, String value);
 
 	protected final Properties loadProperties(File propertiesFile) throws IOException {
-		properties = new Properties();
+		setProperties(readProperties(propertiesFile));
+		return properties;
+	}
+
+	/**
+	 * @param propertiesFile
+	 * @return the properties in the given file, without modifying the properties held by this object
+	 * @throws IOException
+	 * @since 4.8.0
+	 */
+	protected final Properties readProperties(File propertiesFile) throws IOException {
+		Properties props = new Properties();
 		try (FileReader reader = new FileReader(propertiesFile)) {
-			properties.load(reader);
-			return properties;
+			props.load(reader);
+			return props;
 		}
 	}
 
@@ -121,8 +144,23 @@ public abstract class PropertiesDrivenDocumentFileProcessor extends LoggingObjec
 		this.tokenReplacer = tokenReplacer;
 	}
 
+	/**
+	 * As of 4.8.0, this also compiles the patterns in the given properties. If the properties are subsequently
+	 * modified, this must be invoked again for the modifications to be applied.
+	 *
+	 * @param properties
+	 */
 	protected void setProperties(Properties properties) {
-		this.properties = properties;
+		setPropertyPatterns(new PropertyPatterns(properties));
+	}
+
+	void setPropertyPatterns(PropertyPatterns propertyPatterns) {
+		this.propertyPatterns = propertyPatterns;
+		this.properties = propertyPatterns.getProperties();
+	}
+
+	PropertyPatterns getPropertyPatterns() {
+		return propertyPatterns;
 	}
 
 	protected Properties getProperties() {
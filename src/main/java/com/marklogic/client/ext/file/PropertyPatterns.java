@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.file;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Holds the patterns in a properties file used by {@code PropertiesDrivenDocumentFileProcessor}, with each pattern
+ * compiled once when the properties are loaded instead of once per file. Patterns of "*" match every file, and
+ * patterns without any glob characters are looked up by filename; only the remaining patterns require a
+ * {@code PathMatcher}. Matches are returned in the same order in which the patterns were enumerated by the
+ * {@code Properties} object, which is the order in which they were previously applied.
+ * <p>
+ * Instances are immutable and thus can be shared across threads. If the underlying Properties object is modified,
+ * a new instance must be constructed.
+ * </p>
+ *
+ * @since 4.8.0
+ */
+class PropertyPatterns {
+
+	private final static String GLOB_CHARACTERS = "*?[]{}\\";
+
+	// On Windows, glob matching is case-insensitive, so exact filenames cannot be looked up by a case-sensitive key
+	private final static boolean CASE_INSENSITIVE = File.separatorChar == '\\';
+
+	private final Properties properties;
+	private final List<Pattern> matchAllPatterns = new ArrayList<>();
+	private final Map<String, List<Pattern>> exactPatterns = new HashMap<>();
+	private final List<Pattern> globPatterns = new ArrayList<>();
+
+	PropertyPatterns(Properties properties) {
+		this.properties = properties;
+		if (properties == null) {
+			return;
+		}
+		Enumeration names = properties.propertyNames();
+		int index = 0;
+		while (names.hasMoreElements()) {
+			String name = (String) names.nextElement();
+			Pattern pattern = new Pattern(index++, name);
+			if ("*".equals(name)) {
+				matchAllPatterns.add(pattern);
+			} else if (isExactName(name)) {
+				exactPatterns.computeIfAbsent(toKey(name), key -> new ArrayList<>()).add(pattern);
+			} else {
+				pattern.matcher = FileSystems.getDefault().getPathMatcher("glob:" + name);
+				globPatterns.add(pattern);
+			}
+		}
+	}
+
+	/**
+	 * @param filename
+	 * @return the patterns that match the given filename, in the order in which they were enumerated
+	 */
+	List<String> getMatchingPatterns(Path filename) {
+		if (properties == null) {
+			return Collections.emptyList();
+		}
+		List<Pattern> matches = new ArrayList<>(matchAllPatterns);
+		List<Pattern> exactMatches = exactPatterns.isEmpty() ? null : exactPatterns.get(toKey(filename.toString()));
+		if (exactMatches != null) {
+			matches.addAll(exactMatches);
+		}
+		for (Pattern pattern : globPatterns) {
+			if (pattern.matcher.matches(filename)) {
+				matches.add(pattern);
+			}
+		}
+		if (matches.size() > 1) {
+			matches.sort((p1, p2) -> Integer.compare(p1.index, p2.index));
+		}
+		List<String> names = new ArrayList<>(matches.size());
+		for (Pattern pattern : matches) {
+			names.add(pattern.name);
+		}
+		return names;
+	}
+
+	Properties getProperties() {
+		return properties;
+	}
+
+	private static boolean isExactName(String name) {
+		for (int i = 0; i < name.length(); i++) {
+			if (GLOB_CHARACTERS.indexOf(name.charAt(i)) > -1) {
+				return false;
+			}
+		}
+		return !name.isEmpty();
+	}
+
+	private static String toKey(String name) {
+		return CASE_INSENSITIVE ? name.toLowerCase(Locale.ROOT) : name;
+	}
+
+	private static class Pattern {
+		private final int index;
+		private final String name;
+		private PathMatcher matcher;
+
+		Pattern(int index, String name) {
+			this.index = index;
+			this.name = name;
+		}
+	}
+}
@@ -15,22 +15,57 @@
  */
 package com.marklogic.client.ext.file;
 
+import com.marklogic.client.ext.batch.ResendableOutputStreamSender;
 import com.marklogic.client.ext.helper.LoggingObject;
 import com.marklogic.client.io.Format;
+import com.marklogic.client.ext.tokenreplacer.StreamingTokenReplacer;
+import com.marklogic.client.ext.tokenreplacer.TokenPrescanner;
 import com.marklogic.client.ext.tokenreplacer.TokenReplacer;
 import org.springframework.core.io.Resource;
 import org.springframework.util.FileCopyUtils;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Processor that delegates to a TokenReplacer for replacing tokens in the content of a DocumentFile. In order to
  * replace tokens, the File must first be read in as a String. After tokens are replaced, the String is set back on
  * the DocumentFile via setModifiedContent.
+ * <p>
+ * As of 4.8.0, if the TokenReplacer is a StreamingTokenReplacer and streamingThresholdInBytes is set, then tokens in
+ * files at least that large are instead replaced when the file is written to MarkLogic, via
+ * setModifiedContentSender on the DocumentFile. The file is then read twice - once to verify that the tokens in it
+ * can be replaced while streaming, and again when it is written - but it is never held in memory. The sender re-reads
+ * the file each time it is invoked, so a batch containing it can be retried by a RetryPolicy. Note that streaming uses
+ * {@code StreamingTokenReplacer.replaceTokens(Reader, Writer)}, and thus bypasses any override of
+ * {@code replaceTokens(String)} in a TokenReplacer subclass.
+ * </p>
+ * <p>
+ * Also as of 4.8.0, if the StreamingTokenReplacer provides a TokenPrescanner, the bytes of each file are first scanned
+ * for anything that could start a token, and a file without any is not modified, which allows for its content to be
+ * streamed from the file when it is written. DefaultTokenReplacer does not provide one when a subclass overrides
+ * {@code replaceTokens(String)}, so that the override still sees every file.
+ * </p>
+ * <p>
+ * This is only safe to use with a {@code ParallelDocumentFileReader} if the TokenReplacer is thread-safe, as
+ * DefaultTokenReplacer is as of 4.8.0.
+ * </p>
  */
 public class TokenReplacerDocumentFileProcessor extends LoggingObject implements DocumentFileProcessor {
 
 	private TokenReplacer tokenReplacer;
+	private long streamingThresholdInBytes = 0;
+	private Charset charset = Charset.defaultCharset();
+	private boolean prescanEnabled = true;
 
 	public TokenReplacerDocumentFileProcessor(TokenReplacer tokenReplacer) {
 		this.tokenReplacer = tokenReplacer;
@@ -44,7 +79,18 @@ public class TokenReplacerDocumentFileProcessor extends LoggingObject implements
 				Resource resource = documentFile.getResource();
 				if (resource != null) {
 					try {
-						text = new String(FileCopyUtils.copyToByteArray(resource.getInputStream()));
+						if (containsNoTokens(documentFile)) {
+							if (logger.isTraceEnabled()) {
+								logger.trace("No tokens found, so not replacing tokens in file: " + documentFile.getUri());
+							}
+							return documentFile;
+						}
+						if (shouldReplaceTokensWhileStreaming(documentFile)) {
+							// The file is re-read each time the content is sent, so a failed batch can be retried
+							documentFile.setModifiedContentSender((ResendableOutputStreamSender) out -> replaceTokensWhileStreaming(resource, out));
+							return documentFile;
+						}
+						text = new String(FileCopyUtils.copyToByteArray(resource.getInputStream()), charset);
 					} catch (IOException ie) {
 						logger.warn("Unable to replace tokens in file: " + documentFile.getUri() + "; cause: " + ie.getMessage());
 					}
@@ -62,4 +108,114 @@ public class TokenReplacerDocumentFileProcessor extends LoggingObject implements
 		return format != null && (format.equals(Format.JSON) || format.equals(Format.TEXT)
 			|| format.equals(Format.XML));
 	}
+
+	/**
+	 * Uses the TokenPrescanner of a StreamingTokenReplacer, if available, to determine that a file does not contain
+	 * any tokens without reading it into a String. The DocumentFile is then left as-is so that its content can be
+	 * streamed from the file when it is written.
+	 *
+	 * @param documentFile
+	 * @return
+	 * @throws IOException
+	 * @since 4.8.0
+	 */
+	protected boolean containsNoTokens(DocumentFile documentFile) throws IOException {
+		Resource resource = documentFile.getResource();
+		if (!prescanEnabled || !(tokenReplacer instanceof StreamingTokenReplacer) || resource.isOpen()) {
+			return false;
+		}
+		TokenPrescanner prescanner = ((StreamingTokenReplacer) tokenReplacer).getTokenPrescanner();
+		if (prescanner == null) {
+			return false;
+		}
+		try (InputStream in = resource.getInputStream()) {
+			return prescanner.containsNoTokens(in, charset);
+		}
+	}
+
+	/**
+	 * @param documentFile
+	 * @return true if streaming is enabled, the file is at least as large as the streaming threshold, and the tokens
+	 * in it can be replaced while streaming
+	 * @throws IOException
+	 * @since 4.8.0
+	 */
+	protected boolean shouldReplaceTokensWhileStreaming(DocumentFile documentFile) throws IOException {
+		Resource resource = documentFile.getResource();
+		if (streamingThresholdInBytes < 1 || !(tokenReplacer instanceof StreamingTokenReplacer)
+			|| !resource.isFile() || resource.getFile().length() < streamingThresholdInBytes) {
+			return false;
+		}
+		try (Reader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), charset))) {
+			boolean canStream = ((StreamingTokenReplacer) tokenReplacer).canReplaceTokensWhileStreaming(reader);
+			if (!canStream && logger.isDebugEnabled()) {
+				logger.debug("Tokens cannot be replaced while streaming, so reading file into memory: " + documentFile.getUri());
+			}
+			return canStream;
+		}
+	}
+
+	/**
+	 * The content is written as UTF-8, which is how a String of modified content is written as well.
+	 */
+	private void replaceTokensWhileStreaming(Resource resource, OutputStream out) throws IOException {
+		try (Reader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), charset))) {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+			((StreamingTokenReplacer) tokenReplacer).replaceTokens(reader, writer);
+			// The output stream is owned by the caller, so it is flushed but not closed
+			writer.flush();
+		}
+	}
+
+	/**
+	 * @param streamingThresholdInBytes if greater than zero, and the TokenReplacer is a StreamingTokenReplacer, then
+	 *                                  tokens in files at least this large are replaced when the file is written
+	 *                                  instead of being held in memory
+	 * @since 4.8.0
+	 */
+	public void setStreamingThresholdInBytes(long streamingThresholdInBytes) {
+		this.streamingThresholdInBytes = streamingThresholdInBytes;
+	}
+
+	/**
+	 * @return
+	 * @since 4.8.0
+	 */
+	public long getStreamingThresholdInBytes() {
+		return streamingThresholdInBytes;
+	}
+
+	/**
+	 * @param prescanEnabled if true, which is the default, and the StreamingTokenReplacer provides a TokenPrescanner,
+	 *                       the content of each file is first scanned for bytes that may start a token, and files
+	 *                       without any are not read into memory
+	 * @since 4.8.0
+	 */
+	public void setPrescanEnabled(boolean prescanEnabled) {
+		this.prescanEnabled = prescanEnabled;
+	}
+
+	/**
+	 * @return
+	 * @since 4.8.0
+	 */
+	public boolean isPrescanEnabled() {
+		return prescanEnabled;
+	}
+
+	/**
+	 * @param charset the charset used to read files; defaults to the platform default charset
+	 * @since 4.8.0
+	 */
+	public void setCharset(Charset charset) {
+		this.charset = charset;
+	}
+
+	/**
+	 * @return
+	 * @since 4.8.0
+	 */
+	public Charset getCharset() {
+		return charset;
+	}
 }
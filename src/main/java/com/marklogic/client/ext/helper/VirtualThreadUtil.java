@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.helper;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Provides access to virtual threads when running on Java 21 or higher, while still allowing this library to be
+ * compiled for and run on Java 8. The Java 21 API is accessed via reflection, so no special build or packaging is
+ * required.
+ *
+ * @since 4.8.0
+ */
+public abstract class VirtualThreadUtil {
+
+	private static volatile Boolean supported;
+
+	/**
+	 * @return true if the JVM supports creating an executor that starts a new virtual thread for each task
+	 */
+	public static boolean isSupported() {
+		if (supported == null) {
+			ExecutorService executorService = createExecutorService();
+			if (executorService != null) {
+				executorService.shutdown();
+			}
+			supported = executorService != null;
+		}
+		return supported;
+	}
+
+	/**
+	 * @return an ExecutorService that starts a new virtual thread for each task
+	 * @throws UnsupportedOperationException if the JVM does not support virtual threads
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor() {
+		ExecutorService executorService = createExecutorService();
+		if (executorService == null) {
+			throw new UnsupportedOperationException("Virtual threads require Java 21 or higher; current Java version: " +
+				System.getProperty("java.version"));
+		}
+		return executorService;
+	}
+
+	private static ExecutorService createExecutorService() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			return null;
+		} catch (InvocationTargetException e) {
+			// Occurs on Java 19 and 20 when preview features are not enabled
+			return null;
+		}
+	}
+}
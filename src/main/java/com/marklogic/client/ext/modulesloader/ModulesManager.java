@@ -31,4 +31,13 @@ public interface ModulesManager {
     boolean hasFileBeenModifiedSinceLastLoaded(File file);
 
     void saveLastLoadedTimestamp(File file, Date date);
+
+	/**
+	 * Give the implementor a chance to persist any updates that it has buffered since it was initialized. Called once
+	 * a set of modules has been loaded; the default implementation does nothing.
+	 *
+	 * @since 4.8.0
+	 */
+	default void flush() {
+	}
 }
@@ -18,8 +18,22 @@ package com.marklogic.client.ext.modulesloader.impl;
 import com.marklogic.client.ext.file.DocumentFile;
 import com.marklogic.client.ext.helper.LoggingObject;
 import com.marklogic.client.io.Format;
+import com.marklogic.client.io.OutputStreamSender;
+import org.springframework.util.FileCopyUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 
 /**
  * Has all the guts for doing static checking, but delegates the execution of an XQuery script to a subclass.
@@ -29,12 +43,24 @@ public abstract class AbstractStaticChecker extends LoggingObject implements Sta
 	private boolean checkLibraryModules = false;
 	private boolean bulkCheck = false;
 
+	// For only checking changed modules and the modules that import them
+	private boolean incrementalCheck = false;
+	private ModuleImportGraph importGraph;
+	private File importGraphFile;
+
+	// For checking modules in parallel
+	private int checkThreadCount = 1;
+	private int bulkCheckBatchSize = 0;
+	private Charset charset = Charset.defaultCharset();
+
 	@Override
 	public void checkLoadedAssets(List<DocumentFile> assets) {
 		if (assets == null || assets.isEmpty()) {
 			return;
 		}
-		if (bulkCheck) {
+		if (incrementalCheck || checkThreadCount > 1 || (bulkCheck && bulkCheckBatchSize > 0)) {
+			checkUris(incrementalCheck ? determineUrisToCheck(assets) : getCheckableUris(assets));
+		} else if (bulkCheck) {
 			performBulkStaticCheck(assets);
 		} else {
 			for (DocumentFile asset : assets) {
@@ -47,6 +73,161 @@ public abstract class AbstractStaticChecker extends LoggingObject implements Sta
 
 	protected abstract void executeQuery(String xquery);
 
+	/**
+	 * Records each checkable asset in the import graph, and then determines which modules have changed since they
+	 * were last checked. Those modules, plus every module that imports any of them directly or transitively, need to
+	 * be checked.
+	 *
+	 * @param assets
+	 * @return the URIs of the modules to check
+	 */
+	protected List<String> determineUrisToCheck(List<DocumentFile> assets) {
+		ModuleImportGraph graph = getImportGraph();
+		List<String> changedUris = new ArrayList<>();
+		for (DocumentFile asset : assets) {
+			if (canBeStaticallyChecked(asset)) {
+				byte[] bytes = readContent(asset);
+				if (graph.update(asset.getUri(), hash(bytes), decodeContent(asset, bytes))) {
+					changedUris.add(asset.getUri());
+				}
+			}
+		}
+		Set<String> uris = graph.addTransitiveImporters(changedUris);
+		if (logger.isInfoEnabled()) {
+			logger.info(format("%d of %d loaded modules have changed since they were last checked; checking %d modules including those that import them",
+				changedUris.size(), assets.size(), uris.size()));
+		}
+		return new ArrayList<>(uris);
+	}
+
+	protected List<String> getCheckableUris(List<DocumentFile> assets) {
+		List<String> uris = new ArrayList<>();
+		for (DocumentFile asset : assets) {
+			if (canBeStaticallyChecked(asset)) {
+				uris.add(asset.getUri());
+			}
+		}
+		return uris;
+	}
+
+	/**
+	 * Checks the given URIs - in batches of bulkCheckBatchSize if bulkCheck is true, else one at a time - via up to
+	 * checkThreadCount concurrent calls to executeQuery. Every batch is checked before the first failure is rethrown.
+	 * If incrementalCheck is true, the import graph is saved when every module passes; otherwise, the given modules
+	 * are removed from the graph so that they are checked again next time.
+	 *
+	 * @param uris
+	 */
+	protected void checkUris(List<String> uris) {
+		List<Runnable> checks = new ArrayList<>();
+		if (bulkCheck) {
+			int batchSize = bulkCheckBatchSize > 0 ? bulkCheckBatchSize : Math.max(1, uris.size());
+			for (int i = 0; i < uris.size(); i += batchSize) {
+				List<String> batch = uris.subList(i, Math.min(i + batchSize, uris.size()));
+				checks.add(() -> performBulkStaticCheckOfUris(batch));
+			}
+		} else {
+			uris.forEach(uri -> checks.add(() -> staticallyCheckModule(uri)));
+		}
+
+		try {
+			runChecks(checks);
+		} catch (RuntimeException ex) {
+			if (importGraph != null) {
+				uris.forEach(importGraph::remove);
+			}
+			throw ex;
+		}
+		if (incrementalCheck && importGraphFile != null) {
+			getImportGraph().save(importGraphFile);
+		}
+	}
+
+	private void runChecks(List<Runnable> checks) {
+		if (checkThreadCount <= 1 || checks.size() < 2) {
+			checks.forEach(Runnable::run);
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(checkThreadCount, checks.size()));
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			checks.forEach(check -> futures.add(executor.submit(check)));
+			RuntimeException failure = null;
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("Interrupted while statically checking modules", e);
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						Throwable cause = e.getCause();
+						failure = cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+					}
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * @param asset
+	 * @return the content that was written to MarkLogic for the given asset - i.e. after any tokens were replaced,
+	 * including when they were replaced while streaming - so that a change to a token's value causes the module to be
+	 * checked again
+	 */
+	protected byte[] readContent(DocumentFile asset) {
+		if (asset.getModifiedContent() != null) {
+			return asset.getModifiedContent().getBytes(StandardCharsets.UTF_8);
+		}
+		try {
+			OutputStreamSender sender = asset.getModifiedContentSender();
+			if (sender != null) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				sender.write(out);
+				return out.toByteArray();
+			}
+			return FileCopyUtils.copyToByteArray(asset.getResource().getInputStream());
+		} catch (IOException ex) {
+			throw new RuntimeException("Unable to read module at URI: " + asset.getUri() + "; cause: " + ex.getMessage(), ex);
+		}
+	}
+
+	/**
+	 * Modified content is written as UTF-8, while the content of an unmodified file is decoded via the charset of
+	 * this object.
+	 *
+	 * @param asset
+	 * @param bytes
+	 * @return
+	 */
+	protected String decodeContent(DocumentFile asset, byte[] bytes) {
+		if (asset.getModifiedContent() != null) {
+			return asset.getModifiedContent();
+		}
+		return new String(bytes, asset.getModifiedContentSender() != null ? StandardCharsets.UTF_8 : charset);
+	}
+
+	private String hash(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		return Long.toHexString(crc.getValue()) + "-" + bytes.length;
+	}
+
+	public ModuleImportGraph getImportGraph() {
+		if (importGraph == null) {
+			importGraph = new ModuleImportGraph();
+			if (importGraphFile != null) {
+				importGraph.load(importGraphFile);
+			}
+		}
+		return importGraph;
+	}
+
 	/**
 	 * Statically checks the module at the given URI. Includes support for evaluating a library module by trying to
 	 * extract its namespace and then using xdmp:eval to evaluate a module that imports the library module. If this
@@ -71,28 +252,29 @@ public abstract class AbstractStaticChecker extends LoggingObject implements Sta
 			|| format.equals(Format.XML));
 	}
 
-	protected void performBulkStaticCheck(List<DocumentFile> assets) {
-		String xquery = "let $uris := (";
-		for (DocumentFile asset : assets) {
-			if (canBeStaticallyChecked(asset)) {
-				String uri = asset.getUri();
-				if (!xquery.endsWith("(")) {
-					xquery += ",";
-				}
-				xquery += "'" + uri + "'";
+	protected void performBulkStaticCheckOfUris(List<String> uris) {
+		StringBuilder xquery = new StringBuilder("let $uris := (");
+		for (int i = 0; i < uris.size(); i++) {
+			if (i > 0) {
+				xquery.append(",");
 			}
+			xquery.append("'").append(uris.get(i)).append("'");
 		}
-		xquery += ") for $uri in $uris return " + buildXqueryForStaticallyCheckingModule();
+		xquery.append(") for $uri in $uris return ").append(buildXqueryForStaticallyCheckingModule());
 
 		if (logger.isInfoEnabled()) {
-			logger.info("Static checking all loaded modules");
+			logger.info(format("Static checking %d modules", uris.size()));
 		}
-		executeQuery(xquery);
+		executeQuery(xquery.toString());
 		if (logger.isInfoEnabled()) {
-			logger.info("Finished static checking all loaded modules");
+			logger.info(format("Finished static checking %d modules", uris.size()));
 		}
 	}
 
+	protected void performBulkStaticCheck(List<DocumentFile> assets) {
+		performBulkStaticCheckOfUris(getCheckableUris(assets));
+	}
+
 
 	/**
 	 * Assumes that there's already a variable in XQuery named "uri" in scope. If the module is a library module, an
@@ -131,4 +313,55 @@ public abstract class AbstractStaticChecker extends LoggingObject implements Sta
 	public void setBulkCheck(boolean bulkCheck) {
 		this.bulkCheck = bulkCheck;
 	}
+
+	/**
+	 * @param incrementalCheck if true, only loaded modules whose content has changed since they last passed a static
+	 *                         check are checked, along with every module that imports them directly or transitively
+	 * @since 4.8.0
+	 */
+	public void setIncrementalCheck(boolean incrementalCheck) {
+		this.incrementalCheck = incrementalCheck;
+	}
+
+	/**
+	 * @param importGraphFile if set, the import graph used for incremental checking is loaded from and saved to this
+	 *                        file so that it is retained between runs
+	 * @since 4.8.0
+	 */
+	public void setImportGraphFile(File importGraphFile) {
+		this.importGraphFile = importGraphFile;
+		this.importGraph = null;
+	}
+
+	/**
+	 * @param checkThreadCount the number of modules or bulk batches to check concurrently, each via a separate call
+	 *                         to executeQuery; the implementation of executeQuery must thus be thread-safe
+	 * @since 4.8.0
+	 */
+	public void setCheckThreadCount(int checkThreadCount) {
+		this.checkThreadCount = checkThreadCount;
+	}
+
+	/**
+	 * @param bulkCheckBatchSize the maximum number of modules to check in a single call when bulkCheck is true; if
+	 *                           zero, all modules are checked in one call
+	 * @since 4.8.0
+	 */
+	public void setBulkCheckBatchSize(int bulkCheckBatchSize) {
+		this.bulkCheckBatchSize = bulkCheckBatchSize;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * @param charset used to decode a module that was not modified by a TokenReplacer in order to find the modules it
+	 *                imports; should be the same as the charset of the TokenReplacerDocumentFileProcessor used when
+	 *                loading modules, and thus defaults to the platform default charset
+	 * @since 4.8.0
+	 */
+	public void setCharset(Charset charset) {
+		this.charset = charset;
+	}
 }
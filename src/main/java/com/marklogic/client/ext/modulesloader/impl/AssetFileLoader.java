@@ -17,9 +17,13 @@ package com.marklogic.client.ext.modulesloader.impl;
 
 import com.marklogic.client.DatabaseClient;
 import com.marklogic.client.ext.batch.BatchWriter;
+import com.marklogic.client.ext.file.DocumentFile;
+import com.marklogic.client.ext.file.DocumentFileProcessor;
 import com.marklogic.client.ext.file.GenericFileLoader;
 import com.marklogic.client.ext.modulesloader.ModulesManager;
 
+import java.util.List;
+
 /**
  * File loaded for "assets", as defined by the REST API - basically, any server module. Be sure to use a DatabaseClient
  * that points to your modules database.
@@ -28,12 +32,20 @@ public class AssetFileLoader extends GenericFileLoader {
 
 	public final static String DEFAULT_PERMISSIONS = "rest-admin,read,rest-admin,update,rest-extension-user,execute";
 
+	private ModulesManager modulesManager;
+	private DatabaseClient modulesDatabaseClient;
+
+	private boolean serverDiffEnabled;
+	private List<String> orphanedUriPrefixes;
+	private ServerDiffDocumentFileProcessor serverDiffDocumentFileProcessor;
+
 	public AssetFileLoader(DatabaseClient modulesDatabaseClient) {
 		this(modulesDatabaseClient, null);
 	}
 
 	public AssetFileLoader(DatabaseClient modulesDatabaseClient, ModulesManager modulesManager) {
 		super(modulesDatabaseClient);
+		this.modulesDatabaseClient = modulesDatabaseClient;
 		initializeAssetFileLoader(modulesManager);
 	}
 
@@ -50,8 +62,114 @@ public class AssetFileLoader extends GenericFileLoader {
 		addFileFilter(new DefaultFileFilter());
 		addDocumentFileProcessor(new ExtDocumentFileProcessor());
 		if (modulesManager != null) {
+			this.modulesManager = modulesManager;
 			addDocumentFileProcessor(new ModulesManagerDocumentFileProcessor(modulesManager));
 		}
 		setPermissions(DEFAULT_PERMISSIONS);
 	}
+
+	/**
+	 * Flushes the ModulesManager, if one was provided, once the files have been loaded so that any timestamps it has
+	 * buffered are persisted.
+	 * <p>
+	 * If serverDiffEnabled is true, the hashes of the documents in the modules database are fetched first so that only
+	 * assets whose content differs are written, and orphaned documents under any of the orphanedUriPrefixes are then
+	 * deleted.
+	 *
+	 * @param paths
+	 * @return list of files from the given paths
+	 */
+	@Override
+	public List<DocumentFile> loadFiles(String... paths) {
+		try {
+			if (serverDiffEnabled) {
+				getServerDiffDocumentFileProcessor().initialize();
+			}
+			List<DocumentFile> documentFiles = super.loadFiles(paths);
+			if (serverDiffEnabled) {
+				if (logger.isInfoEnabled()) {
+					logger.info(format("Did not write %d assets as their content is identical to that in the modules database",
+						serverDiffDocumentFileProcessor.getUnchangedCount()));
+				}
+				if (orphanedUriPrefixes != null && !orphanedUriPrefixes.isEmpty()) {
+					serverDiffDocumentFileProcessor.deleteOrphanedUris(orphanedUriPrefixes);
+				}
+			}
+			return documentFiles;
+		} finally {
+			if (modulesManager != null) {
+				modulesManager.flush();
+			}
+		}
+	}
+
+	/**
+	 * When serverDiffEnabled is true, the modules database - rather than a ModulesManager - determines which assets
+	 * need to be written, and thus any ModulesManagerDocumentFileProcessor is replaced with a
+	 * ServerDiffDocumentFileProcessor. The latter is added last so that it hashes content after tokens are replaced.
+	 *
+	 * @return the processors to add to the DocumentFileReader
+	 */
+	@Override
+	protected List<DocumentFileProcessor> buildDocumentFileProcessors() {
+		List<DocumentFileProcessor> processors = super.buildDocumentFileProcessors();
+		if (serverDiffEnabled) {
+			processors.removeIf(processor -> processor instanceof ModulesManagerDocumentFileProcessor);
+			processors.add(getServerDiffDocumentFileProcessor());
+		}
+		return processors;
+	}
+
+	public ServerDiffDocumentFileProcessor getServerDiffDocumentFileProcessor() {
+		if (serverDiffDocumentFileProcessor == null) {
+			if (modulesDatabaseClient == null) {
+				throw new IllegalStateException("A DatabaseClient for the modules database must be set in order to compare assets with the modules database");
+			}
+			serverDiffDocumentFileProcessor = new ServerDiffDocumentFileProcessor(modulesDatabaseClient);
+		}
+		return serverDiffDocumentFileProcessor;
+	}
+
+	public boolean isServerDiffEnabled() {
+		return serverDiffEnabled;
+	}
+
+	/**
+	 * @param serverDiffEnabled if true, each text and binary asset is compared with the document at the same URI in the
+	 *                          modules database, and it is only written if its content differs. Must be set before
+	 *                          files are first loaded. Setting readerParallelism allows for assets to be hashed in
+	 *                          parallel.
+	 * @since 4.8.0
+	 */
+	public void setServerDiffEnabled(boolean serverDiffEnabled) {
+		this.serverDiffEnabled = serverDiffEnabled;
+	}
+
+	public List<String> getOrphanedUriPrefixes() {
+		return orphanedUriPrefixes;
+	}
+
+	/**
+	 * @param orphanedUriPrefixes if set and serverDiffEnabled is true, documents in the modules database whose URI
+	 *                            starts with one of these prefixes and that do not correspond to any asset loaded by
+	 *                            this object are deleted. Nothing is deleted by default. Each prefix should only cover
+	 *                            URIs produced by the module roots that are loaded - e.g. "/ext/" - and never URIs
+	 *                            that belong to other roots or applications sharing the modules database; a prefix is
+	 *                            skipped by a call to loadFiles that does not load any asset under it. Should not be
+	 *                            combined with file filters that exclude assets under these prefixes, as those would
+	 *                            be deleted too.
+	 * @since 4.8.0
+	 */
+	public void setOrphanedUriPrefixes(List<String> orphanedUriPrefixes) {
+		this.orphanedUriPrefixes = orphanedUriPrefixes;
+	}
+
+	/**
+	 * @param modulesDatabaseClient used for comparing assets with the modules database; only needs to be set when this
+	 *                              object was constructed with a BatchWriter
+	 * @since 4.8.0
+	 */
+	public void setModulesDatabaseClient(DatabaseClient modulesDatabaseClient) {
+		this.modulesDatabaseClient = modulesDatabaseClient;
+	}
 }
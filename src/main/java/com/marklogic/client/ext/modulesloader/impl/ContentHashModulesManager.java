@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.modulesloader.impl;
+
+import com.marklogic.client.DatabaseClient;
+import com.marklogic.client.ext.helper.LoggingObject;
+import com.marklogic.client.ext.modulesloader.ModulesManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * {@code ModulesManager} that decides whether a module has been modified based on its content instead of its last
+ * modified timestamp. For each loaded file, the size, last modified timestamp and a CRC32 checksum of the content are
+ * stored in a compact binary index file. A file's content is only read when its size or timestamp differs from what
+ * was recorded, and the file is considered modified only when the checksum differs as well. A git checkout or a
+ * restored build cache that touches every file will thus not cause every module to be reloaded.
+ * <p>
+ * The {@code Date} passed to {@code saveLastLoadedTimestamp} is not used, as the file's own timestamp is what is
+ * compared on the next load. Entries are kept in memory and the index file is only written when {@code flush()} is
+ * called, which DefaultModulesLoader and AssetFileLoader do once all modules have been loaded.
+ *
+ * @since 4.8.0
+ */
+public class ContentHashModulesManager extends LoggingObject implements ModulesManager {
+
+	public static final String DEFAULT_FILE_PATH = "build/ml-javaclient-util/module-content-hashes.bin";
+
+	private static final int INDEX_MAGIC = 0x4D4C4348;
+	private static final int INDEX_VERSION = 1;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	// Entries computed by hasFileBeenModifiedSinceLastLoaded so that saveLastLoadedTimestamp need not read the file again
+	private final Map<String, Entry> pendingEntries = new ConcurrentHashMap<>();
+
+	private final String indexFilePath;
+	private volatile boolean dirty;
+	private String host;
+
+	public ContentHashModulesManager() {
+		this(DEFAULT_FILE_PATH);
+	}
+
+	public ContentHashModulesManager(String indexFilePath) {
+		this.indexFilePath = indexFilePath;
+	}
+
+	/**
+	 * Use this constructor so that the keys generated for the index file account for the host associated with the
+	 * given DatabaseClient.
+	 *
+	 * @param indexFilePath
+	 * @param client
+	 */
+	public ContentHashModulesManager(String indexFilePath, DatabaseClient client) {
+		this(indexFilePath);
+		if (client != null) {
+			host = client.getHost();
+		}
+	}
+
+	@Override
+	public void initialize() {
+		entries.clear();
+		pendingEntries.clear();
+		dirty = false;
+
+		File indexFile = new File(indexFilePath);
+		if (indexFile.getParentFile() != null) {
+			indexFile.getParentFile().mkdirs();
+		}
+
+		if (indexFile.exists()) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Loading module content hashes from: " + indexFile.getAbsolutePath());
+			}
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+				if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+					logger.warn("Ignoring unrecognized module content hash index: " + indexFile.getAbsolutePath());
+					return;
+				}
+				final int count = in.readInt();
+				for (int i = 0; i < count; i++) {
+					String key = in.readUTF();
+					entries.put(key, new Entry(in.readLong(), in.readLong(), in.readInt()));
+				}
+			} catch (Exception e) {
+				entries.clear();
+				logger.warn("Unable to load module content hash index, cause: " + e.getMessage());
+			}
+		}
+	}
+
+	public void deleteIndexFile() {
+		File indexFile = new File(indexFilePath);
+		if (indexFile.exists()) {
+			indexFile.delete();
+		}
+		entries.clear();
+		pendingEntries.clear();
+		dirty = false;
+	}
+
+	/**
+	 * @param file
+	 * @return true if the file has not been loaded before or if its content differs from when it was last loaded
+	 */
+	@Override
+	public boolean hasFileBeenModifiedSinceLastLoaded(File file) {
+		final String key = buildKey(file);
+		final Entry entry = entries.get(key);
+		if (entry == null) {
+			return true;
+		}
+
+		final long size = file.length();
+		final long lastModified = file.lastModified();
+		if (entry.size == size && entry.lastModified == lastModified) {
+			return false;
+		}
+		if (entry.size != size) {
+			return true;
+		}
+
+		final Entry current;
+		try {
+			current = new Entry(size, lastModified, hash(file));
+		} catch (IOException e) {
+			logger.warn(format("Unable to compute checksum of file %s, will consider it modified; cause: %s",
+				file.getAbsolutePath(), e.getMessage()));
+			return true;
+		}
+
+		if (current.hash == entry.hash) {
+			if (logger.isDebugEnabled()) {
+				logger.debug(format("Timestamp of file %s changed but its content did not", file.getAbsolutePath()));
+			}
+			// Record the new timestamp so the file need not be read again
+			entries.put(key, current);
+			dirty = true;
+			return false;
+		}
+		pendingEntries.put(key, current);
+		return true;
+	}
+
+	/**
+	 * @param file
+	 * @param date not used; the file's last modified timestamp is recorded instead
+	 */
+	@Override
+	public void saveLastLoadedTimestamp(File file, Date date) {
+		final String key = buildKey(file);
+		final long size = file.length();
+		final long lastModified = file.lastModified();
+
+		Entry entry = pendingEntries.remove(key);
+		if (entry == null || entry.size != size || entry.lastModified != lastModified) {
+			try {
+				entry = new Entry(size, lastModified, hash(file));
+			} catch (IOException e) {
+				logger.warn(format("Unable to compute checksum of file %s, cause: %s", file.getAbsolutePath(), e.getMessage()));
+				entries.remove(key);
+				return;
+			}
+		}
+		entries.put(key, entry);
+		dirty = true;
+	}
+
+	/**
+	 * Writes the index if any entries have changed since it was loaded or last written.
+	 */
+	@Override
+	public synchronized void flush() {
+		if (dirty) {
+			dirty = false;
+			writeIndex();
+		}
+	}
+
+	/**
+	 * Writes the index to a temporary file which then replaces the index file, so that an interrupted write does not
+	 * leave behind a corrupt index.
+	 */
+	protected synchronized void writeIndex() {
+		File indexFile = new File(indexFilePath);
+		File parent = indexFile.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+		File tempFile = new File(parent, indexFile.getName() + ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+				// Copy first so that the count always matches the number of entries written
+				Map<String, Entry> snapshot = new HashMap<>(entries);
+				out.writeInt(INDEX_MAGIC);
+				out.writeInt(INDEX_VERSION);
+				out.writeInt(snapshot.size());
+				for (Map.Entry<String, Entry> e : snapshot.entrySet()) {
+					out.writeUTF(e.getKey());
+					out.writeLong(e.getValue().size);
+					out.writeLong(e.getValue().lastModified);
+					out.writeInt(e.getValue().hash);
+				}
+			}
+			Path source = tempFile.toPath();
+			Path target = indexFile.toPath();
+			try {
+				Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (Exception e) {
+			dirty = true;
+			logger.warn("Unable to store module content hash index, cause: " + e.getMessage());
+		}
+	}
+
+	protected int hash(File file) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		try (InputStream in = new FileInputStream(file)) {
+			int len;
+			while ((len = in.read(buffer)) != -1) {
+				crc.update(buffer, 0, len);
+			}
+		}
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * @param file
+	 * @return a string that can be used as a key in the index; lower-cases the drive letter in the same fashion as
+	 * {@code PropertiesModuleManager}
+	 */
+	protected String buildKey(File file) {
+		Path absolutePath = file.toPath().toAbsolutePath();
+		String path = absolutePath.toString();
+		Path root = absolutePath.getRoot();
+		if (root != null) {
+			String drive = root.toString();
+			if (path.startsWith(drive)) {
+				path = drive.toLowerCase() + path.substring(drive.length());
+			}
+		}
+		return host != null ? host + ":" + path : path;
+	}
+
+	public String getIndexFilePath() {
+		return indexFilePath;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public void setHost(String host) {
+		this.host = host;
+	}
+
+	private static class Entry {
+		final long size;
+		final long lastModified;
+		final int hash;
+
+		Entry(long size, long lastModified, int hash) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hash = hash;
+		}
+	}
+}
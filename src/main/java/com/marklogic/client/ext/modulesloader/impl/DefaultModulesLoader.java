@@ -26,23 +26,37 @@ import com.marklogic.client.ext.file.DocumentFile;
 import com.marklogic.client.ext.file.DocumentFileReader;
 import com.marklogic.client.ext.helper.FilenameUtil;
 import com.marklogic.client.ext.helper.LoggingObject;
+import com.marklogic.client.ext.helper.VirtualThreadUtil;
 import com.marklogic.client.ext.modulesloader.*;
 import com.marklogic.client.ext.tokenreplacer.TokenReplacer;
 import com.marklogic.client.io.Format;
 import com.marklogic.client.io.StringHandle;
+import org.jdom2.Attribute;
 import org.jdom2.Element;
 import org.jdom2.input.SAXBuilder;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.core.io.Resource;
 import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.scheduling.concurrent.ExecutorConfigurationSupport;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.util.FileCopyUtils;
 
+import javax.xml.namespace.NamespaceContext;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
@@ -67,6 +81,17 @@ import java.util.regex.Pattern;
  */
 public class DefaultModulesLoader extends LoggingObject implements ModulesLoader {
 
+	// Names of the phases of loading modules, as reported by getPhaseTimings
+	public static final String PHASE_PROPERTIES = "properties";
+	public static final String PHASE_NAMESPACES = "namespaces";
+	public static final String PHASE_ASSETS = "assets";
+	public static final String PHASE_OPTIONS = "options";
+	public static final String PHASE_TRANSFORMS = "transforms";
+	public static final String PHASE_SERVICES = "services";
+
+	private static final List<String> PHASES = Arrays.asList(PHASE_PROPERTIES, PHASE_NAMESPACES, PHASE_ASSETS,
+		PHASE_OPTIONS, PHASE_TRANSFORMS, PHASE_SERVICES);
+
 	private DatabaseClient client;
 	private AssetFileLoader assetFileLoader;
 	private ExtensionMetadataProvider extensionMetadataProvider;
@@ -77,6 +102,24 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 	private TaskExecutor taskExecutor;
 	private int taskThreadCount = 8;
 	private boolean shutdownTaskExecutorAfterLoadingModules = true;
+	private final Object pendingTaskMonitor = new Object();
+	private int pendingTaskCount;
+	private boolean useVirtualThreads = false;
+	private ExecutorService virtualThreadExecutorService;
+	private Semaphore virtualThreadPermits;
+
+	// For running the phases of loading modules concurrently, and preparing each REST module in parallel
+	private boolean loadPhasesConcurrently = false;
+	private boolean syncNamespacesInBulk = false;
+	private boolean skipUnchangedWrites = false;
+
+	// When set, options/transforms/services are written directly to the modules database instead of via the REST API
+	private DirectRestModulesWriter directRestModulesWriter;
+	// Resources added to the DirectRestModulesWriter; their timestamps are only updated once they have been written
+	private final List<Resource> pendingDirectResources = Collections.synchronizedList(new ArrayList<>());
+	private int preparationThreadCount = 8;
+	private volatile ExecutorService preparationExecutorService;
+	private final Map<String, Long> phaseTimings = new ConcurrentHashMap<>();
 
 	// For replacing tokens in options/services/transforms
 	// Tokens in asset modules are replaced via the AssetFileLoader instance
@@ -121,6 +164,15 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 	 *
 	 */
 	public void initializeDefaultTaskExecutor() {
+		if (useVirtualThreads) {
+			if (VirtualThreadUtil.isSupported()) {
+				this.virtualThreadExecutorService = VirtualThreadUtil.newVirtualThreadPerTaskExecutor();
+				this.virtualThreadPermits = new Semaphore(Math.max(1, taskThreadCount));
+				this.taskExecutor = new ConcurrentTaskExecutor(virtualThreadExecutorService);
+				return;
+			}
+			logger.warn("Virtual threads are not supported by this version of Java, so using a thread pool instead");
+		}
 		if (taskThreadCount > 1) {
 			ThreadPoolTaskExecutor tpte = new ThreadPoolTaskExecutor();
 			tpte.setCorePoolSize(taskThreadCount);
@@ -185,21 +237,165 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 			initializeDefaultTaskExecutor();
 		}
 
+		phaseTimings.clear();
+		if (directRestModulesWriter != null) {
+			// Discard anything left over from a previous load that failed before it was written
+			directRestModulesWriter.clear();
+			pendingDirectResources.clear();
+		}
 		Set<Resource> loadedModules = new HashSet<>();
-		loadProperties(modules, loadedModules);
-		loadNamespaces(modules, loadedModules);
-		loadAssets(modules, loadedModules);
+		try {
+			if (loadPhasesConcurrently) {
+				loadedModules.addAll(loadPhasesConcurrently(modules));
+			} else {
+				runPhase(PHASE_PROPERTIES, () -> loadProperties(modules, loadedModules));
+				runPhase(PHASE_NAMESPACES, () -> loadNamespaces(modules, loadedModules));
+				runPhase(PHASE_ASSETS, () -> loadAssets(modules, loadedModules));
 
-		loadQueryOptions(modules, loadedModules);
-		loadTransforms(modules, loadedModules);
-		loadResources(modules, loadedModules);
+				runPhase(PHASE_OPTIONS, () -> loadQueryOptions(modules, loadedModules));
+				runPhase(PHASE_TRANSFORMS, () -> loadTransforms(modules, loadedModules));
+				runPhase(PHASE_SERVICES, () -> loadResources(modules, loadedModules));
+			}
 
-		waitForTaskExecutorToFinish();
+			if (directRestModulesWriter != null) {
+				writeRestModulesDirectly();
+			}
+			waitForTaskExecutorToFinish();
+		} finally {
+			// Timestamps may be buffered by the ModulesManager, so persist them once all modules have been loaded
+			if (modulesManager != null) {
+				modulesManager.flush();
+			}
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Time spent in each phase of loading modules, in ms: " + getPhaseTimings());
+		}
 		rethrowRestModulesFailureIfOneExists();
 
 		return loadedModules;
 	}
 
+	/**
+	 * Writes the REST modules collected by the DirectRestModulesWriter, and only then updates their timestamps. If the
+	 * write fails, the timestamps are not updated, and thus the modules are installed again by the next load.
+	 */
+	private void writeRestModulesDirectly() {
+		List<Resource> resources;
+		synchronized (pendingDirectResources) {
+			resources = new ArrayList<>(pendingDirectResources);
+			pendingDirectResources.clear();
+		}
+		directRestModulesWriter.write();
+		resources.forEach(this::updateTimestamp);
+	}
+
+	/**
+	 * Runs each phase of loading modules as soon as the phases it depends on have finished. REST server properties are
+	 * loaded first, as they can affect how the server handles the other modules - e.g. whether query options are
+	 * validated. Query options are loaded after namespaces, as options may refer to namespace prefixes. Assets,
+	 * transforms and services have no other dependencies and are thus loaded concurrently. Within the namespaces,
+	 * options, transforms and services phases, each module is read, has its tokens replaced, and is installed via a
+	 * pool of preparationThreadCount threads.
+	 *
+	 * @param modules
+	 * @return the set of resources capturing each module that was written
+	 */
+	protected Set<Resource> loadPhasesConcurrently(Modules modules) {
+		final Set<Resource> loadedModules = Collections.synchronizedSet(new HashSet<>());
+		final ExecutorService phaseExecutor = Executors.newFixedThreadPool(PHASES.size(),
+			new CustomizableThreadFactory("DefaultModulesLoader-phase-"));
+		preparationExecutorService = Executors.newFixedThreadPool(Math.max(1, preparationThreadCount),
+			new CustomizableThreadFactory("DefaultModulesLoader-prepare-"));
+		try {
+			Map<String, CompletableFuture<Void>> phases = new LinkedHashMap<>();
+			CompletableFuture<Void> properties = CompletableFuture.runAsync(
+				() -> runPhase(PHASE_PROPERTIES, () -> loadProperties(modules, loadedModules)), phaseExecutor);
+			CompletableFuture<Void> namespaces = properties.thenRunAsync(
+				() -> runPhase(PHASE_NAMESPACES, () -> loadNamespaces(modules, loadedModules)), phaseExecutor);
+			phases.put(PHASE_PROPERTIES, properties);
+			phases.put(PHASE_NAMESPACES, namespaces);
+			phases.put(PHASE_ASSETS, properties.thenRunAsync(
+				() -> runPhase(PHASE_ASSETS, () -> loadAssets(modules, loadedModules)), phaseExecutor));
+			phases.put(PHASE_OPTIONS, namespaces.thenRunAsync(
+				() -> runPhase(PHASE_OPTIONS, () -> loadQueryOptions(modules, loadedModules)), phaseExecutor));
+			phases.put(PHASE_TRANSFORMS, properties.thenRunAsync(
+				() -> runPhase(PHASE_TRANSFORMS, () -> loadTransforms(modules, loadedModules)), phaseExecutor));
+			phases.put(PHASE_SERVICES, properties.thenRunAsync(
+				() -> runPhase(PHASE_SERVICES, () -> loadResources(modules, loadedModules)), phaseExecutor));
+
+			// Wait for every phase, and then rethrow the failure of the earliest phase that failed
+			CompletableFuture.allOf(phases.values().toArray(new CompletableFuture[0])).exceptionally(ex -> null).join();
+			for (CompletableFuture<Void> phase : phases.values()) {
+				try {
+					phase.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("Interrupted while loading modules", e);
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+				}
+			}
+		} finally {
+			phaseExecutor.shutdown();
+			preparationExecutorService.shutdown();
+			preparationExecutorService = null;
+		}
+		return new HashSet<>(loadedModules);
+	}
+
+	/**
+	 * Runs the given phase of loading modules and records how long it took.
+	 *
+	 * @param phase
+	 * @param runnable
+	 */
+	protected void runPhase(String phase, Runnable runnable) {
+		long start = System.currentTimeMillis();
+		try {
+			runnable.run();
+		} finally {
+			phaseTimings.put(phase, System.currentTimeMillis() - start);
+		}
+	}
+
+	/**
+	 * Applies the given action to each resource - concurrently, if phases are being loaded concurrently. In the latter
+	 * case, this waits for every action to finish, and then rethrows the first failure.
+	 *
+	 * @param resources
+	 * @param action
+	 */
+	protected void forEachResource(List<Resource> resources, Consumer<Resource> action) {
+		final ExecutorService executor = preparationExecutorService;
+		if (executor == null || resources.size() < 2) {
+			resources.forEach(action);
+			return;
+		}
+
+		List<Future<?>> futures = new ArrayList<>();
+		for (Resource r : resources) {
+			futures.add(executor.submit(() -> action.accept(r)));
+		}
+		RuntimeException failure = null;
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while loading modules", e);
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					Throwable cause = e.getCause();
+					failure = cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
 	protected void rethrowRestModulesFailureIfOneExists() {
 		if (failureListeners != null && rethrowRestModulesFailure) {
 			for (LoadModulesFailureListener listener : failureListeners) {
@@ -217,22 +413,68 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 	/**
 	 * If an AsyncTaskExecutor is used for loading options/services/transforms, we need to wait for the tasks to complete
 	 * before we e.g. release the DatabaseClient.
+	 * <p>
+	 * If shutdownTaskExecutorAfterLoadingModules is false, this waits for every task submitted via executeTask to
+	 * finish without shutting down the TaskExecutor, which can then be reused for the next call to loadModules. In that
+	 * case, close() should be called once the TaskExecutor is no longer needed.
 	 */
 	public void waitForTaskExecutorToFinish() {
 		if (shutdownTaskExecutorAfterLoadingModules) {
-			if (taskExecutor instanceof ExecutorConfigurationSupport) {
-				((ExecutorConfigurationSupport) taskExecutor).shutdown();
-				taskExecutor = null;
-			} else if (taskExecutor instanceof DisposableBean) {
+			shutdownTaskExecutor();
+		} else {
+			if (logger.isDebugEnabled()) {
+				logger.debug("shutdownTaskExecutorAfterLoadingModules is set to false, so waiting for tasks to finish without shutting down taskExecutor");
+			}
+			awaitPendingTasks();
+		}
+	}
+
+	/**
+	 * Shuts down the TaskExecutor, waiting for any tasks to finish.
+	 *
+	 * @since 4.8.0
+	 */
+	public void close() {
+		shutdownTaskExecutor();
+	}
+
+	private void awaitPendingTasks() {
+		synchronized (pendingTaskMonitor) {
+			while (pendingTaskCount > 0) {
 				try {
-					((DisposableBean) taskExecutor).destroy();
-				} catch (Exception ex) {
-					logger.warn("Unexpected exception while calling destroy() on taskExecutor: " + ex.getMessage(), ex);
+					pendingTaskMonitor.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("Interrupted while waiting for modules to be loaded", e);
 				}
-				taskExecutor = null;
 			}
-		} else if (logger.isDebugEnabled()) {
-			logger.debug("shutdownTaskExecutorAfterLoadingModules is set to false, so not shutting down taskExecutor");
+		}
+	}
+
+	private void pendingTaskFinished() {
+		synchronized (pendingTaskMonitor) {
+			pendingTaskCount--;
+			pendingTaskMonitor.notifyAll();
+		}
+	}
+
+	private void shutdownTaskExecutor() {
+		if (virtualThreadExecutorService != null) {
+			awaitPendingTasks();
+			virtualThreadExecutorService.shutdown();
+			virtualThreadExecutorService = null;
+			virtualThreadPermits = null;
+			taskExecutor = null;
+		} else if (taskExecutor instanceof ExecutorConfigurationSupport) {
+			((ExecutorConfigurationSupport) taskExecutor).shutdown();
+			taskExecutor = null;
+		} else if (taskExecutor instanceof DisposableBean) {
+			try {
+				((DisposableBean) taskExecutor).destroy();
+			} catch (Exception ex) {
+				logger.warn("Unexpected exception while calling destroy() on taskExecutor: " + ex.getMessage(), ex);
+			}
+			taskExecutor = null;
 		}
 	}
 
@@ -253,12 +495,32 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 		}
 
 		ServerConfigurationManager mgr = client.newServerConfigManager();
+		List<Object> currentConfiguration = null;
+		if (skipUnchangedWrites) {
+			try {
+				mgr.readConfiguration();
+				currentConfiguration = getServerConfigurationValues(mgr);
+			} catch (Exception ex) {
+				logger.warn(format("Unable to read REST server configuration, will write it; cause: %s", ex.getMessage()));
+				mgr = client.newServerConfigManager();
+			}
+		}
 		if (f.getName().endsWith("xml")) {
 			applyXmlProperties(mgr, r, f);
 		} else {
 			applyJsonProperties(mgr, r, f);
 		}
 
+		if (currentConfiguration != null && currentConfiguration.equals(getServerConfigurationValues(mgr))) {
+			if (logger.isInfoEnabled()) {
+				logger.info("REST server configuration is unchanged, so not writing it; " + getDatabaseClientInfo(client));
+			}
+			if (f != null && modulesManager != null) {
+				modulesManager.saveLastLoadedTimestamp(f, new Date());
+			}
+			return;
+		}
+
 		if (logger.isInfoEnabled()) {
 			logger.info("Writing REST server configuration to MarkLogic; " + getDatabaseClientInfo(client));
 			logger.info("Default document read transform: " + mgr.getDefaultDocumentReadTransform());
@@ -280,6 +542,16 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 		loadedModules.add(r);
 	}
 
+	/**
+	 * @param mgr
+	 * @return the value of each server configuration field that can be set via a REST properties file
+	 */
+	protected List<Object> getServerConfigurationValues(ServerConfigurationManager mgr) {
+		return Arrays.asList(mgr.getServerRequestLogging(), mgr.getDefaultDocumentReadTransformAll(),
+			mgr.getDefaultDocumentReadTransform(), mgr.getUpdatePolicy(), mgr.getQueryOptionValidation(),
+			mgr.getQueryValidation());
+	}
+
 	protected void applyJsonProperties(ServerConfigurationManager mgr, Resource r, File file) {
 		ObjectMapper m = new ObjectMapper();
 		JsonNode node;
@@ -434,11 +706,11 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 			return;
 		}
 
-		for (Resource r : modules.getOptions()) {
+		forEachResource(modules.getOptions(), r -> {
 			if (installQueryOptions(r) != null) {
 				loadedModules.add(r);
 			}
-		}
+		});
 	}
 
 	/**
@@ -450,7 +722,7 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 			return;
 		}
 
-		for (Resource r : modules.getTransforms()) {
+		forEachResource(modules.getTransforms(), r -> {
 			try {
 				ExtensionMetadataAndParams emap = extensionMetadataProvider.provideExtensionMetadataAndParams(r);
 				if (installTransform(r, emap.metadata) != null) {
@@ -466,7 +738,7 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 					throw e;
 				}
 			}
-		}
+		});
 	}
 
 	/**
@@ -478,7 +750,7 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 			return;
 		}
 
-		for (Resource r : modules.getServices()) {
+		forEachResource(modules.getServices(), r -> {
 			try {
 				ExtensionMetadataAndParams emap = extensionMetadataProvider.provideExtensionMetadataAndParams(r);
 				if (installService(r, emap.metadata, emap.methods.toArray(new MethodParameters[]{})) != null) {
@@ -494,7 +766,7 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 					throw e;
 				}
 			}
-		}
+		});
 	}
 
 	/**
@@ -506,11 +778,80 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 			return;
 		}
 
-		for (Resource r : modules.getNamespaces()) {
+		if (syncNamespacesInBulk) {
+			syncNamespaces(modules.getNamespaces(), loadedModules);
+			return;
+		}
+
+		forEachResource(modules.getNamespaces(), r -> {
 			if (installNamespace(r) != null) {
 				loadedModules.add(r);
 			}
+		});
+	}
+
+	/**
+	 * Reads every namespace currently defined on the REST server via a single call, and then only adds or updates the
+	 * namespaces whose URI differs from that in the given namespace files. This avoids the read/delete/add calls that
+	 * installNamespace makes for each namespace file.
+	 *
+	 * @param resources
+	 * @param loadedModules
+	 */
+	protected void syncNamespaces(List<Resource> resources, Set<Resource> loadedModules) {
+		List<Resource> candidates = new ArrayList<>();
+		for (Resource r : resources) {
+			if (hasFileBeenModified(r) && !ignoreResource(r)) {
+				candidates.add(r);
+			}
+		}
+		if (candidates.isEmpty()) {
+			return;
 		}
+
+		final NamespacesManager mgr = client.newServerConfigManager().newNamespacesManager();
+		final NamespaceContext existingNamespaces = mgr.readAll();
+		forEachResource(candidates, r -> {
+			if (syncNamespace(mgr, existingNamespaces, r) != null) {
+				loadedModules.add(r);
+			}
+		});
+	}
+
+	/**
+	 * @param mgr
+	 * @param existingNamespaces
+	 * @param r
+	 * @return the resource if its namespace was added or updated, else null
+	 */
+	protected Resource syncNamespace(NamespacesManager mgr, NamespaceContext existingNamespaces, Resource r) {
+		String prefix = getExtensionNameFromFile(r);
+		String namespaceUri;
+		try {
+			namespaceUri = new String(FileCopyUtils.copyToByteArray(r.getInputStream()));
+		} catch (IOException ie) {
+			logger.error("Unable to install namespace from file: " + r.getFilename(), ie);
+			return null;
+		}
+
+		String existingUri = existingNamespaces != null ? existingNamespaces.getNamespaceURI(prefix) : null;
+		if (namespaceUri.equals(existingUri)) {
+			if (logger.isDebugEnabled()) {
+				logger.debug(format("Namespace with prefix of %s already has URI of %s, so not updating it", prefix, namespaceUri));
+			}
+			updateTimestamp(r);
+			return null;
+		}
+
+		if (existingUri == null || existingUri.isEmpty()) {
+			logger.info(format("Adding namespace with prefix of %s and URI of %s", prefix, namespaceUri));
+			mgr.addPrefix(prefix, namespaceUri);
+		} else {
+			logger.info(format("Updating namespace with prefix of %s from URI of %s to %s", prefix, existingUri, namespaceUri));
+			mgr.updatePrefix(prefix, namespaceUri);
+		}
+		updateTimestamp(r);
+		return r;
 	}
 
 	/**
@@ -532,6 +873,12 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 
 		StringHandle h = new StringHandle(readAndReplaceTokens(r));
 
+		if (directRestModulesWriter != null) {
+			directRestModulesWriter.addService(resourceName, r.getFilename(), h.get(), metadata, methodParams);
+			pendingDirectResources.add(r);
+			return r;
+		}
+
 		executeTask(() -> {
 			if (logger.isInfoEnabled()) {
 				logger.info(format("Writing %s resource extension to MarkLogic; %s", resourceName, getDatabaseClientInfo(client)));
@@ -558,6 +905,12 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 		logger.info(format("Loading %s transform from resource %s", transformName, filename));
 
 		StringHandle h = new StringHandle(readAndReplaceTokens(r));
+		if (directRestModulesWriter != null) {
+			directRestModulesWriter.addTransform(transformName, filename, h.get(), metadata);
+			pendingDirectResources.add(r);
+			return r;
+		}
+
 		executeTask(() -> {
 			if (logger.isInfoEnabled()) {
 				logger.info(format("Writing %s transform to MarkLogic; %s", transformName, getDatabaseClientInfo(client)));
@@ -590,7 +943,18 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 		final QueryOptionsManager mgr = client.newServerConfigManager().newQueryOptionsManager();
 
 		StringHandle h = new StringHandle(readAndReplaceTokens(r));
+		if (directRestModulesWriter != null && directRestModulesWriter.addQueryOptions(name, filename, h.get())) {
+			pendingDirectResources.add(r);
+			return r;
+		}
+
 		executeTask(() -> {
+			if (skipUnchangedWrites && queryOptionsAreUnchanged(mgr, name, h.get(), filename.endsWith(".json"))) {
+				if (logger.isInfoEnabled()) {
+					logger.info(format("%s query options are unchanged, so not writing them; %s", name, getDatabaseClientInfo(client)));
+				}
+				return;
+			}
 			if (logger.isInfoEnabled()) {
 				logger.info(format("Writing %s query options to MarkLogic; %s", name, getDatabaseClientInfo(client)));
 			}
@@ -604,6 +968,78 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 		return r;
 	}
 
+	/**
+	 * Reads the query options with the given name from the REST server and compares them with the given content. JSON
+	 * options are compared as JSON trees; XML options are compared element by element, ignoring namespace prefixes,
+	 * comments and whitespace-only text, as the server does not return options exactly as they were written.
+	 *
+	 * @param mgr
+	 * @param name
+	 * @param content
+	 * @param json
+	 * @return true if the server has options with the given name and they are equivalent to the given content
+	 */
+	protected boolean queryOptionsAreUnchanged(QueryOptionsManager mgr, String name, String content, boolean json) {
+		String existing;
+		try {
+			existing = mgr.readOptions(name, new StringHandle().withFormat(json ? Format.JSON : Format.XML)).get();
+		} catch (Exception ex) {
+			// Most likely the options do not exist yet
+			if (logger.isDebugEnabled()) {
+				logger.debug(format("Unable to read %s query options, will write them; cause: %s", name, ex.getMessage()));
+			}
+			return false;
+		}
+		if (existing == null) {
+			return false;
+		}
+		try {
+			if (json) {
+				ObjectMapper mapper = new ObjectMapper();
+				return mapper.readTree(content).equals(mapper.readTree(existing));
+			}
+			SAXBuilder builder = new SAXBuilder();
+			Element local = builder.build(new StringReader(content)).getRootElement();
+			Element server = builder.build(new StringReader(existing)).getRootElement();
+			return elementsAreEquivalent(local, server);
+		} catch (Exception ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug(format("Unable to compare %s query options, will write them; cause: %s", name, ex.getMessage()));
+			}
+			return false;
+		}
+	}
+
+	private boolean elementsAreEquivalent(Element a, Element b) {
+		if (!a.getName().equals(b.getName()) || !a.getNamespaceURI().equals(b.getNamespaceURI())) {
+			return false;
+		}
+		if (a.getAttributes().size() != b.getAttributes().size()) {
+			return false;
+		}
+		for (Attribute attribute : a.getAttributes()) {
+			if (!attribute.getValue().equals(b.getAttributeValue(attribute.getName(), attribute.getNamespace()))) {
+				return false;
+			}
+		}
+		String textA = a.getText();
+		String textB = b.getText();
+		if (!(textA.trim().isEmpty() ? "" : textA).equals(textB.trim().isEmpty() ? "" : textB)) {
+			return false;
+		}
+		List<Element> childrenA = a.getChildren();
+		List<Element> childrenB = b.getChildren();
+		if (childrenA.size() != childrenB.size()) {
+			return false;
+		}
+		for (int i = 0; i < childrenA.size(); i++) {
+			if (!elementsAreEquivalent(childrenA.get(i), childrenB.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Handles reading in the content of a Resource, and then replacing tokens in it if a tokenReplacer has been set.
 	 */
@@ -632,13 +1068,40 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 		if (taskExecutor == null) {
 			initializeDefaultTaskExecutor();
 		}
-		taskExecutor.execute(() -> {
+		// With virtual threads, there is no thread pool to limit how many modules are loaded at once
+		final Semaphore permits = virtualThreadPermits;
+		if (permits != null) {
 			try {
-				r.run();
-			} catch (Exception e) {
-				failureListeners.forEach(listener -> listener.processFailure(e, this.client));
+				permits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while waiting to load module", e);
 			}
-		});
+		}
+		synchronized (pendingTaskMonitor) {
+			pendingTaskCount++;
+		}
+		try {
+			taskExecutor.execute(() -> {
+				try {
+					r.run();
+				} catch (Exception e) {
+					failureListeners.forEach(listener -> listener.processFailure(e, this.client));
+				} finally {
+					if (permits != null) {
+						permits.release();
+					}
+					pendingTaskFinished();
+				}
+			});
+		} catch (RuntimeException ex) {
+			// The task was rejected and will thus never finish
+			if (permits != null) {
+				permits.release();
+			}
+			pendingTaskFinished();
+			throw ex;
+		}
 	}
 
 	/**
@@ -748,10 +1211,112 @@ public class DefaultModulesLoader extends LoggingObject implements ModulesLoader
 		this.taskExecutor = taskExecutor;
 	}
 
+	/**
+	 * @return
+	 * @since 4.8.0
+	 */
+	public TaskExecutor getTaskExecutor() {
+		return taskExecutor;
+	}
+
+	/**
+	 * @param useVirtualThreads if true and a TaskExecutor has not been set, a new virtual thread is used to load each
+	 *                          REST module when running on Java 21 or higher, with taskThreadCount limiting how many
+	 *                          are loaded at once; a thread pool is used otherwise
+	 * @since 4.8.0
+	 */
+	public void setUseVirtualThreads(boolean useVirtualThreads) {
+		this.useVirtualThreads = useVirtualThreads;
+	}
+
 	public void setTaskThreadCount(int taskThreadCount) {
 		this.taskThreadCount = taskThreadCount;
 	}
 
+	public DirectRestModulesWriter getDirectRestModulesWriter() {
+		return directRestModulesWriter;
+	}
+
+	/**
+	 * @param directRestModulesWriter if set, query options, transforms and services are collected by this writer and
+	 *                                then written to the modules database in a single transaction once all phases
+	 *                                have been loaded, instead of being installed via separate calls to the REST API.
+	 *                                Their timestamps are only updated in the ModulesManager once that transaction
+	 *                                has succeeded.
+	 * @since 4.8.0
+	 */
+	public void setDirectRestModulesWriter(DirectRestModulesWriter directRestModulesWriter) {
+		this.directRestModulesWriter = directRestModulesWriter;
+	}
+
+	public boolean isSkipUnchangedWrites() {
+		return skipUnchangedWrites;
+	}
+
+	/**
+	 * @param skipUnchangedWrites if true, the REST server configuration and each set of query options are read from
+	 *                            the server first and only written if they differ from what is being loaded, which
+	 *                            avoids needlessly invalidating server caches. If the read fails, the write is
+	 *                            performed anyway. Defaults to false.
+	 * @since 4.8.0
+	 */
+	public void setSkipUnchangedWrites(boolean skipUnchangedWrites) {
+		this.skipUnchangedWrites = skipUnchangedWrites;
+	}
+
+	public boolean isSyncNamespacesInBulk() {
+		return syncNamespacesInBulk;
+	}
+
+	/**
+	 * @param syncNamespacesInBulk if true, all namespaces are read from the REST server once and only namespaces that
+	 *                             differ are added or updated; if false, which is the default, installNamespace is used
+	 *                             for each namespace file
+	 * @since 4.8.0
+	 */
+	public void setSyncNamespacesInBulk(boolean syncNamespacesInBulk) {
+		this.syncNamespacesInBulk = syncNamespacesInBulk;
+	}
+
+	public boolean isLoadPhasesConcurrently() {
+		return loadPhasesConcurrently;
+	}
+
+	/**
+	 * @param loadPhasesConcurrently if true, assets, namespaces, query options, transforms and services are loaded
+	 *                               concurrently, subject only to the ordering constraints described in
+	 *                               loadPhasesConcurrently(Modules), and REST modules are prepared in parallel
+	 * @since 4.8.0
+	 */
+	public void setLoadPhasesConcurrently(boolean loadPhasesConcurrently) {
+		this.loadPhasesConcurrently = loadPhasesConcurrently;
+	}
+
+	/**
+	 * @param preparationThreadCount the number of threads used for reading and installing namespaces and REST modules
+	 *                               when loadPhasesConcurrently is true
+	 * @since 4.8.0
+	 */
+	public void setPreparationThreadCount(int preparationThreadCount) {
+		this.preparationThreadCount = preparationThreadCount;
+	}
+
+	/**
+	 * @return the number of milliseconds spent in each phase of the last call to loadModules, in the order in which
+	 * phases are listed by the PHASE_* constants
+	 * @since 4.8.0
+	 */
+	public Map<String, Long> getPhaseTimings() {
+		Map<String, Long> timings = new LinkedHashMap<>();
+		for (String phase : PHASES) {
+			Long time = phaseTimings.get(phase);
+			if (time != null) {
+				timings.put(phase, time);
+			}
+		}
+		return timings;
+	}
+
 	public void setShutdownTaskExecutorAfterLoadingModules(boolean shutdownTaskExecutorAfterLoadingModules) {
 		this.shutdownTaskExecutorAfterLoadingModules = shutdownTaskExecutorAfterLoadingModules;
 	}
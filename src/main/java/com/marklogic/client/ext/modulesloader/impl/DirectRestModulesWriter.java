@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.modulesloader.impl;
+
+import com.marklogic.client.DatabaseClient;
+import com.marklogic.client.admin.ExtensionMetadata;
+import com.marklogic.client.admin.ResourceExtensionsManager.MethodParameters;
+import com.marklogic.client.document.DocumentWriteSet;
+import com.marklogic.client.document.GenericDocumentManager;
+import com.marklogic.client.ext.file.DocumentFile;
+import com.marklogic.client.ext.helper.FilenameUtil;
+import com.marklogic.client.ext.helper.LoggingObject;
+import com.marklogic.client.io.Format;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.output.XMLOutputter;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes query options, transforms and services directly to the modules database - along with a metadata document for
+ * each transform and service - instead of installing each one via a separate call to the REST API. Artifacts are
+ * collected via the add* methods, and {@code write()} then writes all of them via a single call to
+ * {@code DocumentManager.write(DocumentWriteSet)}, and thus in a single multi-document transaction; either every
+ * artifact is written or none are. The DatabaseClient must point to the modules database of the REST server; the one
+ * used by an AssetFileLoader is typically reused. This class does not release the DatabaseClient.
+ * <p>
+ * Documents are written to the URIs that the REST API uses - "/marklogic.rest.transform/(name)/assets/",
+ * "/marklogic.rest.resource/(name)/assets/" and "/(group)/(server)/rest-api/options/" - and are added to the
+ * collections configured via transformCollections, serviceCollections and optionsCollections. Transforms and services
+ * are given the permissions that AssetFileLoader uses by default. Query options are only written directly if
+ * restServerName is set and the options are XML, as the REST API converts JSON options to XML when storing them;
+ * addQueryOptions returns false when the options should instead be installed via the REST API.
+ * <p>
+ * The REST API does not validate artifacts written this way, and it expects these documents - including the
+ * collections and the layout of the metadata documents - to match what it would have written itself. As that is an
+ * implementation detail of the REST API that may vary between MarkLogic versions, this should be verified against the
+ * MarkLogic version being deployed to before relying on it.
+ *
+ * @since 4.8.0
+ */
+public class DirectRestModulesWriter extends LoggingObject {
+
+	public final static String DEFAULT_EXTENSION_COLLECTION = "http://marklogic.com/extension/plugin";
+	public final static String DEFAULT_OPTIONS_COLLECTION = "http://marklogic.com/rest-api/options";
+
+	private static final Namespace REST_API_NAMESPACE = Namespace.getNamespace("rapi", "http://marklogic.com/rest-api");
+
+	private final DatabaseClient modulesDatabaseClient;
+	private final List<DocumentFile> documentFiles = new ArrayList<>();
+
+	private String groupName = "Default";
+	private String restServerName;
+	private String permissions = AssetFileLoader.DEFAULT_PERMISSIONS;
+	private String optionsPermissions = "rest-reader,read,rest-admin,update";
+	private String[] transformCollections = new String[]{DEFAULT_EXTENSION_COLLECTION};
+	private String[] serviceCollections = new String[]{DEFAULT_EXTENSION_COLLECTION};
+	private String[] optionsCollections = new String[]{DEFAULT_OPTIONS_COLLECTION};
+
+	/**
+	 * @param modulesDatabaseClient a DatabaseClient that points to the modules database of the REST server
+	 */
+	public DirectRestModulesWriter(DatabaseClient modulesDatabaseClient) {
+		this.modulesDatabaseClient = modulesDatabaseClient;
+	}
+
+	public void addTransform(String name, String filename, String content, ExtensionMetadata metadata) {
+		final String path = "/marklogic.rest.transform/" + name + "/assets/";
+		final String extension;
+		final Format format;
+		if (FilenameUtil.isXslFile(filename)) {
+			extension = "xsl";
+			format = Format.XML;
+		} else if (FilenameUtil.isJavascriptFile(filename)) {
+			extension = "sjs";
+			format = Format.TEXT;
+		} else {
+			extension = "xqy";
+			format = Format.TEXT;
+		}
+		add(path + "transform." + extension, content, format, permissions, transformCollections);
+		add(path + "metadata.xml", buildMetadataDocument(metadata, null), Format.XML, permissions, transformCollections);
+	}
+
+	public void addService(String name, String filename, String content, ExtensionMetadata metadata, MethodParameters... methodParams) {
+		final String path = "/marklogic.rest.resource/" + name + "/assets/";
+		final String extension = FilenameUtil.isJavascriptFile(filename) ? "sjs" : "xqy";
+		add(path + "resource." + extension, content, Format.TEXT, permissions, serviceCollections);
+		add(path + "metadata.xml", buildMetadataDocument(metadata, methodParams), Format.XML, permissions, serviceCollections);
+	}
+
+	/**
+	 * @param name
+	 * @param filename
+	 * @param content
+	 * @return false if the options cannot be written directly and should be installed via the REST API instead
+	 */
+	public boolean addQueryOptions(String name, String filename, String content) {
+		if (restServerName == null || filename.endsWith(".json")) {
+			return false;
+		}
+		add(format("/%s/%s/rest-api/options/%s.xml", groupName, restServerName, name), content, Format.XML,
+			optionsPermissions, optionsCollections);
+		return true;
+	}
+
+	/**
+	 * Writes every artifact added since this was last called in a single multi-document transaction.
+	 *
+	 * @return the number of documents written
+	 */
+	public int write() {
+		List<DocumentFile> filesToWrite;
+		synchronized (documentFiles) {
+			filesToWrite = new ArrayList<>(documentFiles);
+			documentFiles.clear();
+		}
+		if (filesToWrite.isEmpty()) {
+			return 0;
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info(format("Writing %d REST modules and metadata documents directly to the modules database", filesToWrite.size()));
+		}
+		GenericDocumentManager mgr = modulesDatabaseClient.newDocumentManager();
+		DocumentWriteSet writeSet = mgr.newWriteSet();
+		filesToWrite.forEach(documentFile -> writeSet.add(documentFile.toDocumentWriteOperation()));
+		mgr.write(writeSet);
+		return filesToWrite.size();
+	}
+
+	/**
+	 * Discards every artifact added since write was last called.
+	 */
+	public void clear() {
+		synchronized (documentFiles) {
+			documentFiles.clear();
+		}
+	}
+
+	/**
+	 * @param metadata
+	 * @param methodParams null for a transform
+	 * @return the XML metadata document for a transform or service
+	 */
+	protected String buildMetadataDocument(ExtensionMetadata metadata, MethodParameters[] methodParams) {
+		Element root = new Element("metadata", REST_API_NAMESPACE);
+		if (metadata != null) {
+			addChild(root, "title", metadata.getTitle());
+			addChild(root, "description", metadata.getDescription());
+			addChild(root, "provider", metadata.getProvider());
+			addChild(root, "version", metadata.getVersion());
+		}
+		if (methodParams != null) {
+			for (MethodParameters params : methodParams) {
+				Element method = new Element("method", REST_API_NAMESPACE);
+				addChild(method, "method-name", params.getMethod().name().toLowerCase());
+				for (Map.Entry<String, List<String>> entry : params.entrySet()) {
+					for (String type : entry.getValue()) {
+						Element parameter = new Element("parameter", REST_API_NAMESPACE);
+						addChild(parameter, "parameter-name", entry.getKey());
+						addChild(parameter, "parameter-type", type);
+						method.addContent(parameter);
+					}
+				}
+				root.addContent(method);
+			}
+		}
+		return new XMLOutputter().outputString(root);
+	}
+
+	private void addChild(Element parent, String name, String value) {
+		if (value != null) {
+			parent.addContent(new Element(name, REST_API_NAMESPACE).setText(value));
+		}
+	}
+
+	private void add(String uri, String content, Format format, String permissions, String[] collections) {
+		DocumentFile documentFile = new DocumentFile(uri, new ByteArrayResource(new byte[0]));
+		documentFile.setModifiedContent(content);
+		documentFile.setFormat(format);
+		if (permissions != null) {
+			documentFile.getDocumentMetadata().getPermissions().addFromDelimitedString(permissions);
+		}
+		if (collections != null) {
+			documentFile.getDocumentMetadata().getCollections().addAll(collections);
+		}
+		synchronized (documentFiles) {
+			documentFiles.add(documentFile);
+		}
+	}
+
+	public String getGroupName() {
+		return groupName;
+	}
+
+	public void setGroupName(String groupName) {
+		this.groupName = groupName;
+	}
+
+	public String getRestServerName() {
+		return restServerName;
+	}
+
+	/**
+	 * @param restServerName the name of the REST server; required for writing query options directly
+	 */
+	public void setRestServerName(String restServerName) {
+		this.restServerName = restServerName;
+	}
+
+	public void setPermissions(String permissions) {
+		this.permissions = permissions;
+	}
+
+	public void setOptionsPermissions(String optionsPermissions) {
+		this.optionsPermissions = optionsPermissions;
+	}
+
+	public void setTransformCollections(String... transformCollections) {
+		this.transformCollections = transformCollections;
+	}
+
+	public void setServiceCollections(String... serviceCollections) {
+		this.serviceCollections = serviceCollections;
+	}
+
+	public void setOptionsCollections(String... optionsCollections) {
+		this.optionsCollections = optionsCollections;
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.modulesloader.impl;
+
+import com.marklogic.client.ext.helper.LoggingObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Records, for each module URI, a hash of the module's content and the URIs of the modules that it imports, as found
+ * by scanning XQuery "import module ... at" statements and JavaScript require() calls and import statements. This
+ * allows for determining which modules need to be statically checked again when a module changes - namely, the module
+ * itself and every module that transitively imports it.
+ * <p>
+ * The graph can be saved to and loaded from a file so that it survives between runs. Each line in the file has the
+ * module URI, the hash, and then each imported URI, separated by tabs.
+ *
+ * @since 4.8.0
+ */
+public class ModuleImportGraph extends LoggingObject {
+
+	private static final Pattern XQUERY_IMPORT = Pattern.compile(
+		"import\\s+module\\s+(?:namespace\\s+[\\w.-]+\\s*=\\s*)?(?:\"[^\"]*\"|'[^']*')\\s+at\\s+((?:(?:\"[^\"]+\"|'[^']+')\\s*,?\\s*)+)");
+	private static final Pattern QUOTED = Pattern.compile("\"([^\"]+)\"|'([^']+)'");
+	private static final Pattern JAVASCRIPT_REQUIRE = Pattern.compile("require\\s*\\(\\s*(?:\"([^\"]+)\"|'([^']+)')\\s*\\)");
+	private static final Pattern JAVASCRIPT_IMPORT = Pattern.compile(
+		"(?:^|[;\\s])(?:import|export)\\s(?:[^;'\"]*?\\sfrom\\s*)?(?:\"([^\"]+)\"|'([^']+)')");
+
+	// Extensions that MarkLogic tries when a JavaScript module is required without one
+	private static final String[] IMPLICIT_EXTENSIONS = {".sjs", ".js", ".mjs", ".xqy"};
+
+	private final Map<String, Node> nodes = new TreeMap<>();
+
+	/**
+	 * Records the given module, replacing anything previously recorded for it.
+	 *
+	 * @param uri
+	 * @param hash
+	 * @param content
+	 * @return true if the hash of the module differs from what was previously recorded, or if the module was not yet
+	 * recorded
+	 */
+	public synchronized boolean update(String uri, String hash, String content) {
+		Node previous = nodes.put(uri, new Node(hash, findImports(uri, content)));
+		return previous == null || !previous.hash.equals(hash);
+	}
+
+	/**
+	 * @param uris
+	 * @return the given URIs plus the URI of every recorded module that imports any of them, directly or transitively
+	 */
+	public synchronized Set<String> addTransitiveImporters(Collection<String> uris) {
+		Map<String, Set<String>> importers = new HashMap<>();
+		nodes.forEach((uri, node) -> node.imports.forEach(
+			imported -> importers.computeIfAbsent(imported, key -> new HashSet<>()).add(uri)));
+
+		Set<String> result = new LinkedHashSet<>(uris);
+		Deque<String> queue = new ArrayDeque<>(uris);
+		while (!queue.isEmpty()) {
+			Set<String> importingModules = importers.get(queue.poll());
+			if (importingModules != null) {
+				for (String importer : importingModules) {
+					if (result.add(importer)) {
+						queue.add(importer);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	public synchronized Set<String> getImports(String uri) {
+		Node node = nodes.get(uri);
+		return node != null ? new LinkedHashSet<>(node.imports) : null;
+	}
+
+	public synchronized void remove(String uri) {
+		nodes.remove(uri);
+	}
+
+	/**
+	 * @param uri     the URI of the module, against which relative import paths are resolved
+	 * @param content
+	 * @return the URIs of the modules imported by the given content; an import path without an extension yields a URI
+	 * for each extension that MarkLogic may resolve it to
+	 */
+	protected Set<String> findImports(String uri, String content) {
+		Set<String> imports = new LinkedHashSet<>();
+		if (content == null) {
+			return imports;
+		}
+
+		Matcher m = XQUERY_IMPORT.matcher(content);
+		while (m.find()) {
+			Matcher quoted = QUOTED.matcher(m.group(1));
+			while (quoted.find()) {
+				addImport(imports, uri, quoted.group(1) != null ? quoted.group(1) : quoted.group(2), false);
+			}
+		}
+		for (Pattern pattern : new Pattern[]{JAVASCRIPT_REQUIRE, JAVASCRIPT_IMPORT}) {
+			m = pattern.matcher(content);
+			while (m.find()) {
+				addImport(imports, uri, m.group(1) != null ? m.group(1) : m.group(2), true);
+			}
+		}
+		return imports;
+	}
+
+	private void addImport(Set<String> imports, String uri, String path, boolean javascript) {
+		String resolved;
+		try {
+			resolved = path.startsWith("/") ? path : URI.create(uri).resolve(path).toString();
+		} catch (IllegalArgumentException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug(format("Unable to resolve import of %s in module %s", path, uri));
+			}
+			return;
+		}
+		imports.add(resolved);
+		if (javascript) {
+			String lastSegment = resolved.substring(resolved.lastIndexOf('/') + 1);
+			if (!lastSegment.contains(".")) {
+				for (String extension : IMPLICIT_EXTENSIONS) {
+					imports.add(resolved + extension);
+				}
+			}
+		}
+	}
+
+	public synchronized void load(File file) {
+		nodes.clear();
+		if (!file.exists()) {
+			return;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] tokens = line.split("\t");
+				if (tokens.length >= 2) {
+					Set<String> imports = new LinkedHashSet<>();
+					for (int i = 2; i < tokens.length; i++) {
+						imports.add(tokens[i]);
+					}
+					nodes.put(tokens[0], new Node(tokens[1], imports));
+				}
+			}
+		} catch (IOException ex) {
+			nodes.clear();
+			logger.warn("Unable to load module import graph, cause: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Writes the graph to a temporary file which then replaces the given file, so that an interrupted write does not
+	 * leave behind a partial graph.
+	 *
+	 * @param file
+	 */
+	public synchronized void save(File file) {
+		File absoluteFile = file.getAbsoluteFile();
+		File tempFile = new File(absoluteFile.getParentFile(), absoluteFile.getName() + ".tmp");
+		try {
+			absoluteFile.getParentFile().mkdirs();
+			try (BufferedWriter writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+				for (Map.Entry<String, Node> entry : nodes.entrySet()) {
+					writer.write(entry.getKey());
+					writer.write('\t');
+					writer.write(entry.getValue().hash);
+					for (String imported : entry.getValue().imports) {
+						writer.write('\t');
+						writer.write(imported);
+					}
+					writer.newLine();
+				}
+			}
+			try {
+				Files.move(tempFile.toPath(), absoluteFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException ex) {
+				Files.move(tempFile.toPath(), absoluteFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException ex) {
+			logger.warn("Unable to save module import graph, cause: " + ex.getMessage());
+		}
+	}
+
+	private static class Node {
+		final String hash;
+		final Set<String> imports;
+
+		Node(String hash, Set<String> imports) {
+			this.hash = hash;
+			this.imports = imports;
+		}
+	}
+}
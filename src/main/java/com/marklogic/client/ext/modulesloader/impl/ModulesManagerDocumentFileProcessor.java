@@ -22,6 +22,10 @@ import com.marklogic.client.ext.modulesloader.ModulesManager;
 import java.io.File;
 import java.util.Date;
 
+/**
+ * Excludes files that the ModulesManager reports as not having been modified since they were last loaded. This is only
+ * safe to use with a {@code ParallelDocumentFileReader} if the ModulesManager is thread-safe.
+ */
 public class ModulesManagerDocumentFileProcessor implements DocumentFileProcessor {
 
 	private ModulesManager modulesManager;
@@ -19,18 +19,40 @@ import com.marklogic.client.DatabaseClient;
 import com.marklogic.client.ext.helper.LoggingObject;
 import com.marklogic.client.ext.modulesloader.ModulesManager;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Date;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Stores the time at which each module was last loaded in a properties file.
+ * <p>
+ * Timestamps are kept in memory and are written to the properties file when {@code flush()} is called, which
+ * DefaultModulesLoader and AssetFileLoader do once all modules have been loaded. So that timestamps are not lost if the
+ * process dies before then, each saved timestamp is also appended to a journal file next to the properties file; the
+ * journal is replayed by {@code initialize()} and removed by {@code flush()}. The properties file itself is replaced via
+ * a temporary file and an atomic rename so that it is never left partially written.
+ */
 public class PropertiesModuleManager extends LoggingObject implements ModulesManager {
 
     public static final String DEFAULT_FILE_PATH = "build/ml-javaclient-util/module-timestamps.properties";
 
-    private Properties props;
+    private final Map<String, String> timestamps = new ConcurrentHashMap<>();
+    private boolean dirty;
+    private boolean journalEnabled = true;
     private String propertiesFilePath;
     private long minimumFileTimestampToLoad;
     private String host;
@@ -40,7 +62,6 @@ public class PropertiesModuleManager extends LoggingObject implements ModulesMan
     }
 
     public PropertiesModuleManager(String propertiesFilePath) {
-        props = new Properties();
         this.propertiesFilePath = propertiesFilePath;
     }
 
@@ -59,8 +80,9 @@ public class PropertiesModuleManager extends LoggingObject implements ModulesMan
     }
 
     @Override
-    public void initialize() {
-    	this.props = new Properties();
+    public synchronized void initialize() {
+    	timestamps.clear();
+    	dirty = false;
 
     	File propertiesFile = new File(propertiesFilePath);
 
@@ -69,31 +91,39 @@ public class PropertiesModuleManager extends LoggingObject implements ModulesMan
 	    }
 
 	    if (propertiesFile.exists()) {
-            FileInputStream fis = null;
-            try {
-                fis = new FileInputStream(propertiesFile);
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Loading properties from: " + propertiesFile.getAbsolutePath());
-                }
-                props.load(fis);
-            } catch (Exception e) {
-                logger.warn("Unable to load properties, cause: " + e.getMessage());
-            } finally {
-                try {
-                    fis.close();
-                } catch (Exception e) {
-                    logger.warn(e.getMessage());
-                }
-            }
+		    if (logger.isDebugEnabled()) {
+			    logger.debug("Loading properties from: " + propertiesFile.getAbsolutePath());
+		    }
+		    try {
+			    loadInto(propertiesFile, timestamps);
+		    } catch (Exception e) {
+			    logger.warn("Unable to load properties, cause: " + e.getMessage());
+		    }
+	    }
+
+	    File journalFile = getJournalFile();
+	    if (journalFile.exists()) {
+		    if (logger.isDebugEnabled()) {
+			    logger.debug("Replaying timestamps from: " + journalFile.getAbsolutePath());
+		    }
+		    try {
+			    loadInto(journalFile, timestamps);
+		    } catch (Exception e) {
+			    logger.warn("Unable to replay timestamps journal, cause: " + e.getMessage());
+		    }
+		    dirty = true;
+		    flush();
 	    }
     }
 
-    public void deletePropertiesFile() {
+    public synchronized void deletePropertiesFile() {
 		File propertiesFile = new File(propertiesFilePath);
         if (propertiesFile.exists()) {
             propertiesFile.delete();
-            props.clear();
         }
+        getJournalFile().delete();
+        timestamps.clear();
+        dirty = false;
     }
 
 	/**
@@ -112,7 +142,7 @@ public class PropertiesModuleManager extends LoggingObject implements ModulesMan
 	    }
 
         String key = buildKey(file);
-        String value = props.getProperty(key);
+        String value = timestamps.get(key);
         if (value != null) {
             long lastModified = file.lastModified();
             long lastLoaded = Long.parseLong(value);
@@ -129,14 +159,84 @@ public class PropertiesModuleManager extends LoggingObject implements ModulesMan
 	@Override
 	public void saveLastLoadedTimestamp(File file, Date date) {
         String key = buildKey(file);
-        props.setProperty(key, date.getTime() + "");
-        try (FileWriter fw = new FileWriter(propertiesFilePath)) {
-            props.store(fw, "");
-        } catch (Exception e) {
-            logger.warn("Unable to store properties, cause: " + e.getMessage());
+        String value = date.getTime() + "";
+        synchronized (this) {
+	        timestamps.put(key, value);
+	        dirty = true;
+	        if (journalEnabled) {
+		        appendToJournal(key, value);
+	        }
         }
     }
 
+	/**
+	 * Writes all timestamps to the properties file if any have been saved since the last flush, and then removes the
+	 * journal file.
+	 */
+	@Override
+	public synchronized void flush() {
+		if (!dirty) {
+			return;
+		}
+		Properties props = new Properties();
+		props.putAll(timestamps);
+		File propertiesFile = new File(propertiesFilePath).getAbsoluteFile();
+		File tempFile = new File(propertiesFile.getParentFile(), propertiesFile.getName() + ".tmp");
+		try {
+			if (propertiesFile.getParentFile() != null) {
+				propertiesFile.getParentFile().mkdirs();
+			}
+			try (OutputStream out = new FileOutputStream(tempFile)) {
+				props.store(out, "");
+			}
+			try {
+				Files.move(tempFile.toPath(), propertiesFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), propertiesFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			getJournalFile().delete();
+			dirty = false;
+		} catch (Exception e) {
+			logger.warn("Unable to store properties, cause: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Appends a single entry, in properties file format, to the journal file.
+	 *
+	 * @param key
+	 * @param value
+	 */
+	protected void appendToJournal(String key, String value) {
+		Properties entry = new Properties();
+		entry.setProperty(key, value);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			entry.store(out, null);
+			// Drop the date comment that Properties.store always writes
+			String text = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+			text = text.substring(text.indexOf('\n') + 1);
+			Files.write(getJournalFile().toPath(), text.getBytes(StandardCharsets.ISO_8859_1),
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		} catch (IOException e) {
+			logger.warn("Unable to append to timestamps journal, cause: " + e.getMessage());
+		}
+	}
+
+	protected File getJournalFile() {
+		return new File(propertiesFilePath + ".journal");
+	}
+
+	private void loadInto(File file, Map<String, String> map) throws IOException {
+		Properties props = new Properties();
+		try (InputStream in = new FileInputStream(file)) {
+			props.load(in);
+		}
+		for (String name : props.stringPropertyNames()) {
+			map.put(name, props.getProperty(name));
+		}
+	}
+
     /**
      *
      * @param file
@@ -179,6 +279,18 @@ public class PropertiesModuleManager extends LoggingObject implements ModulesMan
 		return host;
 	}
 
+	public boolean isJournalEnabled() {
+		return journalEnabled;
+	}
+
+	/**
+	 * @param journalEnabled if false, saved timestamps are only written to the properties file when flush() is called
+	 * @since 4.8.0
+	 */
+	public void setJournalEnabled(boolean journalEnabled) {
+		this.journalEnabled = journalEnabled;
+	}
+
 	public void setHost(String host) {
 		this.host = host;
 	}
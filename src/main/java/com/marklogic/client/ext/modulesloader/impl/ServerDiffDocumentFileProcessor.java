@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.modulesloader.impl;
+
+import com.marklogic.client.DatabaseClient;
+import com.marklogic.client.ext.file.DocumentFile;
+import com.marklogic.client.ext.file.DocumentFileProcessor;
+import com.marklogic.client.ext.helper.LoggingObject;
+import com.marklogic.client.io.Format;
+import com.marklogic.client.io.OutputStreamSender;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares each asset with the document at the same URI in the modules database, and excludes the asset from being
+ * written when the content is identical. Unlike a {@code ModulesManager}, this accounts for changes made to the modules
+ * database by anyone else.
+ * <p>
+ * {@code initialize()} must be called before files are processed; it fetches the URI and MD5 hash of every document in
+ * the modules database via a single call. Only text and binary documents are compared, as the server does not store XML
+ * and JSON documents byte-for-byte; those are always written. Only content is compared, so a change to only the
+ * permissions or collections of an asset is not detected. The local hash is computed on the content that would be
+ * written - i.e. after tokens have been replaced - so this processor should run after any processors that modify
+ * content. Hashing is performed by whichever thread processes the file, so files are hashed in parallel when the
+ * DocumentFileReader reads files in parallel.
+ * <p>
+ * After the files have been loaded, {@code deleteOrphanedUris(List)} can be used to delete documents in the modules
+ * database that do not correspond to any processed file. Deletion is always limited to an explicit set of URI prefixes,
+ * and a document is only considered orphaned if no file with its URI has been processed since this object was created
+ * or {@code clearProcessedUris()} was last called - not just since {@code initialize()} was last called - so that
+ * loading several module roots in separate calls does not delete the modules of the roots loaded earlier.
+ *
+ * @since 4.8.0
+ */
+public class ServerDiffDocumentFileProcessor extends LoggingObject implements DocumentFileProcessor {
+
+	private static final String FETCH_HASHES_QUERY = "xquery version \"1.0-ml\"; " +
+		"fn:string-join(" +
+		"for $doc in fn:doc() let $node := $doc/node() return fn:concat(" +
+		"if ($node instance of text() or $node instance of binary()) then xdmp:md5($node) else \"\", " +
+		"\"&#9;\", xdmp:node-uri($doc)), \"&#10;\")";
+
+	private static final String DELETE_URIS_QUERY = "xquery version \"1.0-ml\"; " +
+		"declare variable $URIS as xs:string external; " +
+		"for $uri in fn:tokenize($URIS, \"&#10;\")[. ne \"\"] " +
+		"return if (fn:doc-available($uri)) then xdmp:document-delete($uri) else ()";
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final DatabaseClient client;
+
+	// Maps each URI in the modules database to the MD5 hash of its content, or to an empty string if it is not compared
+	private final Map<String, String> serverHashes = new ConcurrentHashMap<>();
+	// URIs processed since this object was created or clearProcessedUris was called
+	private final Set<String> processedUris = ConcurrentHashMap.newKeySet();
+	// URIs processed since initialize was last called
+	private final Set<String> currentUris = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger unchangedCount = new AtomicInteger();
+
+	private int deleteBatchSize = 100;
+	private List<String> protectedUriPrefixes = Arrays.asList("/marklogic.rest.");
+
+	/**
+	 * @param client a DatabaseClient that points to the modules database
+	 */
+	public ServerDiffDocumentFileProcessor(DatabaseClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * Fetches the URI and content hash of every document in the modules database. The URIs of files processed before
+	 * this is called are retained for determining orphans; see {@code clearProcessedUris()}.
+	 */
+	public void initialize() {
+		serverHashes.clear();
+		currentUris.clear();
+		unchangedCount.set(0);
+
+		long start = System.currentTimeMillis();
+		String result = client.newServerEval().xquery(FETCH_HASHES_QUERY).evalAs(String.class);
+		if (result != null) {
+			for (String line : result.split("\n")) {
+				int index = line.indexOf('\t');
+				if (index > -1) {
+					serverHashes.put(line.substring(index + 1), line.substring(0, index));
+				}
+			}
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info(format("Fetched hashes of %d documents in the modules database in %d ms",
+				serverHashes.size(), System.currentTimeMillis() - start));
+		}
+	}
+
+	@Override
+	public DocumentFile processDocumentFile(DocumentFile documentFile) {
+		final String uri = documentFile.getUri();
+		processedUris.add(uri);
+		currentUris.add(uri);
+
+		final Format format = documentFile.getFormat();
+		if (!Format.TEXT.equals(format) && !Format.BINARY.equals(format)) {
+			return documentFile;
+		}
+		final String serverHash = serverHashes.get(uri);
+		if (serverHash == null || serverHash.isEmpty()) {
+			return documentFile;
+		}
+
+		try {
+			if (serverHash.equals(hash(documentFile))) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Not writing asset, content is identical to that in the modules database: " + uri);
+				}
+				unchangedCount.incrementAndGet();
+				return null;
+			}
+		} catch (IOException e) {
+			logger.warn(format("Unable to compute hash of asset with URI %s, will write it; cause: %s", uri, e.getMessage()));
+		}
+		return documentFile;
+	}
+
+	/**
+	 * Deletes each document in the modules database that was present when {@code initialize()} was called, that
+	 * starts with one of the given URI prefixes, that does not have the URI of any processed file, and that does not
+	 * start with one of the protected URI prefixes. A prefix is only considered if at least one file under it has been
+	 * processed since {@code initialize()} was called; this prevents the modules of a root that has not been loaded yet
+	 * from being deleted when several roots are loaded in separate calls. Documents are deleted in batches of
+	 * {@code deleteBatchSize}.
+	 *
+	 * @param uriPrefixes only documents whose URI starts with one of these are deleted; each should only cover URIs
+	 *                    produced by the module roots being loaded. Nothing is deleted if this is null or empty.
+	 * @return the URIs that were deleted
+	 */
+	public List<String> deleteOrphanedUris(List<String> uriPrefixes) {
+		List<String> orphans = new ArrayList<>();
+		List<String> eligiblePrefixes = determineEligiblePrefixes(uriPrefixes);
+		if (eligiblePrefixes.isEmpty()) {
+			return orphans;
+		}
+
+		for (String uri : serverHashes.keySet()) {
+			if (startsWithAny(uri, eligiblePrefixes) && !processedUris.contains(uri) && !isProtected(uri)) {
+				orphans.add(uri);
+			}
+		}
+		orphans.sort(null);
+
+		for (int i = 0; i < orphans.size(); i += deleteBatchSize) {
+			List<String> batch = orphans.subList(i, Math.min(i + deleteBatchSize, orphans.size()));
+			if (logger.isInfoEnabled()) {
+				logger.info("Deleting orphaned modules: " + batch);
+			}
+			client.newServerEval().xquery(DELETE_URIS_QUERY).addVariable("URIS", String.join("\n", batch)).eval();
+		}
+		orphans.forEach(serverHashes::remove);
+		return orphans;
+	}
+
+	private List<String> determineEligiblePrefixes(List<String> uriPrefixes) {
+		List<String> eligiblePrefixes = new ArrayList<>();
+		if (uriPrefixes != null) {
+			for (String prefix : uriPrefixes) {
+				if (prefix == null || prefix.isEmpty()) {
+					continue;
+				}
+				if (currentUris.stream().anyMatch(uri -> uri.startsWith(prefix))) {
+					eligiblePrefixes.add(prefix);
+				} else if (logger.isDebugEnabled()) {
+					logger.debug("Not deleting orphaned modules under prefix, no files were loaded under it: " + prefix);
+				}
+			}
+		}
+		return eligiblePrefixes;
+	}
+
+	/**
+	 * Forgets the URIs of all files processed so far. Should be called before starting a new deployment with a
+	 * long-lived instance of this class, after which the next load's files determine which documents are orphaned.
+	 */
+	public void clearProcessedUris() {
+		processedUris.clear();
+		currentUris.clear();
+	}
+
+	protected boolean isProtected(String uri) {
+		// Query options are stored by the REST API at /(group)/(server)/rest-api/options/
+		if (uri.contains("/rest-api/")) {
+			return true;
+		}
+		return protectedUriPrefixes != null && startsWithAny(uri, protectedUriPrefixes);
+	}
+
+	private boolean startsWithAny(String uri, List<String> prefixes) {
+		for (String prefix : prefixes) {
+			if (uri.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param documentFile
+	 * @return the lower-case hex MD5 hash of the content that will be written for the given file, which matches the
+	 * output of xdmp:md5 for a text or binary document with the same content
+	 * @throws IOException
+	 */
+	protected String hash(DocumentFile documentFile) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+
+		String modifiedContent = documentFile.getModifiedContent();
+		OutputStreamSender sender = documentFile.getModifiedContentSender();
+		if (modifiedContent != null) {
+			digest.update(modifiedContent.getBytes(StandardCharsets.UTF_8));
+		} else if (sender != null) {
+			try (OutputStream out = new DigestOutputStream(new DiscardingOutputStream(), digest)) {
+				sender.write(out);
+			}
+		} else {
+			byte[] buffer = new byte[64 * 1024];
+			try (InputStream in = documentFile.getResource().getInputStream()) {
+				int len;
+				while ((len = in.read(buffer)) != -1) {
+					digest.update(buffer, 0, len);
+				}
+			}
+		}
+
+		byte[] bytes = digest.digest();
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * @return the number of files not written since {@code initialize()} was called because their content is identical
+	 * to that in the modules database
+	 */
+	public int getUnchangedCount() {
+		return unchangedCount.get();
+	}
+
+	public int getDeleteBatchSize() {
+		return deleteBatchSize;
+	}
+
+	public void setDeleteBatchSize(int deleteBatchSize) {
+		this.deleteBatchSize = deleteBatchSize;
+	}
+
+	public List<String> getProtectedUriPrefixes() {
+		return protectedUriPrefixes;
+	}
+
+	/**
+	 * @param protectedUriPrefixes documents whose URI starts with any of these are never deleted by
+	 *                             deleteOrphanedUris; defaults to "/marklogic.rest.", the prefix used by the REST API
+	 *                             for transforms and services. Documents with "/rest-api/" in their URI, such as
+	 *                             query options, are always protected.
+	 */
+	public void setProtectedUriPrefixes(List<String> protectedUriPrefixes) {
+		this.protectedUriPrefixes = protectedUriPrefixes;
+	}
+
+	private static class DiscardingOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+}
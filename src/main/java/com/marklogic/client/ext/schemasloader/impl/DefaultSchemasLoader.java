@@ -23,7 +23,10 @@ import com.marklogic.client.ext.file.GenericFileLoader;
 import com.marklogic.client.ext.modulesloader.impl.DefaultFileFilter;
 import com.marklogic.client.ext.schemasloader.SchemasLoader;
 import com.marklogic.client.io.DocumentMetadataHandle;
+import org.springframework.util.FileCopyUtils;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -157,7 +160,7 @@ public class DefaultSchemasLoader extends GenericFileLoader implements SchemasLo
 		List<String> templateInfoList = new ArrayList<>();
 		for (DocumentFile doc : documentFiles) {
 			String uri = doc.getUri();
-			String content = doc.getContent().toString();
+			String content = readContent(doc);
 
 			// Permissions
 			DocumentMetadataHandle.DocumentPermissions documentPermissions = doc.getDocumentMetadata().getPermissions();
@@ -192,6 +195,17 @@ public class DefaultSchemasLoader extends GenericFileLoader implements SchemasLo
 		return templateString;
 	}
 
+	private String readContent(DocumentFile doc) {
+		if (doc.getModifiedContent() != null) {
+			return doc.getModifiedContent();
+		}
+		try {
+			return new String(FileCopyUtils.copyToByteArray(doc.getResource().getInputStream()), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new RuntimeException("Unable to read content of TDE template: " + doc.getUri() + "; cause: " + e.getMessage(), e);
+		}
+	}
+
 	private static class SchemaFiles {
 		private final List<DocumentFile> tdeFiles;
 		private final List<DocumentFile> nonTdeFiles;
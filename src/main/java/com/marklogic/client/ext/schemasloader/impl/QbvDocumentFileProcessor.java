@@ -34,6 +34,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -46,7 +47,8 @@ class QbvDocumentFileProcessor extends LoggingObject implements DocumentFileProc
 	private static final String QBV_XML_ROOT_ELEMENT = "query-based-view";
 
 	final private DatabaseClient contentDatabaseClient;
-	final private List<DocumentFile> qbvFiles = new ArrayList<>();
+	// Synchronized in case files are read by a ParallelDocumentFileReader
+	final private List<DocumentFile> qbvFiles = Collections.synchronizedList(new ArrayList<>());
 	final private XMLDocumentManager schemasDocumentManager;
 
 
@@ -19,6 +19,9 @@ import com.marklogic.client.ext.helper.LoggingObject;
 import org.springframework.beans.factory.config.PlaceholderConfigurerSupport;
 import org.springframework.util.PropertyPlaceholderHelper;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
@@ -30,16 +33,28 @@ import java.util.Properties;
  * The propertyPrefix property allows for adhering to the Roxy convention of referencing properties in module text
  * with "@ml." as a prefix. This class does not look for that prefix; rather, the RoxyTokenReplacer subclass does. This
  * class allows for that prefix to be set to anything.
+ *
+ * As of 4.8.0, this class also implements StreamingTokenReplacer, so tokens can be replaced in large files without
+ * reading each file into memory. And it is safe for multiple threads to replace tokens at once, as tokens are replaced
+ * via an immutable snapshot of the properties. The snapshot is rebuilt when the properties, property prefix, placeholder
+ * helper or PropertiesSources are set via this class, and when the entries of the Properties object returned by
+ * {@code getProperties()} are modified in place. If a PropertiesSource starts returning different properties after
+ * they have been read, {@code setProperties(null)} must be called for them to be read again.
  */
-public class DefaultTokenReplacer extends LoggingObject implements TokenReplacer {
+public class DefaultTokenReplacer extends LoggingObject implements StreamingTokenReplacer {
 
 	private Properties properties;
 	private PropertyPlaceholderHelper helper;
 	private List<PropertiesSource> propertiesSources = new ArrayList<>();
 	private String propertyPrefix;
+	private volatile TokenReplacerSnapshot snapshot;
+
+	// A subclass that customizes replaceTokens(String) must not have that bypassed by the prescanner
+	private final boolean replaceTokensOverridden = overridesReplaceTokens(getClass());
 
 	public void addPropertiesSource(PropertiesSource source) {
 		this.propertiesSources.add(source);
+		invalidateSnapshot();
 	}
 
 	protected void initializeHelper() {
@@ -61,30 +76,119 @@ public class DefaultTokenReplacer extends LoggingObject implements TokenReplacer
 		}
 	}
 
+	/**
+	 * As of 4.8.0, delegates to a snapshot of the tokens - see {@code snapshot()} - which replaces all tokens in a
+	 * single pass when doing so produces the same result as replacing each token in turn.
+	 *
+	 * @param text
+	 * @return
+	 */
 	@Override
 	public String replaceTokens(String text) {
-		if (properties == null) {
-			initializeProperties();
-		}
-		if (helper == null) {
-			initializeHelper();
+		return snapshot().replaceTokens(text);
+	}
+
+	/**
+	 * @param reader
+	 * @return
+	 * @throws IOException
+	 * @since 4.8.0
+	 */
+	@Override
+	public boolean canReplaceTokensWhileStreaming(Reader reader) throws IOException {
+		return snapshot().canReplaceTokensWhileStreaming(reader);
+	}
+
+	/**
+	 * @param reader
+	 * @param writer
+	 * @throws IOException
+	 * @since 4.8.0
+	 */
+	@Override
+	public void replaceTokens(Reader reader, Writer writer) throws IOException {
+		snapshot().replaceTokens(reader, writer);
+	}
+
+	/**
+	 * @return a prescanner for the current tokens; null if a subclass overrides {@code replaceTokens(String)}, as a
+	 * file that the prescanner finds to be free of tokens would otherwise never be passed to that override
+	 * @since 4.8.0
+	 */
+	@Override
+	public TokenPrescanner getTokenPrescanner() {
+		return replaceTokensOverridden ? null : snapshot().getTokenPrescanner();
+	}
+
+	private static boolean overridesReplaceTokens(Class<?> clazz) {
+		try {
+			return clazz.getMethod("replaceTokens", String.class).getDeclaringClass() != DefaultTokenReplacer.class;
+		} catch (NoSuchMethodException e) {
+			return false;
 		}
+	}
 
-		for (Object key : properties.keySet()) {
-			String skey = propertyPrefix != null ? propertyPrefix + key : key.toString();
-			if (logger.isTraceEnabled()) {
-				logger.trace("Checking for key in text: " + skey);
-			}
-			if (text.contains(skey)) {
-				String value = properties.getProperty(key.toString());
-				value = helper.replacePlaceholders(value, properties);
-				if (logger.isDebugEnabled()) {
-					logger.debug(format("Replacing %s with %s", skey, value));
+	/**
+	 * Replaces each token in turn; this was the only approach prior to 4.8.0.
+	 *
+	 * @param text
+	 * @return
+	 * @since 4.8.0
+	 */
+	protected String replaceTokensSequentially(String text) {
+		return snapshot().replaceTokensSequentially(text);
+	}
+
+	/**
+	 * Returns an immutable snapshot of the current tokens, with the properties from every PropertiesSource merged. The
+	 * snapshot is reused until {@code invalidateSnapshot()} is called, which happens automatically when the properties,
+	 * property prefix, placeholder helper or PropertiesSources of this object are set, or until the entries of the
+	 * Properties object of this class no longer match those the snapshot was created from. It can be shared by any
+	 * number of threads.
+	 *
+	 * @return
+	 * @since 4.8.0
+	 */
+	public TokenReplacerSnapshot snapshot() {
+		TokenReplacerSnapshot current = this.snapshot;
+		if (current != null && isCurrent(current)) {
+			return current;
+		}
+		synchronized (this) {
+			current = this.snapshot;
+			if (current == null || !isCurrent(current)) {
+				if (properties == null) {
+					initializeProperties();
+				}
+				if (helper == null) {
+					initializeHelper();
 				}
-				text = text.replace(skey, value);
+				current = new TokenReplacerSnapshot(properties, propertyPrefix, helper);
+				this.snapshot = current;
 			}
+			return current;
 		}
-		return text;
+	}
+
+	/**
+	 * Detects changes made in place to the Properties object returned by getProperties, which callers could do prior
+	 * to 4.8.0 and have the changes used by the next call to replaceTokens.
+	 */
+	private boolean isCurrent(TokenReplacerSnapshot snapshot) {
+		Properties props = this.properties;
+		return props == null || snapshot.isCreatedFrom(props);
+	}
+
+	/**
+	 * Discards the current snapshot so that the next one is created from the current properties. Changes made in place
+	 * to the Properties object of this class are detected without calling this. Note that the properties are only read
+	 * from the PropertiesSources when no Properties object has been set or read yet; call {@code setProperties(null)}
+	 * for them to be read again.
+	 *
+	 * @since 4.8.0
+	 */
+	public void invalidateSnapshot() {
+		this.snapshot = null;
 	}
 
 	public List<PropertiesSource> getPropertiesSources() {
@@ -93,10 +197,12 @@ public class DefaultTokenReplacer extends LoggingObject implements TokenReplacer
 
 	public void setPropertiesSources(List<PropertiesSource> propertiesSources) {
 		this.propertiesSources = propertiesSources;
+		invalidateSnapshot();
 	}
 
 	public void setPropertyPlaceholderHelper(PropertyPlaceholderHelper helper) {
 		this.helper = helper;
+		invalidateSnapshot();
 	}
 
 	public Properties getProperties() {
@@ -105,9 +211,11 @@ public class DefaultTokenReplacer extends LoggingObject implements TokenReplacer
 
 	public void setProperties(Properties properties) {
 		this.properties = properties;
+		invalidateSnapshot();
 	}
 
 	public void setPropertyPrefix(String propertyPrefix) {
 		this.propertyPrefix = propertyPrefix;
+		invalidateSnapshot();
 	}
 }
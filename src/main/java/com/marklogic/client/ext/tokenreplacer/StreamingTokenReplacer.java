@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.tokenreplacer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Extends TokenReplacer with the ability to replace tokens in text that is read from a Reader and written to a
+ * Writer, such that the text does not need to be held in memory.
+ * <p>
+ * {@code replaceTokens(Reader, Writer)} does not delegate to {@code replaceTokens(String)}. A subclass of an
+ * implementation - such as DefaultTokenReplacer - that customizes how tokens are replaced by overriding
+ * {@code replaceTokens(String)} must thus override it as well; otherwise, files that are streamed will not be affected
+ * by the customization. Streaming is disabled by default on TokenReplacerDocumentFileProcessor. DefaultTokenReplacer
+ * does not return a TokenPrescanner when {@code replaceTokens(String)} is overridden, so that every file is still
+ * passed to the override.
+ * </p>
+ *
+ * @since 4.8.0
+ */
+public interface StreamingTokenReplacer extends TokenReplacer {
+
+	/**
+	 * Reads the given text to determine if {@code replaceTokens(Reader, Writer)} will produce the same result for it
+	 * as {@code replaceTokens(String)}. The text is not retained.
+	 *
+	 * @param reader
+	 * @return
+	 * @throws IOException
+	 */
+	boolean canReplaceTokensWhileStreaming(Reader reader) throws IOException;
+
+	/**
+	 * Replaces tokens in the text read from the given Reader, writing the result to the given Writer. Neither is
+	 * closed by this method.
+	 *
+	 * @param reader
+	 * @param writer
+	 * @throws IOException
+	 */
+	void replaceTokens(Reader reader, Writer writer) throws IOException;
+
+	/**
+	 * @return an object for cheaply determining that content does not contain any tokens; null if not supported
+	 */
+	default TokenPrescanner getTokenPrescanner() {
+		return null;
+	}
+}
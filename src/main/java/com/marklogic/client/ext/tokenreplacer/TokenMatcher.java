@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.tokenreplacer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Aho-Corasick automaton for finding every occurrence of a set of tokens in a single pass over a piece of text.
+ * Instances are immutable, aside from an internal cache, and thus can be shared across threads.
+ * <p>
+ * The automaton is exposed as a set of states so that text can be fed to it incrementally - e.g. while it is being
+ * read - with the caller keeping track of the current state. State 0 is the start state.
+ * </p>
+ *
+ * @since 4.8.0
+ */
+class TokenMatcher {
+
+	private final static int NO_STATE = -1;
+
+	private final String[] tokens;
+	private final int maxTokenLength;
+
+	// Trie transitions; each state's labels are sorted so that they can be binary searched
+	private char[][] labels;
+	private int[][] targets;
+	private int[] failure;
+	// Number of characters matched by each state
+	private int[] depth;
+	// Index of the token that ends at each state, or -1
+	private int[] tokenIndex;
+	// Nearest state on the failure chain at which a token ends, or -1
+	private int[] outputLink;
+	private int stateCount;
+
+	// Allows for quickly skipping characters that cannot start a token
+	private final BitSet firstCharacters = new BitSet();
+
+	private final Map<String, Boolean> inertValues = new ConcurrentHashMap<>();
+
+	TokenMatcher(List<String> tokens) {
+		this.tokens = tokens.toArray(new String[0]);
+		int max = 0;
+		int capacity = 1;
+		for (String token : tokens) {
+			if (token == null || token.isEmpty()) {
+				throw new IllegalArgumentException("Tokens cannot be null or empty");
+			}
+			max = Math.max(max, token.length());
+			capacity += token.length();
+		}
+		this.maxTokenLength = max;
+		labels = new char[capacity][];
+		targets = new int[capacity][];
+		depth = new int[capacity];
+		tokenIndex = new int[capacity];
+		Arrays.fill(tokenIndex, NO_STATE);
+		stateCount = 1;
+		labels[0] = new char[0];
+		targets[0] = new int[0];
+		for (int i = 0; i < this.tokens.length; i++) {
+			addToken(i, this.tokens[i]);
+		}
+		buildFailureLinks();
+	}
+
+	private void addToken(int index, String token) {
+		firstCharacters.set(token.charAt(0));
+		int state = 0;
+		for (int i = 0; i < token.length(); i++) {
+			int next = getTransition(state, token.charAt(i));
+			if (next == NO_STATE) {
+				next = stateCount++;
+				labels[next] = new char[0];
+				targets[next] = new int[0];
+				depth[next] = i + 1;
+				addTransition(state, token.charAt(i), next);
+			}
+			state = next;
+		}
+		// If the same token is added twice, the first one wins
+		if (tokenIndex[state] == NO_STATE) {
+			tokenIndex[state] = index;
+		}
+	}
+
+	private void addTransition(int state, char c, int target) {
+		char[] stateLabels = labels[state];
+		int pos = -(Arrays.binarySearch(stateLabels, c) + 1);
+		char[] newLabels = new char[stateLabels.length + 1];
+		int[] newTargets = new int[stateLabels.length + 1];
+		System.arraycopy(stateLabels, 0, newLabels, 0, pos);
+		System.arraycopy(targets[state], 0, newTargets, 0, pos);
+		newLabels[pos] = c;
+		newTargets[pos] = target;
+		System.arraycopy(stateLabels, pos, newLabels, pos + 1, stateLabels.length - pos);
+		System.arraycopy(targets[state], pos, newTargets, pos + 1, stateLabels.length - pos);
+		labels[state] = newLabels;
+		targets[state] = newTargets;
+	}
+
+	private int getTransition(int state, char c) {
+		int pos = Arrays.binarySearch(labels[state], c);
+		return pos >= 0 ? targets[state][pos] : NO_STATE;
+	}
+
+	private void buildFailureLinks() {
+		failure = new int[stateCount];
+		outputLink = new int[stateCount];
+		Arrays.fill(outputLink, NO_STATE);
+		Queue<Integer> queue = new ArrayDeque<>();
+		for (int child : targets[0]) {
+			failure[child] = 0;
+			queue.add(child);
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.remove();
+			for (int i = 0; i < labels[state].length; i++) {
+				char c = labels[state][i];
+				int child = targets[state][i];
+				int f = failure[state];
+				while (f != 0 && getTransition(f, c) == NO_STATE) {
+					f = failure[f];
+				}
+				int next = getTransition(f, c);
+				failure[child] = next != NO_STATE ? next : 0;
+				int fail = failure[child];
+				outputLink[child] = tokenIndex[fail] != NO_STATE ? fail : outputLink[fail];
+				queue.add(child);
+			}
+		}
+	}
+
+	/**
+	 * @param state
+	 * @param c
+	 * @return the state reached by reading the given character in the given state
+	 */
+	int nextState(int state, char c) {
+		if (state == 0 && !firstCharacters.get(c)) {
+			return 0;
+		}
+		while (true) {
+			int next = getTransition(state, c);
+			if (next != NO_STATE) {
+				return next;
+			}
+			if (state == 0) {
+				return 0;
+			}
+			state = failure[state];
+		}
+	}
+
+	/**
+	 * @param state
+	 * @return the first state, starting with the given one, at which a token ends; -1 if no token ends at the given
+	 * state. Use {@code nextMatch} to find any other tokens that end at the given state.
+	 */
+	int firstMatch(int state) {
+		return tokenIndex[state] != NO_STATE ? state : outputLink[state];
+	}
+
+	int nextMatch(int matchState) {
+		return outputLink[matchState];
+	}
+
+	/**
+	 * @param state
+	 * @return the number of most recently read characters that may still be part of a token
+	 */
+	int getDepth(int state) {
+		return depth[state];
+	}
+
+	int getTokenIndex(int matchState) {
+		return tokenIndex[matchState];
+	}
+
+	String getToken(int tokenIndex) {
+		return tokens[tokenIndex];
+	}
+
+	int getTokenCount() {
+		return tokens.length;
+	}
+
+	int getMaxTokenLength() {
+		return maxTokenLength;
+	}
+
+	/**
+	 * @param text
+	 * @return the distinct tokens found in the given text, in the order in which they are first found
+	 */
+	List<String> findTokens(CharSequence text) {
+		List<String> found = null;
+		BitSet seen = null;
+		int state = 0;
+		for (int i = 0; i < text.length(); i++) {
+			state = nextState(state, text.charAt(i));
+			for (int m = firstMatch(state); m != NO_STATE; m = nextMatch(m)) {
+				if (found == null) {
+					found = new ArrayList<>();
+					seen = new BitSet();
+				}
+				int index = tokenIndex[m];
+				if (!seen.get(index)) {
+					seen.set(index);
+					found.add(tokens[index]);
+				}
+			}
+		}
+		return found != null ? found : Collections.emptyList();
+	}
+
+	/**
+	 * A value is inert if, once it has replaced a token in a piece of text, no token can be found that overlaps any
+	 * part of the value. That is, the value does not contain a token, no token contains the value, no token starts
+	 * with the end of the value, and no token ends with the start of the value. An empty value is never considered
+	 * inert, as removing a token can join the text on either side of it into a new token.
+	 *
+	 * @param value
+	 * @return
+	 */
+	boolean isInert(String value) {
+		if (value == null || value.isEmpty()) {
+			return false;
+		}
+		Boolean inert = inertValues.get(value);
+		if (inert == null) {
+			inert = computeInert(value);
+			// Bound the cache in case a caller produces many distinct values
+			if (inertValues.size() < 10000) {
+				inertValues.put(value, inert);
+			}
+		}
+		return inert;
+	}
+
+	private boolean computeInert(String value) {
+		int state = 0;
+		for (int i = 0; i < value.length(); i++) {
+			state = nextState(state, value.charAt(i));
+			if (firstMatch(state) != NO_STATE) {
+				return false;
+			}
+		}
+		// The final state is the longest end of the value that is the start of a token
+		if (state != 0) {
+			return false;
+		}
+		final char first = value.charAt(0);
+		for (String token : tokens) {
+			if (token.contains(value)) {
+				return false;
+			}
+			int start = Math.max(1, token.length() - value.length());
+			for (int pos = token.indexOf(first, start); pos > -1; pos = token.indexOf(first, pos + 1)) {
+				if (value.regionMatches(0, token, pos, token.length() - pos)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+}
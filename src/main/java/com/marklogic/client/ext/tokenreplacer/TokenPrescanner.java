@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.tokenreplacer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scans the bytes of content to cheaply determine that it cannot contain any of a set of tokens, so that the content
+ * does not need to be decoded into a String in order to replace tokens in it. For each token, the first two bytes of
+ * its UTF-8 encoding are recorded; content that contains none of those byte pairs cannot contain the token.
+ * <p>
+ * Content is only considered to not contain any tokens if decoding it with the given charset and then encoding it as
+ * UTF-8 - which is what happens when tokens are replaced in it - would produce the same bytes. That is the case when
+ * the content is entirely ASCII and the charset encodes ASCII as single bytes, or when the charset is UTF-8 and the
+ * content is valid UTF-8.
+ * </p>
+ * <p>
+ * Instances are immutable and can be shared across threads. Each thread reuses a single buffer for reading.
+ * </p>
+ *
+ * @since 4.8.0
+ */
+public class TokenPrescanner {
+
+	private final static int BUFFER_SIZE = 8192;
+	private final static ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+	private final static Map<Charset, Boolean> asciiCompatibleCharsets = new ConcurrentHashMap<>();
+
+	// Tokens that are a single byte long in UTF-8
+	private final boolean[] singleBytes = new boolean[256];
+	// The first two bytes of every other token, indexed by (first byte << 8 | second byte)
+	private final BitSet bytePairs = new BitSet(65536);
+
+	/**
+	 * @param tokens must not contain an empty token, as that can be found in any content
+	 */
+	public TokenPrescanner(Collection<String> tokens) {
+		for (String token : tokens) {
+			if (token == null || token.isEmpty()) {
+				throw new IllegalArgumentException("Tokens cannot be null or empty");
+			}
+			byte[] bytes = token.substring(0, Math.min(2, token.length())).getBytes(StandardCharsets.UTF_8);
+			if (bytes.length == 1) {
+				singleBytes[bytes[0] & 0xFF] = true;
+			} else {
+				bytePairs.set((bytes[0] & 0xFF) << 8 | (bytes[1] & 0xFF));
+			}
+		}
+	}
+
+	/**
+	 * Reads the given stream fully, but does not close it.
+	 *
+	 * @param in
+	 * @param charset the charset that would be used to decode the content when replacing tokens in it
+	 * @return true if the content definitely does not contain any tokens, and decoding it with the given charset and
+	 * encoding it as UTF-8 would produce the same bytes; false otherwise
+	 * @throws IOException
+	 */
+	public boolean containsNoTokens(InputStream in, Charset charset) throws IOException {
+		final boolean utf8 = StandardCharsets.UTF_8.equals(charset);
+		if (!utf8 && !isAsciiCompatible(charset)) {
+			return false;
+		}
+		final byte[] buffer = buffers.get();
+		int previous = -1;
+		// Number of UTF-8 continuation bytes still expected, and the valid range of the next one
+		int continuationBytes = 0;
+		int minContinuation = 0x80;
+		int maxContinuation = 0xBF;
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			for (int i = 0; i < read; i++) {
+				final int b = buffer[i] & 0xFF;
+				if (singleBytes[b] || (previous != -1 && bytePairs.get(previous << 8 | b))) {
+					return false;
+				}
+				previous = b;
+				if (continuationBytes > 0) {
+					if (b < minContinuation || b > maxContinuation) {
+						return false;
+					}
+					continuationBytes--;
+					minContinuation = 0x80;
+					maxContinuation = 0xBF;
+				} else if (b >= 0x80) {
+					if (!utf8) {
+						return false;
+					}
+					// Same rules as Java's UTF-8 decoder; no overlong encodings, surrogates, or values above U+10FFFF
+					if (b >= 0xC2 && b <= 0xDF) {
+						continuationBytes = 1;
+					} else if (b >= 0xE0 && b <= 0xEF) {
+						continuationBytes = 2;
+						minContinuation = b == 0xE0 ? 0xA0 : 0x80;
+						maxContinuation = b == 0xED ? 0x9F : 0xBF;
+					} else if (b >= 0xF0 && b <= 0xF4) {
+						continuationBytes = 3;
+						minContinuation = b == 0xF0 ? 0x90 : 0x80;
+						maxContinuation = b == 0xF4 ? 0x8F : 0xBF;
+					} else {
+						return false;
+					}
+				}
+			}
+		}
+		return continuationBytes == 0;
+	}
+
+	/**
+	 * @param charset
+	 * @return true if the charset decodes every ASCII byte to the same character
+	 */
+	private static boolean isAsciiCompatible(Charset charset) {
+		return asciiCompatibleCharsets.computeIfAbsent(charset, c -> {
+			if (!c.canEncode()) {
+				return false;
+			}
+			byte[] ascii = new byte[128];
+			for (int i = 0; i < ascii.length; i++) {
+				ascii[i] = (byte) i;
+			}
+			return Arrays.equals(ascii, new String(ascii, StandardCharsets.US_ASCII).getBytes(c))
+				&& new String(ascii, c).equals(new String(ascii, StandardCharsets.US_ASCII));
+		});
+	}
+}
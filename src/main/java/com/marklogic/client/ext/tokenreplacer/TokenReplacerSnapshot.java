@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.tokenreplacer;
+
+import com.marklogic.client.ext.helper.LoggingObject;
+import org.springframework.util.PropertyPlaceholderHelper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable snapshot of the tokens known to a {@code DefaultTokenReplacer} at the time the snapshot was created. The
+ * properties from every PropertiesSource are merged once and the property prefix is applied to each key once. Any
+ * "${...}" placeholders in a value are resolved the first time its token is found, and the resolved value is then
+ * reused; a value whose token is never found is thus never resolved, and an invalid placeholder in it does not cause
+ * an error. A snapshot can be shared by any number of threads without locking once its values have been resolved.
+ * <p>
+ * Subsequent changes to the properties of the DefaultTokenReplacer that created this are not reflected in this
+ * snapshot.
+ * </p>
+ *
+ * @since 4.8.0
+ */
+public final class TokenReplacerSnapshot extends LoggingObject implements StreamingTokenReplacer {
+
+	private final Properties properties;
+	private final PropertyPlaceholderHelper helper;
+
+	// The entries of the properties this was created from, excluding defaults, for detecting later changes to them
+	private final Map<Object, Object> sourceEntries;
+
+	// Tokens and their values, in the order in which the keys were enumerated by the properties
+	private final String[] tokens;
+	private final String[] rawValues;
+
+	// Each value with its placeholders resolved; an element is null until its token is first found
+	private final AtomicReferenceArray<String> resolvedValues;
+
+	// Null if the tokens cannot be replaced in a single pass, such as when a property key or value is not a String
+	private final TokenMatcher matcher;
+	private final TokenPrescanner prescanner;
+
+	/**
+	 * @param properties     not modified by this snapshot; values are resolved against a copy of it, including any
+	 *                       defaults, so that later changes to it do not affect this snapshot
+	 * @param propertyPrefix
+	 * @param helper         used to resolve placeholders in each value
+	 */
+	TokenReplacerSnapshot(Properties properties, String propertyPrefix, PropertyPlaceholderHelper helper) {
+		if (properties == null) {
+			properties = new Properties();
+		}
+		this.sourceEntries = new HashMap<>(properties);
+		this.properties = new Properties();
+		this.properties.putAll(properties);
+		for (String name : properties.stringPropertyNames()) {
+			if (!this.properties.containsKey(name)) {
+				this.properties.setProperty(name, properties.getProperty(name));
+			}
+		}
+		this.helper = helper;
+
+		List<String> tokenList = new ArrayList<>();
+		List<String> valueList = new ArrayList<>();
+		boolean allStrings = true;
+		for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+			Object key = entry.getKey();
+			String token = propertyPrefix != null ? propertyPrefix + key : key.toString();
+			tokenList.add(token);
+			valueList.add(properties.getProperty(key.toString()));
+			if (!(key instanceof String) || !(entry.getValue() instanceof String) || token.isEmpty()) {
+				allStrings = false;
+			}
+		}
+		this.tokens = tokenList.toArray(new String[0]);
+		this.rawValues = valueList.toArray(new String[0]);
+		this.resolvedValues = new AtomicReferenceArray<>(rawValues.length);
+		this.matcher = allStrings ? new TokenMatcher(tokenList) : null;
+		this.prescanner = tokenList.contains("") ? null : new TokenPrescanner(tokenList);
+	}
+
+	/**
+	 * All tokens are found in a single pass over the text, and the text is then rebuilt once with every token
+	 * replaced. The result is the same as replacing each token in turn, in the order of the keys in the properties, as
+	 * long as no two tokens overlap in the text and no replacement value can form a new token in combination with the
+	 * text around it. If either is not the case - e.g. with property keys that are prefixes of one another, such as
+	 * "@ml.name" and "@ml.name-suffix" - the tokens are replaced in turn.
+	 *
+	 * @param text
+	 * @return
+	 */
+	@Override
+	public String replaceTokens(String text) {
+		if (matcher == null) {
+			return replaceTokensSequentially(text);
+		}
+
+		// Find every token, and fall back to replacing tokens in turn if any two of them overlap
+		int[] matches = null;
+		int matchCount = 0;
+		int lastEnd = 0;
+		int state = 0;
+		for (int i = 0; i < text.length(); i++) {
+			state = matcher.nextState(state, text.charAt(i));
+			for (int m = matcher.firstMatch(state); m != -1; m = matcher.nextMatch(m)) {
+				int tokenIndex = matcher.getTokenIndex(m);
+				int start = i + 1 - tokens[tokenIndex].length();
+				if (start < lastEnd) {
+					return replaceTokensSequentially(text);
+				}
+				lastEnd = i + 1;
+				if (matches == null) {
+					matches = new int[16];
+				} else if (matchCount * 2 == matches.length) {
+					matches = Arrays.copyOf(matches, matches.length * 2);
+				}
+				matches[matchCount * 2] = start;
+				matches[matchCount * 2 + 1] = tokenIndex;
+				matchCount++;
+			}
+		}
+		if (matchCount == 0) {
+			return text;
+		}
+
+		BitSet checkedTokens = new BitSet();
+		for (int i = 0; i < matchCount; i++) {
+			int tokenIndex = matches[i * 2 + 1];
+			if (!checkedTokens.get(tokenIndex)) {
+				if (!matcher.isInert(value(tokenIndex))) {
+					return replaceTokensSequentially(text);
+				}
+				if (logger.isDebugEnabled()) {
+					logger.debug(format("Replacing %s with %s", tokens[tokenIndex], value(tokenIndex)));
+				}
+				checkedTokens.set(tokenIndex);
+			}
+		}
+
+		StringBuilder sb = new StringBuilder(text.length() + 16 * matchCount);
+		int pos = 0;
+		for (int i = 0; i < matchCount; i++) {
+			int start = matches[i * 2];
+			int tokenIndex = matches[i * 2 + 1];
+			sb.append(text, pos, start).append(value(tokenIndex));
+			pos = start + tokens[tokenIndex].length();
+		}
+		sb.append(text, pos, text.length());
+		return sb.toString();
+	}
+
+	/**
+	 * Tokens can be replaced while streaming when they can be replaced in a single pass - i.e. no two tokens overlap
+	 * in the text, and no replacement value can form a new token in combination with the text around it.
+	 *
+	 * @param reader
+	 * @return
+	 * @throws IOException
+	 */
+	@Override
+	public boolean canReplaceTokensWhileStreaming(Reader reader) throws IOException {
+		if (matcher == null) {
+			return false;
+		}
+		BitSet checkedTokens = new BitSet();
+		char[] buffer = new char[8192];
+		long position = 0;
+		long lastEnd = 0;
+		int state = 0;
+		int read;
+		while ((read = reader.read(buffer)) != -1) {
+			for (int i = 0; i < read; i++, position++) {
+				state = matcher.nextState(state, buffer[i]);
+				for (int m = matcher.firstMatch(state); m != -1; m = matcher.nextMatch(m)) {
+					int tokenIndex = matcher.getTokenIndex(m);
+					if (position + 1 - tokens[tokenIndex].length() < lastEnd) {
+						return false;
+					}
+					lastEnd = position + 1;
+					if (!checkedTokens.get(tokenIndex)) {
+						if (!matcher.isInert(value(tokenIndex))) {
+							return false;
+						}
+						checkedTokens.set(tokenIndex);
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Replaces tokens in a single pass, holding back only as many characters as may be part of a token. If the tokens
+	 * cannot be replaced in a single pass - see {@code canReplaceTokensWhileStreaming} - the result is not guaranteed
+	 * to be the same as that of {@code replaceTokens(String)}.
+	 *
+	 * @param reader
+	 * @param writer
+	 * @throws IOException
+	 */
+	@Override
+	public void replaceTokens(Reader reader, Writer writer) throws IOException {
+		char[] buffer = new char[8192];
+		int read;
+		if (matcher == null) {
+			StringBuilder text = new StringBuilder();
+			while ((read = reader.read(buffer)) != -1) {
+				text.append(buffer, 0, read);
+			}
+			writer.write(replaceTokens(text.toString()));
+			return;
+		}
+		StringBuilder pending = new StringBuilder();
+		int state = 0;
+		while ((read = reader.read(buffer)) != -1) {
+			for (int i = 0; i < read; i++) {
+				pending.append(buffer[i]);
+				state = matcher.nextState(state, buffer[i]);
+				int m = matcher.firstMatch(state);
+				if (m != -1) {
+					int tokenIndex = matcher.getTokenIndex(m);
+					int start = Math.max(0, pending.length() - tokens[tokenIndex].length());
+					writer.append(pending, 0, start).write(value(tokenIndex));
+					pending.setLength(0);
+				}
+			}
+			// Characters that cannot be part of a token are written once enough of them have accumulated
+			int keep = matcher.getDepth(state);
+			if (pending.length() - keep >= buffer.length) {
+				writer.append(pending, 0, pending.length() - keep);
+				pending.delete(0, pending.length() - keep);
+			}
+		}
+		writer.append(pending);
+	}
+
+	/**
+	 * Replaces each token in turn, which was the only approach prior to 4.8.0.
+	 *
+	 * @param text
+	 * @return
+	 */
+	String replaceTokensSequentially(String text) {
+		for (int i = 0; i < tokens.length; i++) {
+			String token = tokens[i];
+			if (logger.isTraceEnabled()) {
+				logger.trace("Checking for key in text: " + token);
+			}
+			if (text.contains(token)) {
+				// A null value results in the same error as before values were resolved up front
+				String value = rawValues[i] != null ? value(i) : helper.replacePlaceholders(null, properties);
+				if (logger.isDebugEnabled()) {
+					logger.debug(format("Replacing %s with %s", token, value));
+				}
+				text = text.replace(token, value);
+			}
+		}
+		return text;
+	}
+
+	/**
+	 * @param tokenIndex
+	 * @return the value of the given token with its placeholders resolved, which is computed the first time it is
+	 * needed; null if the value is null. Two threads may both resolve the same value, which produces the same result.
+	 */
+	private String value(int tokenIndex) {
+		String value = resolvedValues.get(tokenIndex);
+		if (value == null && rawValues[tokenIndex] != null) {
+			value = helper.replacePlaceholders(rawValues[tokenIndex], properties);
+			resolvedValues.set(tokenIndex, value);
+		}
+		return value;
+	}
+
+	/**
+	 * @return a prescanner for the tokens in this snapshot; null if any token is empty, as an empty token can be found
+	 * in any content
+	 */
+	@Override
+	public TokenPrescanner getTokenPrescanner() {
+		return prescanner;
+	}
+
+	/**
+	 * @param properties
+	 * @return true if the given properties have the same entries as those this snapshot was created from; defaults are
+	 * not compared
+	 */
+	boolean isCreatedFrom(Properties properties) {
+		return sourceEntries.equals(properties);
+	}
+
+	/**
+	 * @return a copy of the properties that this snapshot is based on, including any defaults
+	 */
+	public Properties getProperties() {
+		Properties copy = new Properties();
+		copy.putAll(properties);
+		return copy;
+	}
+}
@@ -23,6 +23,7 @@ import com.marklogic.xcc.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
@@ -48,6 +49,15 @@ public class DefaultDocumentWriteOperationAdapter implements DocumentWriteOperat
 			} catch (IOException e) {
 				throw new RuntimeException("Unable to read content input stream: " + e.getMessage(), e);
 			}
+		} else if (handle instanceof OutputStreamHandle) {
+			// XCC requires the content up front, so the sender must write it to memory first
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try {
+				((OutputStreamHandle) handle).get().write(out);
+			} catch (IOException e) {
+				throw new RuntimeException("Unable to write content to output stream: " + e.getMessage(), e);
+			}
+			return ContentFactory.newContent(uri, out.toByteArray(), options);
 		} else if (handle instanceof DOMHandle) {
 			return ContentFactory.newContent(uri, ((DOMHandle) handle).get(), options);
 		} else throw new IllegalArgumentException("No support yet for content class: " + handle.getClass().getName());
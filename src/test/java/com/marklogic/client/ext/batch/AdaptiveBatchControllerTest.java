@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import com.marklogic.client.document.DocumentWriteOperation;
+import com.marklogic.client.impl.DocumentWriteOperationImpl;
+import com.marklogic.client.io.StringHandle;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveBatchControllerTest {
+
+	private AdaptiveBatchController controller = new AdaptiveBatchController();
+
+	@Test
+	public void additiveIncrease() {
+		controller.setBatchSize(100);
+		controller.setConcurrency(4);
+		controller.batchFinished(controller.batchStarted(), 10, false);
+		assertEquals(110, controller.getBatchSize());
+		assertEquals(5, controller.getConcurrency());
+	}
+
+	@Test
+	public void increaseIsCappedByMaximums() {
+		controller.setMaxBatchSize(105);
+		controller.setMaxConcurrency(4);
+		controller.batchFinished(controller.batchStarted(), 10, false);
+		assertEquals(105, controller.getBatchSize());
+		assertEquals(4, controller.getConcurrency());
+	}
+
+	@Test
+	public void multiplicativeDecreaseOncePerRound() {
+		controller.setBatchSize(100);
+		controller.setConcurrency(8);
+		long first = controller.batchStarted();
+		long second = controller.batchStarted();
+
+		controller.batchFinished(first, 5000, false);
+		assertEquals(50, controller.getBatchSize());
+		assertEquals(4, controller.getConcurrency());
+
+		controller.batchFinished(second, 0, true);
+		assertEquals(50, controller.getBatchSize(), "The second batch started before the decrease, so it should not cause another one");
+		assertEquals(4, controller.getConcurrency());
+
+		controller.batchFinished(controller.batchStarted(), 0, true);
+		assertEquals(25, controller.getBatchSize());
+		assertEquals(2, controller.getConcurrency());
+	}
+
+	@Test
+	public void decreaseIsCappedByMinimums() {
+		controller.setBatchSize(2);
+		controller.setConcurrency(1);
+		controller.setMinBatchSize(2);
+		controller.batchFinished(controller.batchStarted(), 0, true);
+		assertEquals(2, controller.getBatchSize());
+		assertEquals(1, controller.getConcurrency());
+	}
+
+	@Test
+	public void writerSplitsItemsAndLimitsConcurrency() {
+		controller.setBatchSize(3);
+		controller.setBatchSizeIncrement(0);
+		controller.setConcurrency(2);
+		controller.setConcurrencyIncrement(0);
+
+		TestBatchWriter writer = new TestBatchWriter();
+		writer.setSleepMillis(50);
+		writer.setSplitIntoBatches(true);
+		writer.setThreadCount(8);
+		writer.setAdaptiveBatchController(controller);
+		writer.initialize();
+
+		List<DocumentWriteOperation> items = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			items.add(new DocumentWriteOperationImpl(DocumentWriteOperation.OperationType.DOCUMENT_WRITE,
+				"/test" + i + ".txt", null, new StringHandle("test")));
+		}
+		writer.write(items);
+		writer.waitForCompletion();
+
+		List<Integer> batchSizes = writer.getBatches().stream().map(List::size).sorted().collect(Collectors.toList());
+		assertEquals(4, batchSizes.size());
+		assertEquals(1, batchSizes.get(0));
+		assertEquals(3, batchSizes.get(3));
+		assertTrue(writer.getMaxConcurrent() <= 2, "Unexpected concurrency: " + writer.getMaxConcurrent());
+	}
+}
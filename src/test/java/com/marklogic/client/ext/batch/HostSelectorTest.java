@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import com.marklogic.client.MarkLogicIOException;
+import com.marklogic.client.document.DocumentWriteOperation;
+import com.marklogic.client.impl.DocumentWriteOperationImpl;
+import com.marklogic.client.io.StringHandle;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HostSelectorTest {
+
+	private final List<String> hosts = Arrays.asList("host1", "host2", "host3");
+
+	@Test
+	public void roundRobin() {
+		RoundRobinHostSelector<String> selector = new RoundRobinHostSelector<>(hosts);
+		assertEquals(Arrays.asList("host1", "host2", "host3", "host1"), acquire(selector, 4));
+	}
+
+	@Test
+	public void roundRobinIsThreadSafe() throws InterruptedException {
+		RoundRobinHostSelector<String> selector = new RoundRobinHostSelector<>(hosts);
+		List<String> selected = Collections.synchronizedList(new ArrayList<>());
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 300; i++) {
+			executor.execute(() -> selected.add(selector.acquire()));
+		}
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+
+		for (String host : hosts) {
+			assertEquals(100, Collections.frequency(selected, host), "Each host should be selected exactly 100 times");
+			assertEquals(100, selector.getOutstandingCount(host));
+		}
+	}
+
+	@Test
+	public void leastOutstanding() {
+		LeastOutstandingHostSelector<String> selector = new LeastOutstandingHostSelector<>(hosts);
+		acquire(selector, 3);
+		selector.release("host2", null);
+		assertEquals("host2", selector.acquire(), "host2 has the fewest outstanding batches");
+
+		selector.release("host3", null);
+		selector.release("host2", null);
+		String next = selector.acquire();
+		assertTrue(next.equals("host2") || next.equals("host3"));
+	}
+
+	@Test
+	public void weighted() {
+		WeightedHostSelector<String> selector = new WeightedHostSelector<>(hosts, Arrays.asList(3, 1, 1));
+		List<String> selected = acquire(selector, 10);
+		assertEquals(6, Collections.frequency(selected, "host1"));
+		assertEquals(2, Collections.frequency(selected, "host2"));
+		assertEquals(2, Collections.frequency(selected, "host3"));
+		assertFalse(selected.subList(0, 3).stream().allMatch("host1"::equals), "Selections should be interleaved");
+	}
+
+	@Test
+	public void ejection() {
+		RoundRobinHostSelector<String> selector = new RoundRobinHostSelector<>(hosts);
+		selector.setMaxConsecutiveFailures(2);
+		selector.setEjectionMillis(60000);
+
+		RuntimeException failure = new MarkLogicIOException("Connection refused");
+		selector.release(selector.acquire(), failure);
+		assertFalse(selector.isEjected("host1"));
+		selector.release("host2", null);
+		selector.release("host1", failure);
+		assertTrue(selector.isEjected("host1"));
+
+		List<String> selected = acquire(selector, 6);
+		assertFalse(selected.contains("host1"), "An ejected host should not be selected");
+	}
+
+	@Test
+	public void nonTransientFailuresDoNotEjectHost() {
+		RoundRobinHostSelector<String> selector = new RoundRobinHostSelector<>(hosts);
+		selector.setMaxConsecutiveFailures(2);
+		RuntimeException badDocument = new RuntimeException("XDMP-JSONDOC: invalid JSON");
+		for (int i = 0; i < 5; i++) {
+			selector.release("host1", badDocument);
+		}
+		assertFalse(selector.isEjected("host1"));
+
+		RuntimeException failure = new MarkLogicIOException("Connection refused");
+		selector.release("host1", failure);
+		selector.release("host1", badDocument);
+		selector.release("host1", failure);
+		assertFalse(selector.isEjected("host1"), "A non-transient failure shows the host is responding, so the count is reset");
+	}
+
+	@Test
+	public void weightedRejectsDuplicateHosts() {
+		assertThrows(IllegalArgumentException.class,
+			() -> new WeightedHostSelector<>(Arrays.asList("host1", "host2", "host1"), Arrays.asList(1, 1, 2)));
+	}
+
+	@Test
+	public void failedBatchOnCallingThreadReleasesHostOnce() {
+		RoundRobinHostSelector<String> selector = new RoundRobinHostSelector<>(Collections.singletonList("host1"));
+		selector.setMaxConsecutiveFailures(2);
+		selector.setEjectionMillis(60000);
+
+		TestBatchWriter writer = new TestBatchWriter();
+		writer.setThreadCount(1);
+		writer.setWriter(items -> {
+			throw new MarkLogicIOException("Connection refused");
+		});
+		writer.initialize();
+		List<DocumentWriteOperation> batch = Collections.singletonList(new DocumentWriteOperationImpl(
+			DocumentWriteOperation.OperationType.DOCUMENT_WRITE, "/a.json", null, new StringHandle("{}")));
+
+		assertThrows(MarkLogicIOException.class, () -> writer.write(selector, batch));
+		assertEquals(0, selector.getOutstandingCount("host1"), "The host should only be released once");
+		assertFalse(selector.isEjected("host1"));
+
+		assertThrows(MarkLogicIOException.class, () -> writer.write(selector, batch));
+		assertEquals(0, selector.getOutstandingCount("host1"));
+		assertTrue(selector.isEjected("host1"), "The failure count should not be reset by releasing the host again");
+	}
+
+	@Test
+	public void allHostsEjected() {
+		RoundRobinHostSelector<String> selector = new RoundRobinHostSelector<>(hosts);
+		selector.setMaxConsecutiveFailures(1);
+		RuntimeException failure = new MarkLogicIOException("Connection refused");
+		hosts.forEach(host -> selector.release(host, failure));
+
+		assertEquals(3, acquire(selector, 3).stream().distinct().count(),
+			"When every host has been ejected, all hosts should still be used so that writes can continue");
+	}
+
+	@Test
+	public void successResetsFailureCount() {
+		RoundRobinHostSelector<String> selector = new RoundRobinHostSelector<>(hosts);
+		selector.setMaxConsecutiveFailures(2);
+		RuntimeException failure = new MarkLogicIOException("Connection refused");
+		selector.release("host1", failure);
+		selector.release("host1", null);
+		selector.release("host1", failure);
+		assertFalse(selector.isEjected("host1"));
+	}
+
+	private List<String> acquire(HostSelector<String> selector, int count) {
+		List<String> list = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			list.add(selector.acquire());
+		}
+		return list;
+	}
+}
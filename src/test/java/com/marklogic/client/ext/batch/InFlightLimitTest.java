@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import com.marklogic.client.document.DocumentWriteOperation;
+import com.marklogic.client.impl.DocumentWriteOperationImpl;
+import com.marklogic.client.io.StringHandle;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InFlightLimitTest {
+
+	@Test
+	public void maxBatchesInFlight() {
+		TestBatchWriter writer = newWriter();
+		writer.setThreadCount(8);
+		writer.setMaxBatchesInFlight(2);
+		writer.initialize();
+		for (int i = 0; i < 10; i++) {
+			writer.write(newBatch("hello"));
+			assertTrue(writer.getBatchesInFlight() <= 2);
+		}
+		writer.waitForCompletion();
+
+		assertEquals(10, writer.getCompletedCount());
+		assertTrue(writer.getMaxConcurrent() <= 2, "Unexpected concurrency: " + writer.getMaxConcurrent());
+	}
+
+	@Test
+	public void maxBytesInFlight() {
+		TestBatchWriter writer = newWriter();
+		writer.setThreadCount(8);
+		writer.setMaxBytesInFlight(10);
+		writer.initialize();
+		for (int i = 0; i < 10; i++) {
+			writer.write(newBatch("12345"));
+		}
+		writer.waitForCompletion();
+
+		assertEquals(10, writer.getCompletedCount());
+		assertTrue(writer.getMaxConcurrent() <= 2, "Only 2 batches of 5 bytes each should fit within 10 bytes");
+	}
+
+	@Test
+	public void batchLargerThanByteLimitIsStillWritten() {
+		TestBatchWriter writer = newWriter();
+		writer.setThreadCount(4);
+		writer.setMaxBytesInFlight(2);
+		writer.initialize();
+		writer.write(newBatch("larger than the limit"));
+		writer.write(newBatch("also larger than the limit"));
+		writer.waitForCompletion();
+
+		assertEquals(2, writer.getCompletedCount());
+		assertEquals(1, writer.getMaxConcurrent());
+	}
+
+	@Test
+	public void callerRunsWhenLimitReached() {
+		TestBatchWriter writer = newWriter();
+		writer.setThreadCount(4);
+		writer.setMaxBatchesInFlight(1);
+		writer.setCallerRunsWhenLimitReached(true);
+		writer.initialize();
+		for (int i = 0; i < 5; i++) {
+			writer.write(newBatch("hello"));
+		}
+		writer.waitForCompletion();
+
+		assertEquals(5, writer.getCompletedCount());
+		assertTrue(writer.getCallingThreadRuns() > 0, "At least one batch should have been written by the calling thread");
+	}
+
+	private TestBatchWriter newWriter() {
+		TestBatchWriter writer = new TestBatchWriter();
+		writer.setSleepMillis(50);
+		return writer;
+	}
+
+	private List<DocumentWriteOperation> newBatch(String content) {
+		return Collections.singletonList(new DocumentWriteOperationImpl(DocumentWriteOperation.OperationType.DOCUMENT_WRITE,
+			"/test.txt", null, new StringHandle(content)));
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import com.marklogic.client.MarkLogicIOException;
+import com.marklogic.client.document.DocumentWriteOperation;
+import com.marklogic.client.ext.file.DocumentFile;
+import com.marklogic.client.impl.DocumentWriteOperationImpl;
+import com.marklogic.client.io.FileHandle;
+import com.marklogic.client.io.InputStreamHandle;
+import com.marklogic.client.io.OutputStreamHandle;
+import com.marklogic.client.io.OutputStreamSender;
+import com.marklogic.client.io.StringHandle;
+import com.marklogic.client.io.marker.AbstractWriteHandle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RetryPolicyTest {
+
+	@TempDir
+	Path tempDir;
+
+	private List<String> failedUris = new ArrayList<>();
+	private List<DocumentWriteOperation> failedItems = new ArrayList<>();
+	private int attempts;
+
+	@Test
+	public void isTransient() {
+		RetryPolicy policy = new RetryPolicy();
+		assertTrue(policy.isTransient(new MarkLogicIOException("Connection reset")));
+		assertTrue(policy.isTransient(new RuntimeException("Wrapped", new IOException("Broken pipe"))));
+		assertTrue(policy.isTransient(new RuntimeException("XDMP-LOCK: lock timeout")));
+		assertFalse(policy.isTransient(new RuntimeException("Wrapped", new FileNotFoundException("missing"))));
+		assertFalse(policy.isTransient(new RuntimeException("XDMP-DOCROOTTEXT: invalid document")));
+	}
+
+	@Test
+	public void backoff() {
+		RetryPolicy policy = new RetryPolicy();
+		policy.setInitialBackoffMillis(100);
+		policy.setMaxBackoffMillis(350);
+		assertEquals(100, policy.getBackoffMillis(0));
+		assertEquals(200, policy.getBackoffMillis(1));
+		assertEquals(350, policy.getBackoffMillis(2));
+	}
+
+	@Test
+	public void transientFailureIsRetried() {
+		TestBatchWriter writer = newWriter();
+		writer.setWriter(batch -> {
+			if (attempts++ < 2) {
+				throw new MarkLogicIOException("Connection reset");
+			}
+		});
+		writer.write(newBatch("/a.json", "/b.json"));
+		assertEquals(3, attempts);
+		assertTrue(failedUris.isEmpty());
+	}
+
+	@Test
+	public void transientFailureExceedsMaxRetries() {
+		TestBatchWriter writer = newWriter();
+		writer.setWriter(batch -> {
+			attempts++;
+			throw new MarkLogicIOException("Connection reset");
+		});
+		assertThrows(MarkLogicIOException.class, () -> writer.write(newBatch("/a.json")));
+		assertEquals(4, attempts, "Expecting the first attempt plus 3 retries");
+	}
+
+	@Test
+	public void batchIsNotBisectedOnceTransientRetriesAreExhausted() {
+		TestBatchWriter writer = newWriter();
+		writer.setWriter(batch -> {
+			attempts++;
+			throw new MarkLogicIOException("Connection reset");
+		});
+		assertThrows(MarkLogicIOException.class, () -> writer.write(newBatch("/a.json", "/b.json", "/c.json", "/d.json",
+			"/e.json", "/f.json", "/g.json", "/h.json")));
+		assertEquals(4, attempts, "Expecting the first attempt plus 3 retries, and no attempts to write halves of the batch");
+		assertTrue(failedUris.isEmpty());
+	}
+
+	@Test
+	public void halfIsReportedOnceTransientRetriesAreExhausted() {
+		TestBatchWriter writer = newWriter();
+		writer.setWriter(batch -> {
+			attempts++;
+			if (batch.size() > 2) {
+				throw new RuntimeException("XDMP-JSONDOC: invalid JSON");
+			}
+			throw new MarkLogicIOException("Connection reset");
+		});
+		writer.write(newBatch("/a.json", "/b.json", "/c.json", "/d.json"));
+		assertEquals(Arrays.asList("/a.json", "/b.json", "/c.json", "/d.json"), failedUris);
+		assertEquals(9, attempts, "Expecting 1 attempt for the batch, then 4 attempts for each half, which are not split further");
+	}
+
+	@Test
+	public void batchIsBisectedToIsolateBadDocument() {
+		TestBatchWriter writer = newWriter();
+		writer.setWriter(batch -> {
+			attempts++;
+			for (DocumentWriteOperation op : batch) {
+				if (op.getUri().equals("/bad.json")) {
+					throw new RuntimeException("XDMP-JSONDOC: invalid JSON");
+				}
+			}
+		});
+		writer.write(newBatch("/a.json", "/b.json", "/bad.json", "/c.json"));
+		assertEquals(Arrays.asList("/bad.json"), failedUris);
+		assertEquals(5, attempts, "Expecting 4 docs, then 2+2, then 1+1 for the half with the bad doc");
+	}
+
+	@Test
+	public void contentThatCannotBeResentIsNotRetried() {
+		TestBatchWriter writer = newWriter();
+		writer.setWriter(batch -> {
+			attempts++;
+			throw new MarkLogicIOException("Connection reset");
+		});
+		List<DocumentWriteOperation> batch = Arrays.asList(new DocumentWriteOperationImpl(DocumentWriteOperation.OperationType.DOCUMENT_WRITE,
+			"/a.json", null, new InputStreamHandle(new ByteArrayInputStream("{}".getBytes()))));
+		assertThrows(MarkLogicIOException.class, () -> writer.write(batch));
+		assertEquals(1, attempts);
+	}
+
+	@Test
+	public void fileIsResentViaFileHandle() throws IOException {
+		DocumentWriteOperation op = newFileOperation("a.json");
+		assertTrue(op.getContent() instanceof InputStreamHandle, "A file is still sent via a stream when it is not retried");
+
+		List<AbstractWriteHandle> sentContent = new ArrayList<>();
+		TestBatchWriter writer = newWriter();
+		writer.setWriter(batch -> {
+			sentContent.add(batch.get(0).getContent());
+			if (attempts++ < 2) {
+				throw new MarkLogicIOException("Connection reset");
+			}
+		});
+		writer.write(Arrays.asList(op));
+		assertEquals(3, attempts);
+		assertTrue(sentContent.stream().allMatch(content -> content instanceof FileHandle),
+			"The file should be sent via a FileHandle so that it can be sent again");
+	}
+
+	@Test
+	public void originalFileOperationIsReportedAsFailure() throws IOException {
+		DocumentWriteOperation good = newFileOperation("good.json");
+		DocumentWriteOperation bad = newFileOperation("bad.json");
+		TestBatchWriter writer = newWriter();
+		writer.setWriter(batch -> {
+			for (DocumentWriteOperation op : batch) {
+				if (op.getUri().equals("/bad.json")) {
+					throw new RuntimeException("XDMP-JSONDOC: invalid JSON");
+				}
+			}
+		});
+		writer.write(Arrays.asList(good, bad));
+		assertEquals(1, failedItems.size());
+		assertSame(bad, failedItems.get(0), "The operation that was given to the writer should be reported, not its replacement");
+	}
+
+	@Test
+	public void resendableOutputStreamSenderIsRetried() {
+		RetryPolicy policy = new RetryPolicy();
+		OutputStreamSender plainSender = out -> out.write("{}".getBytes());
+		ResendableOutputStreamSender resendableSender = out -> out.write("{}".getBytes());
+		assertFalse(policy.canBeResent(Arrays.asList(new DocumentWriteOperationImpl(DocumentWriteOperation.OperationType.DOCUMENT_WRITE,
+			"/a.json", null, new OutputStreamHandle(plainSender)))));
+		assertTrue(policy.canBeResent(Arrays.asList(new DocumentWriteOperationImpl(DocumentWriteOperation.OperationType.DOCUMENT_WRITE,
+			"/a.json", null, new OutputStreamHandle(resendableSender)))));
+	}
+
+	private TestBatchWriter newWriter() {
+		RetryPolicy policy = new RetryPolicy();
+		policy.setInitialBackoffMillis(1);
+		TestBatchWriter writer = new TestBatchWriter();
+		writer.setThreadCount(1);
+		writer.setUseRetry(true);
+		writer.setRetryPolicy(policy);
+		writer.setWriteListener(new WriteListenerSupport() {
+			@Override
+			public void onWriteFailure(Throwable ex, List<? extends DocumentWriteOperation> items) {
+				items.forEach(item -> failedUris.add(item.getUri()));
+				failedItems.addAll(items);
+			}
+		});
+		writer.initialize();
+		return writer;
+	}
+
+	private DocumentWriteOperation newFileOperation(String filename) throws IOException {
+		File file = tempDir.resolve(filename).toFile();
+		Files.write(file.toPath(), "{}".getBytes());
+		return new DocumentFile("/" + filename, file).toDocumentWriteOperation();
+	}
+
+	private List<DocumentWriteOperation> newBatch(String... uris) {
+		List<DocumentWriteOperation> list = new ArrayList<>();
+		for (String uri : uris) {
+			list.add(new DocumentWriteOperationImpl(DocumentWriteOperation.OperationType.DOCUMENT_WRITE, uri, null, new StringHandle("{}")));
+		}
+		return list;
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import com.marklogic.client.document.DocumentWriteOperation;
+import com.marklogic.client.impl.DocumentWriteOperationImpl;
+import com.marklogic.client.io.StringHandle;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ReuseTaskExecutorTest {
+
+	@Test
+	public void taskExecutorIsReusedAcrossLoads() {
+		TestBatchWriter writer = newWriter();
+		writer.setThreadCount(4);
+		writer.setShutdownTaskExecutorOnCompletion(false);
+
+		writer.initialize();
+		TaskExecutor taskExecutor = writer.getTaskExecutor();
+		for (int i = 0; i < 5; i++) {
+			writer.write(newBatch("/test.txt"));
+		}
+		writer.waitForCompletion();
+		assertEquals(5, writer.getCompletedCount(), "waitForCompletion should wait for every batch to be written");
+		assertSame(taskExecutor, writer.getTaskExecutor());
+
+		writer.initialize();
+		for (int i = 0; i < 5; i++) {
+			writer.write(newBatch("/test.txt"));
+		}
+		writer.waitForCompletion();
+		assertEquals(10, writer.getCompletedCount());
+		assertSame(taskExecutor, writer.getTaskExecutor(), "The same thread pool should be used for the second load");
+
+		writer.close();
+		assertNull(writer.getTaskExecutor());
+	}
+
+	@Test
+	public void failureIsReportedForEachLoad() {
+		TestBatchWriter writer = newWriter();
+		writer.setThreadCount(4);
+		writer.setShutdownTaskExecutorOnCompletion(false);
+		writer.initialize();
+
+		writer.write(newBatch("/fail.txt"));
+		assertThrows(RuntimeException.class, () -> writer.waitForCompletion(),
+			"The failure should have been reported to the WriteListener before waitForCompletion returns");
+
+		writer.write(newBatch("/test.txt"));
+		writer.waitForCompletion();
+		assertNotNull(writer.getTaskExecutor());
+		writer.close();
+	}
+
+	@Test
+	public void defaultIsToShutdown() {
+		TestBatchWriter writer = newWriter();
+		writer.setThreadCount(4);
+		writer.initialize();
+		writer.write(newBatch("/test.txt"));
+		writer.waitForCompletion();
+		assertNull(writer.getTaskExecutor());
+	}
+
+	private TestBatchWriter newWriter() {
+		TestBatchWriter writer = new TestBatchWriter();
+		writer.setSleepMillis(50);
+		writer.setFailingUri("/fail.txt");
+		return writer;
+	}
+
+	private List<DocumentWriteOperation> newBatch(String uri) {
+		return Collections.singletonList(new DocumentWriteOperationImpl(DocumentWriteOperation.OperationType.DOCUMENT_WRITE,
+			uri, null, new StringHandle("hello")));
+	}
+}
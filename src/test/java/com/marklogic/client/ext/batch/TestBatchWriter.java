@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import com.marklogic.client.document.DocumentWriteOperation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * BatchWriter for tests that does not connect to MarkLogic. Each batch is submitted via executeRunnable, and writing a
+ * batch consists of sleeping for sleepMillis, failing if the batch contains failingUri, and then invoking the
+ * configured writer. Batches that are written successfully are recorded, as are the number of batches being written at
+ * once and the number of times each lifecycle method was called.
+ */
+public class TestBatchWriter extends BatchWriterSupport {
+
+	private final Thread callingThread = Thread.currentThread();
+
+	private final List<List<? extends DocumentWriteOperation>> batches = Collections.synchronizedList(new ArrayList<>());
+	private final AtomicInteger concurrent = new AtomicInteger();
+	private final AtomicInteger maxConcurrent = new AtomicInteger();
+	private final AtomicInteger callingThreadRuns = new AtomicInteger();
+	private int initializeCount;
+	private int waitForCompletionCount;
+
+	private Consumer<List<? extends DocumentWriteOperation>> writer = items -> {
+	};
+	private long sleepMillis;
+	private String failingUri;
+	private boolean useRetry;
+	private boolean splitIntoBatches;
+
+	@Override
+	public void initialize() {
+		initializeCount++;
+		super.initialize();
+	}
+
+	@Override
+	public void waitForCompletion() {
+		waitForCompletionCount++;
+		super.waitForCompletion();
+	}
+
+	/**
+	 * If splitIntoBatches is true, the items are split based on the AdaptiveBatchController before being submitted.
+	 */
+	@Override
+	public void write(List<? extends DocumentWriteOperation> items) {
+		if (splitIntoBatches) {
+			forEachBatch(items, batch -> executeRunnable(() -> writeBatch(batch), batch));
+		} else {
+			executeRunnable(() -> writeBatch(items), items);
+		}
+	}
+
+	/**
+	 * Writes the given items via a host acquired from the given HostSelector.
+	 */
+	public void write(HostSelector<String> hostSelector, List<? extends DocumentWriteOperation> items) {
+		executeRunnable(hostSelector, hostSelector.acquire(), () -> writeBatch(items), items);
+	}
+
+	private void writeBatch(List<? extends DocumentWriteOperation> items) {
+		if (Thread.currentThread() == callingThread) {
+			callingThreadRuns.incrementAndGet();
+		}
+		maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+		try {
+			if (useRetry) {
+				writeWithRetry(items, this::doWrite);
+			} else {
+				doWrite(items);
+			}
+			batches.add(items);
+		} finally {
+			concurrent.decrementAndGet();
+		}
+	}
+
+	private void doWrite(List<? extends DocumentWriteOperation> items) {
+		if (sleepMillis > 0) {
+			try {
+				Thread.sleep(sleepMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (failingUri != null) {
+			for (DocumentWriteOperation item : items) {
+				if (failingUri.equals(item.getUri())) {
+					throw new RuntimeException("Intentional failure");
+				}
+			}
+		}
+		writer.accept(items);
+	}
+
+	/**
+	 * @return the batches that were written successfully, in the order in which they finished
+	 */
+	public List<List<? extends DocumentWriteOperation>> getBatches() {
+		return batches;
+	}
+
+	public int getCompletedCount() {
+		return batches.size();
+	}
+
+	public int getMaxConcurrent() {
+		return maxConcurrent.get();
+	}
+
+	/**
+	 * @return the number of batches that were written by the thread that constructed this object
+	 */
+	public int getCallingThreadRuns() {
+		return callingThreadRuns.get();
+	}
+
+	public int getInitializeCount() {
+		return initializeCount;
+	}
+
+	public int getWaitForCompletionCount() {
+		return waitForCompletionCount;
+	}
+
+	/**
+	 * @param writer invoked with each batch after sleeping and checking for failingUri; a batch fails if this throws
+	 */
+	public void setWriter(Consumer<List<? extends DocumentWriteOperation>> writer) {
+		this.writer = writer;
+	}
+
+	public void setSleepMillis(long sleepMillis) {
+		this.sleepMillis = sleepMillis;
+	}
+
+	/**
+	 * @param failingUri a batch containing a document with this URI fails with "Intentional failure"
+	 */
+	public void setFailingUri(String failingUri) {
+		this.failingUri = failingUri;
+	}
+
+	/**
+	 * @param useRetry if true, each batch is written via writeWithRetry, and thus via the RetryPolicy if one is set
+	 */
+	public void setUseRetry(boolean useRetry) {
+		this.useRetry = useRetry;
+	}
+
+	public void setSplitIntoBatches(boolean splitIntoBatches) {
+		this.splitIntoBatches = splitIntoBatches;
+	}
+}
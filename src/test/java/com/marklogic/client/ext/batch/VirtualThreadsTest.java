@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import com.marklogic.client.document.DocumentWriteOperation;
+import com.marklogic.client.ext.helper.VirtualThreadUtil;
+import com.marklogic.client.impl.DocumentWriteOperationImpl;
+import com.marklogic.client.io.StringHandle;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies virtual threads on Java 21 or higher, and verifies the fallback to a thread pool on earlier versions.
+ */
+public class VirtualThreadsTest {
+
+	@Test
+	public void test() {
+		TestBatchWriter writer = new TestBatchWriter();
+		writer.setSleepMillis(20);
+		writer.setUseVirtualThreads(true);
+		writer.setThreadCount(3);
+		writer.initialize();
+
+		if (VirtualThreadUtil.isSupported()) {
+			assertTrue(writer.getTaskExecutor() instanceof ConcurrentTaskExecutor);
+		} else {
+			assertTrue(writer.getTaskExecutor() instanceof ThreadPoolTaskExecutor);
+			assertThrows(UnsupportedOperationException.class, () -> VirtualThreadUtil.newVirtualThreadPerTaskExecutor());
+		}
+
+		for (int i = 0; i < 12; i++) {
+			writer.write(Collections.singletonList(new DocumentWriteOperationImpl(DocumentWriteOperation.OperationType.DOCUMENT_WRITE,
+				"/test.txt", null, new StringHandle("hello"))));
+		}
+		writer.waitForCompletion();
+
+		assertEquals(12, writer.getCompletedCount());
+		assertTrue(writer.getMaxConcurrent() <= 3, "threadCount should limit concurrency; max: " + writer.getMaxConcurrent());
+		assertNull(writer.getTaskExecutor());
+	}
+}
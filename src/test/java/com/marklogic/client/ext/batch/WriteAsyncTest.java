@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import com.marklogic.client.document.DocumentWriteOperation;
+import com.marklogic.client.impl.DocumentWriteOperationImpl;
+import com.marklogic.client.io.StringHandle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WriteAsyncTest {
+
+	private TestBatchWriter writer = new TestBatchWriter();
+
+	@BeforeEach
+	void setUp() {
+		writer.setSleepMillis(20);
+		writer.setFailingUri("/fail.json");
+		writer.setUseRetry(true);
+		writer.setSplitIntoBatches(true);
+	}
+
+	@AfterEach
+	void tearDown() {
+		writer.close();
+	}
+
+	@Test
+	public void singleBatch() {
+		writer.initialize();
+		CompletableFuture<BatchWriteResult> future = writer.writeAsync(newBatch("/a.json", "/b.json"));
+		BatchWriteResult result = future.join();
+		assertEquals(Arrays.asList("/a.json", "/b.json"), result.getUris());
+		assertTrue(result.getLatencyMillis() >= 20);
+		assertEquals(10, result.getByteCount());
+		assertTrue(result.getFailedItems().isEmpty());
+	}
+
+	@Test
+	public void failedBatch() {
+		writer.setWriteListener(null);
+		writer.initialize();
+		CompletableFuture<BatchWriteResult> future = writer.writeAsync(newBatch("/fail.json"));
+		CompletionException ex = assertThrows(CompletionException.class, future::join);
+		assertEquals("Intentional failure", ex.getCause().getMessage());
+	}
+
+	@Test
+	public void failureOnCallingThread() {
+		writer.setThreadCount(1);
+		writer.setWriteListener(null);
+		writer.initialize();
+		CompletableFuture<BatchWriteResult> future = writer.writeAsync(newBatch("/fail.json"));
+		assertTrue(future.isCompletedExceptionally(), "The failure should be captured by the future instead of being thrown");
+	}
+
+	@Test
+	public void splitBatchesAreCombined() {
+		AdaptiveBatchController controller = new AdaptiveBatchController();
+		controller.setBatchSize(2);
+		controller.setBatchSizeIncrement(0);
+		writer.setAdaptiveBatchController(controller);
+		writer.initialize();
+
+		BatchWriteResult result = writer.writeAsync(newBatch("/a.json", "/b.json", "/c.json", "/d.json", "/e.json")).join();
+		assertEquals(Arrays.asList("/a.json", "/b.json", "/c.json", "/d.json", "/e.json"), result.getUris());
+		assertEquals(25, result.getByteCount());
+	}
+
+	@Test
+	public void partialFailureIsCaptured() {
+		RetryPolicy policy = new RetryPolicy();
+		policy.setInitialBackoffMillis(1);
+		writer.setRetryPolicy(policy);
+		writer.setWriteListener(new WriteListenerSupport());
+		writer.initialize();
+
+		BatchWriteResult result = writer.writeAsync(newBatch("/a.json", "/fail.json")).join();
+		assertEquals(Arrays.asList("/a.json"), result.getUris());
+		assertEquals("/fail.json", result.getFailedItems().get(0).getUri());
+	}
+
+	@Test
+	public void awaitSubset() {
+		writer.initialize();
+		List<CompletableFuture<BatchWriteResult>> futures = new ArrayList<>();
+		futures.add(writer.writeAsync(newBatch("/a.json")));
+		futures.add(writer.writeAsync(newBatch("/b.json")));
+		CompletableFuture<BatchWriteResult> other = writer.writeAsync(newBatch("/fail.json"));
+
+		List<BatchWriteResult> results = BatchWriteFutures.await(futures);
+		assertEquals("/a.json", results.get(0).getUris().get(0));
+		assertEquals("/b.json", results.get(1).getUris().get(0));
+
+		RuntimeException ex = assertThrows(RuntimeException.class, () -> BatchWriteFutures.await(Arrays.asList(other)));
+		assertEquals("Intentional failure", ex.getCause().getMessage());
+		assertFalse(futures.stream().anyMatch(CompletableFuture::isCompletedExceptionally));
+	}
+
+	private List<DocumentWriteOperation> newBatch(String... uris) {
+		List<DocumentWriteOperation> list = new ArrayList<>();
+		for (String uri : uris) {
+			list.add(new DocumentWriteOperationImpl(DocumentWriteOperation.OperationType.DOCUMENT_WRITE, uri, null, new StringHandle("hello")));
+		}
+		return list;
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.batch;
+
+import com.marklogic.client.document.DocumentWriteOperation;
+import com.marklogic.client.impl.DocumentWriteOperationImpl;
+import com.marklogic.client.io.StringHandle;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WriteMetricsTest {
+
+	private WriteMetrics metrics = new WriteMetrics();
+	private List<BatchWriteResult> results = new ArrayList<>();
+
+	@Test
+	public void successAndFailure() {
+		TestBatchWriter writer = newWriter();
+		writer.write(newBatch("/a.json", "/b.json"));
+		assertThrows(RuntimeException.class, () -> writer.write(newBatch("/fail.json")),
+			"The failure is thrown because a synchronous TaskExecutor is used");
+
+		WriteMetricsSnapshot snapshot = metrics.getSnapshot();
+		WriteMetricsSnapshot.Counts totals = snapshot.getTotals();
+		assertEquals(1, totals.getBatchesWritten());
+		assertEquals(2, totals.getDocumentsWritten());
+		assertEquals(10, totals.getBytesWritten(), "Each document has 5 characters of content");
+		assertEquals(1, totals.getBatchesFailed());
+		assertEquals(1, totals.getDocumentsFailed());
+		assertEquals(1, totals.getWriteLatency().getCount());
+
+		assertEquals(1, results.size());
+		assertEquals(2, results.get(0).getItems().size());
+		assertEquals(10, results.get(0).getByteCount());
+		assertTrue(results.get(0).getLatencyMillis() >= 0);
+		assertTrue(snapshot.getPhases().containsKey(WriteMetrics.PHASE_QUEUE));
+		assertTrue(snapshot.getPhases().containsKey(WriteMetrics.PHASE_WRITE));
+	}
+
+	@Test
+	public void perHost() {
+		TestBatchWriter writer = newWriter();
+		RoundRobinHostSelector<String> selector = new RoundRobinHostSelector<>(Arrays.asList("host1", "host2"));
+		for (int i = 0; i < 3; i++) {
+			writer.write(selector, newBatch("/a.json"));
+		}
+
+		WriteMetricsSnapshot snapshot = metrics.getSnapshot();
+		assertEquals(2, snapshot.getHosts().get("host1").getBatchesWritten());
+		assertEquals(1, snapshot.getHosts().get("host2").getBatchesWritten());
+		assertEquals("host1", results.get(0).getHost());
+	}
+
+	@Test
+	public void retriesAndBisection() {
+		RetryPolicy policy = new RetryPolicy();
+		policy.setInitialBackoffMillis(1);
+		TestBatchWriter writer = newWriter();
+		writer.setRetryPolicy(policy);
+		writer.setUseRetry(true);
+
+		writer.write(newBatch("/a.json", "/fail.json", "/b.json", "/c.json"));
+
+		WriteMetricsSnapshot.Counts totals = metrics.getSnapshot().getTotals();
+		assertEquals(3, totals.getDocumentsWritten(), "Only the documents that were written should be counted");
+		assertEquals(1, totals.getDocumentsFailed());
+		assertEquals(1, results.size());
+		assertEquals(3, results.get(0).getItems().size());
+		assertFalse(results.get(0).getItems().stream().anyMatch(item -> item.getUri().equals("/fail.json")));
+	}
+
+	@Test
+	public void histogram() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i);
+		}
+		LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+		assertEquals(100, snapshot.getCount());
+		assertEquals(50.5, snapshot.getMean());
+		assertEquals(100, snapshot.getMax());
+		assertEquals(50, snapshot.getPercentile(50));
+		assertEquals(100, snapshot.getPercentile(99));
+		assertEquals(0, new LatencyHistogram().getSnapshot().getPercentile(99));
+	}
+
+	@Test
+	public void jmx() throws Exception {
+		String name = "com.marklogic.client.ext:type=WriteMetrics,name=test";
+		metrics.registerMBean(name);
+		try {
+			newWriter().write(newBatch("/a.json"));
+			Object value = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(name), "DocumentsWritten");
+			assertEquals(1L, value);
+		} finally {
+			metrics.unregisterMBean();
+		}
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(name)));
+	}
+
+	@Test
+	public void reset() {
+		newWriter().write(newBatch("/a.json"));
+		metrics.reset();
+		assertEquals(0, metrics.getDocumentsWritten());
+		assertTrue(metrics.getSnapshot().getHosts().isEmpty());
+	}
+
+	private TestBatchWriter newWriter() {
+		TestBatchWriter writer = new TestBatchWriter();
+		writer.setFailingUri("/fail.json");
+		writer.setThreadCount(1);
+		writer.setWriteMetrics(metrics);
+		writer.setWriteListener(new WriteListenerSupport() {
+			@Override
+			public void onWriteSuccess(BatchWriteResult result) {
+				results.add(result);
+			}
+		});
+		writer.initialize();
+		return writer;
+	}
+
+	private List<DocumentWriteOperation> newBatch(String... uris) {
+		List<DocumentWriteOperation> list = new ArrayList<>();
+		for (String uri : uris) {
+			list.add(new DocumentWriteOperationImpl(DocumentWriteOperation.OperationType.DOCUMENT_WRITE, uri, null, new StringHandle("hello")));
+		}
+		return list;
+	}
+}
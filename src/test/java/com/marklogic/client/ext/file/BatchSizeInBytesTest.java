@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.file;
+
+import com.marklogic.client.ext.batch.TestBatchWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BatchSizeInBytesTest {
+
+	@TempDir
+	Path tempDir;
+
+	private TestBatchWriter writer = new TestBatchWriter();
+	private GenericFileLoader loader = new GenericFileLoader(writer);
+
+	@BeforeEach
+	void createFiles() throws IOException {
+		writer.setThreadCount(1);
+		writeFile("a.txt", 40);
+		writeFile("b.txt", 40);
+		writeFile("c.txt", 40);
+		writeFile("d.bin", 500);
+		writeFile("e.txt", 10);
+	}
+
+	@Test
+	public void batchSizeInBytes() {
+		loader.setBatchSizeInBytes(100);
+		loader.loadFiles(tempDir.toString());
+
+		assertEquals(5, writer.getBatches().stream().mapToInt(List::size).sum());
+		batchLengths().forEach(batch -> assertTrue(batch.size() == 1 || totalLength(batch) <= 100,
+			"A batch can only exceed the limit if it has a single file; batch: " + batch));
+		assertTrue(batchLengths().contains(Arrays.asList(500L)), "d.bin is larger than the limit, so it should be in its own batch");
+	}
+
+	@Test
+	public void batchSizeIsCapOnFileCount() {
+		loader.setBatchSizeInBytes(1000);
+		loader.setBatchSize(2);
+		loader.loadFiles(tempDir.toString());
+
+		assertEquals(5, writer.getBatches().stream().mapToInt(List::size).sum());
+		assertEquals(3, writer.getBatches().size());
+		batchLengths().forEach(batch -> assertTrue(batch.size() <= 2));
+	}
+
+	@Test
+	public void largeFileIsWrittenByItself() {
+		loader.setLargeFileThresholdInBytes(200);
+		loader.loadFiles(tempDir.toString());
+
+		assertEquals(2, writer.getBatches().size());
+		assertTrue(batchLengths().contains(Arrays.asList(500L)));
+		assertTrue(batchLengths().stream().anyMatch(batch -> batch.size() == 4));
+	}
+
+	@Test
+	public void streaming() {
+		loader.setStreamingEnabled(true);
+		loader.setBatchSizeInBytes(100);
+		loader.setLargeFileThresholdInBytes(200);
+		loader.loadFiles(tempDir.toString());
+
+		assertEquals(5, writer.getBatches().stream().mapToInt(List::size).sum());
+		assertTrue(batchLengths().contains(Arrays.asList(500L)));
+		batchLengths().forEach(batch -> assertTrue(batch.size() == 1 || totalLength(batch) <= 100));
+	}
+
+	private long totalLength(List<Long> batch) {
+		return batch.stream().mapToLong(Long::longValue).sum();
+	}
+
+	private void writeFile(String name, int length) throws IOException {
+		Files.write(tempDir.resolve(name), new byte[length]);
+	}
+
+	/**
+	 * @return the length of each file in each batch that was written
+	 */
+	private List<List<Long>> batchLengths() {
+		return writer.getBatches().stream()
+			.map(batch -> batch.stream().map(item -> fileLength(item.getUri())).collect(Collectors.toList()))
+			.collect(Collectors.toList());
+	}
+
+	private long fileLength(String uri) {
+		try {
+			return Files.size(tempDir.resolve(uri.substring(uri.lastIndexOf('/') + 1)));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
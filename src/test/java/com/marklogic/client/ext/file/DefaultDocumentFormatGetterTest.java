@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.file;
+
+import com.marklogic.client.io.Format;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.FileSystemResource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DefaultDocumentFormatGetterTest {
+
+	private DefaultDocumentFormatGetter getter = new DefaultDocumentFormatGetter();
+
+	@Test
+	void sameFormatsAsCheckingEachExtension() {
+		String[] names = new String[]{"test.xml", "test.json", "test.txt", "test.sjs", "test.xqy", "test.png", "test.PNG",
+			"archive.tar.gz", "test.tdex", "test.tdej", "test.xsl", "test.xslt", "myxml", "json", "test.pdf.xml",
+			"test.xml.pdf", "test", "", "a.gz", "x.docx", "test.jar"};
+		for (String name : names) {
+			assertEquals(getFormatByCheckingEachExtension(name), getFormat(name), "Unexpected format for: " + name);
+		}
+		assertEquals(Format.XML, getFormat("myxml"), "Extensions are matched via endsWith, not by the text after the last period");
+		assertEquals(Format.TEXT, getFormat("test.PNG"), "Extensions are case-sensitive");
+	}
+
+	@Test
+	void compoundExtension() {
+		getter.setJsonExtensions(Arrays.asList("json", "json.gz"));
+		assertEquals(Format.JSON, getFormat("data.json.gz"), "JSON has precedence over binary");
+		assertEquals(Format.BINARY, getFormat("data.xml2.gz"));
+	}
+
+	@Test
+	void indexRebuiltWhenExtensionsChange() {
+		assertEquals(Format.TEXT, getFormat("file.test1"));
+
+		getter.getBinaryExtensions().add("test1");
+		assertEquals(Format.BINARY, getFormat("file.test1"));
+
+		getter.getXmlExtensions().set(0, "test1");
+		assertEquals(Format.XML, getFormat("file.test1"));
+
+		getter.setXmlExtensions(Arrays.asList("xml"));
+		assertEquals(Format.BINARY, getFormat("file.test1"));
+
+		getter.setBinaryExtensions(Arrays.asList("png"));
+		assertEquals(Format.TEXT, getFormat("file.test1"));
+
+		getter.getJsonExtensions().clear();
+		assertEquals(Format.TEXT, getFormat("file.json"));
+	}
+
+	@Test
+	void listPassedToSetterCanStillBeModified() {
+		List<String> binaryExtensions = new ArrayList<>(Arrays.asList("png"));
+		getter.setBinaryExtensions(binaryExtensions);
+		assertEquals(Format.TEXT, getFormat("file.test1"));
+
+		binaryExtensions.add("test1");
+		assertEquals(Format.BINARY, getFormat("file.test1"));
+
+		binaryExtensions.set(1, "test2");
+		assertEquals(Format.TEXT, getFormat("file.test1"));
+		assertEquals(Format.BINARY, getFormat("file.test2"));
+	}
+
+	@Test
+	void emptyExtensionMatchesEverything() {
+		getter.getBinaryExtensions().add("");
+		assertEquals(Format.BINARY, getFormat("anything"));
+		assertEquals(Format.XML, getFormat("file.xml"));
+	}
+
+	private Format getFormat(String name) {
+		return getter.getFormat(new FileSystemResource(name));
+	}
+
+	/**
+	 * Mimics how the format was determined before extensions were indexed.
+	 */
+	private Format getFormatByCheckingEachExtension(String name) {
+		if (getter.getXmlExtensions().stream().anyMatch(name::endsWith)) {
+			return Format.XML;
+		}
+		if (getter.getJsonExtensions().stream().anyMatch(name::endsWith)) {
+			return Format.JSON;
+		}
+		return getter.getBinaryExtensions().stream().anyMatch(name::endsWith) ? Format.BINARY : Format.TEXT;
+	}
+}
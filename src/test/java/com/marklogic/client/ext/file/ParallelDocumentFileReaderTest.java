@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.file;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class ParallelDocumentFileReaderTest {
+
+	private final static String PATH = Paths.get("src", "test", "resources", "process-files", "cascading-metadata-test").toString();
+
+	@Test
+	void sameResultsAsDefaultReader() {
+		Map<String, Set<String>> expected = readCollections(new DefaultDocumentFileReader());
+		assertFalse(expected.isEmpty());
+		assertEquals(new TreeSet<>(expected.get("/parent1-withCP/parent.json")), expected.get("/parent1-withCP/child1/child1.json"),
+			"Sanity check that cascading is enabled");
+
+		assertEquals(expected, readCollections(new ParallelDocumentFileReader(4)));
+		assertEquals(expected, readCollections(new ParallelDocumentFileReader(1)));
+	}
+
+	@Test
+	void sortedOutput() {
+		ParallelDocumentFileReader reader = new ParallelDocumentFileReader(4);
+		reader.setSortedOutput(true);
+		List<String> uris = toUris(reader.readDocumentFiles(PATH));
+		for (int i = 0; i < 5; i++) {
+			assertEquals(uris, toUris(reader.readDocumentFiles(PATH)), "Sorted output should be deterministic");
+		}
+		assertEquals("/parent1-withCP/child1/child1.json", uris.get(0));
+	}
+
+	@Test
+	void processorImplementingFileVisitor() {
+		ParallelDocumentFileReader reader = new ParallelDocumentFileReader(4);
+		DirectoryCountingProcessor processor = new DirectoryCountingProcessor();
+		reader.addDocumentFileProcessor(processor);
+
+		assertEquals(readCollections(new DefaultDocumentFileReader()), readCollections(reader));
+		assertEquals(13, processor.directoryCount.get(),
+			"The file tree should have been walked on a single thread so that the processor visits each directory");
+	}
+
+	private static class DirectoryCountingProcessor extends SimpleFileVisitor<Path> implements DocumentFileProcessor {
+
+		final AtomicInteger directoryCount = new AtomicInteger();
+
+		@Override
+		public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+			directoryCount.incrementAndGet();
+			return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public DocumentFile processDocumentFile(DocumentFile documentFile) {
+			return documentFile;
+		}
+	}
+
+	private Map<String, Set<String>> readCollections(DefaultDocumentFileReader reader) {
+		reader.getDocumentFileProcessors().stream()
+			.filter(p -> p instanceof CascadingPropertiesDrivenDocumentFileProcessor)
+			.forEach(p -> ((CascadingPropertiesDrivenDocumentFileProcessor) p).setCascadingEnabled(true));
+		Map<String, Set<String>> map = new TreeMap<>();
+		List<DocumentFile> files = new ArrayList<>();
+		reader.readDocumentFiles(files::add, PATH);
+		files.forEach(file -> map.put(file.getUri(), new TreeSet<>(file.getDocumentMetadata().getCollections())));
+		return map;
+	}
+
+	private List<String> toUris(List<DocumentFile> files) {
+		return files.stream().map(DocumentFile::getUri).collect(Collectors.toList());
+	}
+}
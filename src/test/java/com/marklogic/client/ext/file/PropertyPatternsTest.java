@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.file;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PropertyPatternsTest {
+
+	@Test
+	void sameMatchesAsUncompiledGlobs() {
+		Properties props = new Properties();
+		for (String pattern : new String[]{"*", "test.json", "*.json", "test.xml", "test-?.json", "*.{xml,json}",
+			"[a-t]*.txt", "other.json", "te*", "x\\*.json", "**"}) {
+			props.setProperty(pattern, "value");
+		}
+		PropertyPatterns patterns = new PropertyPatterns(props);
+
+		for (String filename : new String[]{"test.json", "test-1.json", "test.xml", "abc.txt", "zed.txt", "x*.json",
+			"other.json", "none"}) {
+			Path path = Paths.get(filename);
+			assertEquals(matchWithoutCompiling(props, path), patterns.getMatchingPatterns(path),
+				"Unexpected matches for: " + filename);
+		}
+	}
+
+	@Test
+	void exactNameMatchedOnce() {
+		Properties props = new Properties();
+		props.setProperty("test.json", "a");
+		props.setProperty("test", "b");
+		assertEquals(Arrays.asList("test.json"), new PropertyPatterns(props).getMatchingPatterns(Paths.get("test.json")));
+	}
+
+	@Test
+	void nullProperties() {
+		assertTrue(new PropertyPatterns(null).getMatchingPatterns(Paths.get("test.json")).isEmpty());
+	}
+
+	/**
+	 * Mimics how patterns were matched before they were compiled.
+	 */
+	private List<String> matchWithoutCompiling(Properties props, Path filename) {
+		List<String> matches = new ArrayList<>();
+		Enumeration names = props.propertyNames();
+		while (names.hasMoreElements()) {
+			String pattern = (String) names.nextElement();
+			if (FileSystems.getDefault().getPathMatcher("glob:" + pattern).matches(filename)) {
+				matches.add(pattern);
+			}
+		}
+		return matches;
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.file;
+
+import com.marklogic.client.ext.batch.TestBatchWriter;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamDocumentFilesTest {
+
+	private final static String PATH = Paths.get("src", "test", "resources", "schemas").toString();
+
+	@Test
+	public void batchesAreWrittenAsFilesAreRead() {
+		TestBatchWriter writer = newWriter();
+		GenericFileLoader loader = new GenericFileLoader(writer);
+		loader.setStreamingEnabled(true);
+		loader.setBatchSize(4);
+
+		List<DocumentFile> files = loader.loadFiles(PATH);
+		assertTrue(files.isEmpty(), "DocumentFile objects should not be retained when streaming");
+
+		assertEquals(2, writer.getBatches().size());
+		assertEquals(4, writer.getBatches().get(0).size());
+		assertEquals(2, writer.getBatches().get(1).size());
+		assertEquals(1, writer.getInitializeCount());
+		assertEquals(1, writer.getWaitForCompletionCount());
+	}
+
+	@Test
+	public void defaultBatchSize() {
+		TestBatchWriter writer = newWriter();
+		GenericFileLoader loader = new GenericFileLoader(writer);
+		loader.setStreamingEnabled(true);
+		loader.setStreamingQueueCapacity(1);
+
+		loader.loadFiles(PATH);
+		assertEquals(1, writer.getBatches().size());
+		assertEquals(6, writer.getBatches().get(0).size());
+	}
+
+	@Test
+	public void noFilesFound() {
+		TestBatchWriter writer = newWriter();
+		GenericFileLoader loader = new GenericFileLoader(writer);
+		loader.setStreamingEnabled(true);
+
+		loader.loadFiles(Paths.get("src", "test", "resources", "does-not-exist").toString());
+		assertEquals(0, writer.getInitializeCount());
+		assertEquals(0, writer.getWaitForCompletionCount());
+	}
+
+	@Test
+	public void processingErrorIsRethrown() {
+		TestBatchWriter writer = newWriter();
+		GenericFileLoader loader = new GenericFileLoader(writer);
+		loader.setStreamingEnabled(true);
+		loader.setBatchSize(1);
+		loader.addDocumentFileProcessor(documentFile -> {
+			if (documentFile.getUri().endsWith(".tdej")) {
+				throw new RuntimeException("Intentional error");
+			}
+			return documentFile;
+		});
+
+		RuntimeException ex = assertThrows(RuntimeException.class, () -> loader.loadFiles(PATH));
+		assertTrue(ex.getMessage().contains("Intentional error"), "Unexpected message: " + ex.getMessage());
+	}
+
+	@Test
+	public void writeErrorStopsReading() {
+		TestBatchWriter writer = newWriter();
+		writer.setWriter(items -> {
+			throw new RuntimeException("Intentional write error");
+		});
+		GenericFileLoader loader = new GenericFileLoader(writer);
+		loader.setStreamingEnabled(true);
+		loader.setBatchSize(1);
+		loader.setStreamingQueueCapacity(1);
+
+		RuntimeException ex = assertThrows(RuntimeException.class, () -> loader.loadFiles(PATH));
+		assertEquals("Intentional write error", ex.getMessage());
+	}
+
+	private TestBatchWriter newWriter() {
+		TestBatchWriter writer = new TestBatchWriter();
+		writer.setThreadCount(1);
+		return writer;
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.file;
+
+import com.marklogic.client.ext.batch.ResendableOutputStreamSender;
+import com.marklogic.client.ext.tokenreplacer.DefaultTokenReplacer;
+import com.marklogic.client.io.Format;
+import com.marklogic.client.io.InputStreamHandle;
+import com.marklogic.client.io.OutputStreamHandle;
+import com.marklogic.client.io.StringHandle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenReplacerDocumentFileProcessorTest {
+
+	@TempDir
+	Path tempDir;
+
+	private DefaultTokenReplacer tokenReplacer = new DefaultTokenReplacer();
+	private TokenReplacerDocumentFileProcessor processor = new TokenReplacerDocumentFileProcessor(tokenReplacer);
+
+	@BeforeEach
+	void setup() {
+		Properties props = new Properties();
+		props.setProperty("%%color%%", "red");
+		props.setProperty("%%col%%", "blue");
+		tokenReplacer.setProperties(props);
+	}
+
+	@Test
+	void inMemoryByDefault() throws IOException {
+		DocumentFile file = processFile("<color>%%color%%</color>");
+		assertEquals("<color>red</color>", file.getModifiedContent());
+		assertTrue(file.getContent() instanceof StringHandle);
+	}
+
+	@Test
+	void noTokensInFile() throws IOException {
+		DocumentFile file = processFile("<color>green</color>");
+		assertNull(file.getModifiedContent());
+		assertTrue(file.getContent() instanceof InputStreamHandle, "A file without tokens should still be streamed from disk");
+
+		processor.setPrescanEnabled(false);
+		file = processFile("<color>green</color>");
+		assertEquals("<color>green</color>", file.getModifiedContent());
+	}
+
+	@Test
+	void overriddenReplaceTokensIsNotBypassed() throws IOException {
+		DefaultTokenReplacer customReplacer = new DefaultTokenReplacer() {
+			@Override
+			public String replaceTokens(String text) {
+				return super.replaceTokens(text).toUpperCase();
+			}
+		};
+		customReplacer.setProperties(tokenReplacer.getProperties());
+		assertNull(customReplacer.getTokenPrescanner());
+		assertNotNull(tokenReplacer.getTokenPrescanner());
+
+		processor = new TokenReplacerDocumentFileProcessor(customReplacer);
+		assertEquals("<COLOR>GREEN</COLOR>", processFile("<color>green</color>").getModifiedContent(),
+			"A file without tokens should still be passed to the overridden method");
+	}
+
+	@Test
+	void streaming() throws IOException {
+		processor.setStreamingThresholdInBytes(10);
+
+		DocumentFile file = processFile("<color>%%color%%</color> \u00e9");
+		assertNull(file.getModifiedContent(), "The modified content should not be held in memory");
+		assertTrue(file.getContent() instanceof OutputStreamHandle);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		((OutputStreamHandle) file.getContent()).get().write(out);
+		assertEquals("<color>red</color> \u00e9", new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+		assertTrue(file.getModifiedContentSender() instanceof ResendableOutputStreamSender,
+			"The file is re-read each time, so the content can be resent when a batch is retried");
+		out.reset();
+		file.getModifiedContentSender().write(out);
+		assertEquals("<color>red</color> \u00e9", new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void smallFileNotStreamed() throws IOException {
+		processor.setStreamingThresholdInBytes(1000);
+		assertEquals("<color>red</color>", processFile("<color>%%color%%</color>").getModifiedContent());
+	}
+
+	@Test
+	void overlappingTokensNotStreamed() throws IOException {
+		tokenReplacer.getProperties().setProperty("%%or%%", "green");
+		processor.setStreamingThresholdInBytes(1);
+		DocumentFile file = processFile("%%col%%or%%");
+		assertEquals(tokenReplacer.replaceTokens("%%col%%or%%"), file.getModifiedContent(),
+			"Overlapping tokens cannot be replaced in a single pass, so the file should be read into memory");
+	}
+
+	private DocumentFile processFile(String content) throws IOException {
+		processor.setCharset(StandardCharsets.UTF_8);
+		File file = tempDir.resolve("test.xml").toFile();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		DocumentFile documentFile = new DocumentFile("/test.xml", file);
+		documentFile.setFormat(Format.XML);
+		return processor.processDocumentFile(documentFile);
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.modulesloader.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ContentHashModulesManagerTest {
+
+	@TempDir
+	Path tempDir;
+
+	private ContentHashModulesManager manager;
+	private File indexFile;
+
+	@Test
+	void touchedFileIsNotModified() throws IOException {
+		File module = writeModule("module.xqy", "xquery version '1.0-ml'; 1");
+		newManager();
+		assertTrue(manager.hasFileBeenModifiedSinceLastLoaded(module), "A file that has never been loaded is modified");
+		manager.saveLastLoadedTimestamp(module, new Date());
+		assertFalse(manager.hasFileBeenModifiedSinceLastLoaded(module));
+		manager.flush();
+
+		module.setLastModified(module.lastModified() + 60000);
+		newManager();
+		assertFalse(manager.hasFileBeenModifiedSinceLastLoaded(module),
+			"Only the timestamp changed, so the file should not be considered modified");
+	}
+
+	@Test
+	void changedContentIsModified() throws IOException {
+		File module = writeModule("module.xqy", "xquery version '1.0-ml'; 1");
+		newManager();
+		manager.saveLastLoadedTimestamp(module, new Date());
+		manager.flush();
+
+		long lastModified = module.lastModified();
+		writeModule("module.xqy", "xquery version '1.0-ml'; 2");
+		module.setLastModified(lastModified + 60000);
+		newManager();
+		assertTrue(manager.hasFileBeenModifiedSinceLastLoaded(module), "Same size but different content");
+		manager.saveLastLoadedTimestamp(module, new Date());
+		assertFalse(manager.hasFileBeenModifiedSinceLastLoaded(module));
+
+		writeModule("module.xqy", "xquery version '1.0-ml'; 23");
+		assertTrue(manager.hasFileBeenModifiedSinceLastLoaded(module), "Different size");
+	}
+
+	@Test
+	void hostIsPartOfKey() throws IOException {
+		File module = writeModule("module.sjs", "1");
+		newManager();
+		manager.saveLastLoadedTimestamp(module, new Date());
+		manager.flush();
+
+		manager = new ContentHashModulesManager(indexFile.getAbsolutePath());
+		manager.setHost("otherhost");
+		manager.initialize();
+		assertTrue(manager.hasFileBeenModifiedSinceLastLoaded(module));
+	}
+
+	@Test
+	void corruptIndexIsIgnored() throws IOException {
+		File module = writeModule("module.sjs", "1");
+		indexFile = tempDir.resolve("index.bin").toFile();
+		Files.write(indexFile.toPath(), "not an index".getBytes(StandardCharsets.UTF_8));
+		manager = new ContentHashModulesManager(indexFile.getAbsolutePath());
+		manager.initialize();
+		assertTrue(manager.hasFileBeenModifiedSinceLastLoaded(module));
+	}
+
+	@Test
+	void deleteIndexFile() throws IOException {
+		File module = writeModule("module.sjs", "1");
+		newManager();
+		manager.saveLastLoadedTimestamp(module, new Date());
+		assertFalse(indexFile.exists(), "The index is not written until the manager is flushed");
+		manager.flush();
+		assertTrue(indexFile.exists());
+
+		manager.deleteIndexFile();
+		assertFalse(indexFile.exists());
+		assertTrue(manager.hasFileBeenModifiedSinceLastLoaded(module));
+	}
+
+	private void newManager() {
+		indexFile = tempDir.resolve("index/module-content-hashes.bin").toFile();
+		manager = new ContentHashModulesManager(indexFile.getAbsolutePath());
+		manager.initialize();
+	}
+
+	private File writeModule(String name, String content) throws IOException {
+		Path path = tempDir.resolve(name);
+		Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+		return path.toFile();
+	}
+}
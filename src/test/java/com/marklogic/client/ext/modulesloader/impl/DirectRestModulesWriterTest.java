@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.modulesloader.impl;
+
+import com.marklogic.client.DatabaseClient;
+import com.marklogic.client.admin.ExtensionMetadata;
+import com.marklogic.client.admin.MethodType;
+import com.marklogic.client.admin.ServerConfigurationManager;
+import com.marklogic.client.admin.ResourceExtensionsManager.MethodParameters;
+import com.marklogic.client.document.DocumentWriteOperation;
+import com.marklogic.client.document.DocumentWriteSet;
+import com.marklogic.client.document.GenericDocumentManager;
+import com.marklogic.client.ext.modulesloader.Modules;
+import com.marklogic.client.io.DocumentMetadataHandle;
+import com.marklogic.client.io.StringHandle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class DirectRestModulesWriterTest {
+
+	private DatabaseClient client;
+	private GenericDocumentManager documentManager;
+	private DocumentWriteSet writeSet;
+	private DirectRestModulesWriter writer;
+
+	@BeforeEach
+	void setup() {
+		client = mock(DatabaseClient.class);
+		documentManager = mock(GenericDocumentManager.class);
+		writeSet = mock(DocumentWriteSet.class);
+		when(client.newDocumentManager()).thenReturn(documentManager);
+		when(documentManager.newWriteSet()).thenReturn(writeSet);
+		writer = new DirectRestModulesWriter(client);
+	}
+
+	@Test
+	void allArtifactsAreWrittenInOneBatch() {
+		ExtensionMetadata metadata = new ExtensionMetadata();
+		metadata.setTitle("Sample & title");
+		MethodParameters get = new MethodParameters(MethodType.GET);
+		get.add("id", "xs:string");
+
+		writer.setRestServerName("my-rest-server");
+		writer.addTransform("t1", "t1.sjs", "transform", new ExtensionMetadata());
+		writer.addService("s1", "s1.xqy", "service", metadata, get);
+		assertTrue(writer.addQueryOptions("opts", "opts.xml", "<options/>"));
+		assertEquals(5, writer.write());
+
+		verify(documentManager, times(1)).write(writeSet);
+		ArgumentCaptor<DocumentWriteOperation> captor = ArgumentCaptor.forClass(DocumentWriteOperation.class);
+		verify(writeSet, times(5)).add(captor.capture());
+		Map<String, DocumentWriteOperation> operations = new LinkedHashMap<>();
+		Map<String, String> documents = new LinkedHashMap<>();
+		for (DocumentWriteOperation op : captor.getAllValues()) {
+			operations.put(op.getUri(), op);
+			documents.put(op.getUri(), ((StringHandle) op.getContent()).get());
+		}
+		assertEquals("transform", documents.get("/marklogic.rest.transform/t1/assets/transform.sjs"));
+		assertTrue(documents.containsKey("/marklogic.rest.transform/t1/assets/metadata.xml"));
+		assertEquals("service", documents.get("/marklogic.rest.resource/s1/assets/resource.xqy"));
+		assertEquals("<options/>", documents.get("/Default/my-rest-server/rest-api/options/opts.xml"));
+
+		assertTrue(collections(operations.get("/marklogic.rest.transform/t1/assets/transform.sjs"))
+			.contains(DirectRestModulesWriter.DEFAULT_EXTENSION_COLLECTION));
+		assertTrue(collections(operations.get("/marklogic.rest.resource/s1/assets/metadata.xml"))
+			.contains(DirectRestModulesWriter.DEFAULT_EXTENSION_COLLECTION));
+		assertTrue(collections(operations.get("/Default/my-rest-server/rest-api/options/opts.xml"))
+			.contains(DirectRestModulesWriter.DEFAULT_OPTIONS_COLLECTION));
+
+		String serviceMetadata = documents.get("/marklogic.rest.resource/s1/assets/metadata.xml");
+		assertTrue(serviceMetadata.contains("<rapi:title>Sample &amp; title</rapi:title>"), serviceMetadata);
+		assertTrue(serviceMetadata.contains("<rapi:method-name>get</rapi:method-name>"), serviceMetadata);
+		assertTrue(serviceMetadata.contains("<rapi:parameter-name>id</rapi:parameter-name><rapi:parameter-type>xs:string</rapi:parameter-type>"), serviceMetadata);
+
+		assertEquals(0, writer.write(), "Nothing should be left to write");
+		verify(documentManager, times(1)).write(any(DocumentWriteSet.class));
+		verify(client, times(0)).release();
+	}
+
+	@Test
+	void customCollections() {
+		writer.setTransformCollections("transforms");
+		writer.addTransform("t1", "t1.xqy", "transform", null);
+		writer.write();
+
+		ArgumentCaptor<DocumentWriteOperation> captor = ArgumentCaptor.forClass(DocumentWriteOperation.class);
+		verify(writeSet, times(2)).add(captor.capture());
+		for (DocumentWriteOperation op : captor.getAllValues()) {
+			assertEquals(1, collections(op).size());
+			assertTrue(collections(op).contains("transforms"));
+		}
+	}
+
+	@Test
+	void optionsThatCannotBeWrittenDirectly() {
+		assertFalse(writer.addQueryOptions("opts", "opts.xml", "<options/>"), "The REST server name is required");
+		writer.setRestServerName("my-rest-server");
+		assertFalse(writer.addQueryOptions("opts", "opts.json", "{}"), "JSON options are converted by the REST API");
+		assertEquals(0, writer.write());
+		verifyNoInteractions(client);
+	}
+
+	@Test
+	void timestampsAreOnlyUpdatedOnceWritten(@TempDir Path tempDir) throws IOException {
+		File transform = tempDir.resolve("t1.sjs").toFile();
+		Files.write(transform.toPath(), "transform".getBytes());
+		PropertiesModuleManager modulesManager = new PropertiesModuleManager(tempDir.resolve("timestamps.properties").toString());
+		modulesManager.initialize();
+
+		when(client.newServerConfigManager()).thenReturn(mock(ServerConfigurationManager.class));
+		DefaultModulesLoader loader = new DefaultModulesLoader();
+		loader.setDatabaseClient(client);
+		loader.setModulesManager(modulesManager);
+		loader.setTaskThreadCount(1);
+		loader.setDirectRestModulesWriter(writer);
+		Modules modules = new Modules();
+		modules.setTransforms(Collections.singletonList(new FileSystemResource(transform)));
+
+		doThrow(new RuntimeException("Unable to write")).when(documentManager).write(writeSet);
+		assertThrows(RuntimeException.class, () -> loader.loadModules(modules));
+		assertTrue(modulesManager.hasFileBeenModifiedSinceLastLoaded(transform),
+			"The transform was not written, so it should be installed again by the next load");
+
+		doNothing().when(documentManager).write(writeSet);
+		assertEquals(1, loader.loadModules(modules).size());
+		assertFalse(modulesManager.hasFileBeenModifiedSinceLastLoaded(transform));
+		verify(writeSet, times(4)).add(any(DocumentWriteOperation.class));
+	}
+
+	private DocumentMetadataHandle.DocumentCollections collections(DocumentWriteOperation op) {
+		return ((DocumentMetadataHandle) op.getMetadata()).getCollections();
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.modulesloader.impl;
+
+import com.marklogic.client.ext.file.DocumentFile;
+import com.marklogic.client.io.Format;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IncrementalStaticCheckTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void onlyChangedModulesAndImportersAreChecked() {
+		File graphFile = tempDir.resolve("import-graph.txt").toFile();
+		RecordingStaticChecker checker = newChecker(graphFile);
+
+		checker.checkLoadedAssets(Arrays.asList(
+			module("/lib/a.xqy", "module namespace a = 'org:a';"),
+			module("/main.xqy", "import module namespace a = 'org:a' at '/lib/a.xqy'; a:go()"),
+			module("/other.sjs", "'hello'")
+		));
+		assertEquals(new HashSet<>(Arrays.asList("/lib/a.xqy", "/main.xqy", "/other.sjs")), checker.checkedUris());
+
+		// A new checker, as on a subsequent run; only the library module changed and was loaded
+		checker = newChecker(graphFile);
+		checker.checkLoadedAssets(Collections.singletonList(module("/lib/a.xqy", "module namespace a = 'org:a'; declare function a:go() {()};")));
+		assertEquals(new HashSet<>(Arrays.asList("/lib/a.xqy", "/main.xqy")), checker.checkedUris());
+
+		checker = newChecker(graphFile);
+		checker.checkLoadedAssets(Collections.singletonList(module("/other.sjs", "'hello'")));
+		assertTrue(checker.checkedUris().isEmpty(), "Nothing changed, so nothing should be checked");
+	}
+
+	@Test
+	void changedTokenValueInStreamedModuleIsCheckedAgain() {
+		RecordingStaticChecker checker = newChecker(null);
+		checker.checkLoadedAssets(Collections.singletonList(streamedModule("/streamed.sjs", "%%token%%", "'one'")));
+		assertEquals(Collections.singleton("/streamed.sjs"), checker.checkedUris());
+
+		checker.checkLoadedAssets(Collections.singletonList(streamedModule("/streamed.sjs", "%%token%%", "'one'")));
+		assertTrue(checker.checkedUris().isEmpty(), "Neither the file nor the token value changed");
+
+		checker.checkLoadedAssets(Collections.singletonList(streamedModule("/streamed.sjs", "%%token%%", "'two'")));
+		assertEquals(Collections.singleton("/streamed.sjs"), checker.checkedUris(),
+			"The file did not change, but the content written to MarkLogic did");
+	}
+
+	@Test
+	void failedModulesAreCheckedAgain() {
+		RecordingStaticChecker checker = newChecker(null);
+		checker.failingUri = "/bad.sjs";
+		List<DocumentFile> assets = Collections.singletonList(module("/bad.sjs", "syntax error"));
+		assertThrows(RuntimeException.class, () -> checker.checkLoadedAssets(assets));
+
+		checker.failingUri = null;
+		checker.checkLoadedAssets(assets);
+		assertEquals(Collections.singleton("/bad.sjs"), checker.checkedUris());
+	}
+
+	@Test
+	void parallelBulkBatches() {
+		RecordingStaticChecker checker = new RecordingStaticChecker();
+		checker.setBulkCheck(true);
+		checker.setBulkCheckBatchSize(2);
+		checker.setCheckThreadCount(3);
+
+		List<DocumentFile> assets = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			assets.add(module("/m" + i + ".sjs", "" + i));
+		}
+		checker.checkLoadedAssets(assets);
+		assertEquals(3, checker.queries.size(), "5 modules in batches of 2");
+		assertEquals(5, checker.checkedUris().size());
+	}
+
+	private RecordingStaticChecker newChecker(File graphFile) {
+		RecordingStaticChecker checker = new RecordingStaticChecker();
+		checker.setIncrementalCheck(true);
+		checker.setImportGraphFile(graphFile);
+		return checker;
+	}
+
+	private DocumentFile module(String uri, String content) {
+		DocumentFile file = new DocumentFile(uri, new ByteArrayResource(content.getBytes()));
+		file.setFormat(Format.TEXT);
+		return file;
+	}
+
+	private DocumentFile streamedModule(String uri, String content, String tokenValue) {
+		DocumentFile file = module(uri, content);
+		file.setModifiedContentSender(out -> out.write(content.replace("%%token%%", tokenValue).getBytes()));
+		return file;
+	}
+
+	private static class RecordingStaticChecker extends AbstractStaticChecker {
+
+		private static final Pattern URI_PATTERN = Pattern.compile("'(/[^']+)'");
+
+		final List<String> queries = Collections.synchronizedList(new ArrayList<>());
+		String failingUri;
+
+		@Override
+		protected void executeQuery(String xquery) {
+			queries.add(xquery);
+			if (failingUri != null && xquery.contains("'" + failingUri + "'")) {
+				throw new RuntimeException("Static check failed");
+			}
+		}
+
+		Set<String> checkedUris() {
+			Set<String> uris = new HashSet<>();
+			for (String query : queries) {
+				Matcher m = URI_PATTERN.matcher(query);
+				while (m.find()) {
+					uris.add(m.group(1));
+				}
+			}
+			queries.clear();
+			return uris;
+		}
+	}
+}
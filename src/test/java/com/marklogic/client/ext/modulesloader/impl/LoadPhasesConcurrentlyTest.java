@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.modulesloader.impl;
+
+import com.marklogic.client.ext.modulesloader.Modules;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadPhasesConcurrentlyTest {
+
+	@Test
+	void onlyRealDependenciesAreEnforced() {
+		TestModulesLoader loader = new TestModulesLoader();
+		loader.loadModules(new Modules());
+
+		// Namespaces must finish before options start, and everything waits on properties
+		assertTrue(loader.starts.get("options") >= loader.ends.get("namespaces"));
+		for (String phase : new String[]{"namespaces", "assets", "options", "transforms", "services"}) {
+			assertTrue(loader.starts.get(phase) >= loader.ends.get("properties"), phase + " should start after properties");
+		}
+
+		// Assets, transforms and services do not wait on namespaces
+		assertTrue(loader.starts.get("assets") < loader.ends.get("namespaces"));
+		assertTrue(loader.starts.get("transforms") < loader.ends.get("namespaces"));
+		assertTrue(loader.starts.get("services") < loader.ends.get("namespaces"));
+
+		Map<String, Long> timings = loader.getPhaseTimings();
+		assertEquals(6, timings.size());
+		assertEquals(DefaultModulesLoader.PHASE_PROPERTIES, timings.keySet().iterator().next());
+	}
+
+	@Test
+	void failureIsRethrownAfterOtherPhasesFinish() {
+		TestModulesLoader loader = new TestModulesLoader();
+		loader.failingPhase = "transforms";
+		RuntimeException ex = assertThrows(RuntimeException.class, () -> loader.loadModules(new Modules()));
+		assertEquals("transforms failed", ex.getMessage());
+		assertTrue(loader.ends.containsKey("options"), "Other phases should still run to completion");
+		assertTrue(loader.ends.containsKey("services"));
+	}
+
+	@Test
+	void sequentialByDefault() {
+		TestModulesLoader loader = new TestModulesLoader();
+		loader.setLoadPhasesConcurrently(false);
+		loader.loadModules(new Modules());
+		assertTrue(loader.starts.get("assets") >= loader.ends.get("namespaces"));
+		assertTrue(loader.starts.get("services") >= loader.ends.get("transforms"));
+		assertEquals(6, loader.getPhaseTimings().size());
+		assertFalse(new DefaultModulesLoader().isLoadPhasesConcurrently());
+	}
+
+	private static class TestModulesLoader extends DefaultModulesLoader {
+
+		final Map<String, Long> starts = new ConcurrentHashMap<>();
+		final Map<String, Long> ends = new ConcurrentHashMap<>();
+		String failingPhase;
+
+		TestModulesLoader() {
+			setModulesManager(null);
+			setLoadPhasesConcurrently(true);
+		}
+
+		private void phase(String name) {
+			starts.put(name, System.nanoTime());
+			try {
+				Thread.sleep("namespaces".equals(name) ? 200 : 20);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			ends.put(name, System.nanoTime());
+			if (name.equals(failingPhase)) {
+				throw new RuntimeException(name + " failed");
+			}
+		}
+
+		@Override
+		protected void loadProperties(Modules modules, Set<Resource> loadedModules) {
+			phase("properties");
+		}
+
+		@Override
+		protected void loadNamespaces(Modules modules, Set<Resource> loadedModules) {
+			phase("namespaces");
+		}
+
+		@Override
+		protected void loadAssets(Modules modules, Set<Resource> loadedModules) {
+			phase("assets");
+		}
+
+		@Override
+		protected void loadQueryOptions(Modules modules, Set<Resource> loadedModules) {
+			phase("options");
+		}
+
+		@Override
+		protected void loadTransforms(Modules modules, Set<Resource> loadedModules) {
+			phase("transforms");
+		}
+
+		@Override
+		protected void loadResources(Modules modules, Set<Resource> loadedModules) {
+			phase("services");
+		}
+	}
+}
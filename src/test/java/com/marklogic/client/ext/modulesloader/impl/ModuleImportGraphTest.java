@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.modulesloader.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ModuleImportGraphTest {
+
+	private final ModuleImportGraph graph = new ModuleImportGraph();
+
+	@Test
+	void xqueryImports() {
+		String content = "xquery version \"1.0-ml\";\n" +
+			"import module namespace a = \"org:a\" at \"/lib/a.xqy\";\n" +
+			"import module namespace b='org:b' at 'b.xqy', \"../c.xqy\";\n" +
+			"import module \"org:d\" at \"/lib/d.xqy\";\n" +
+			"import module namespace admin = \"http://marklogic.com/xdmp/admin\" at \"/MarkLogic/admin.xqy\";\n";
+		assertEquals(new LinkedHashSet<>(Arrays.asList("/lib/a.xqy", "/app/b.xqy", "/c.xqy", "/lib/d.xqy", "/MarkLogic/admin.xqy")),
+			graph.findImports("/app/main.xqy", content));
+	}
+
+	@Test
+	void javascriptImports() {
+		String content = "const a = require('/lib/a.sjs');\n" +
+			"const b = require(\"./b\");\n" +
+			"import c from '/lib/c.mjs';\n" +
+			"import { d } from \"../d.mjs\";\n" +
+			"export * from '/lib/e.mjs';\n" +
+			"import '/lib/f.mjs';\n";
+		Set<String> imports = graph.findImports("/app/main.sjs", content);
+		assertTrue(imports.containsAll(Arrays.asList("/lib/a.sjs", "/app/b", "/app/b.sjs", "/app/b.xqy", "/lib/c.mjs", "/d.mjs", "/lib/e.mjs", "/lib/f.mjs")), imports.toString());
+		assertFalse(imports.contains("/lib/a.sjs.sjs"));
+	}
+
+	@Test
+	void transitiveImporters() {
+		graph.update("/lib/a.xqy", "1", "module namespace a = 'org:a';");
+		graph.update("/lib/b.xqy", "1", "module namespace b = 'org:b'; import module namespace a = 'org:a' at '/lib/a.xqy';");
+		graph.update("/main.xqy", "1", "import module namespace b = 'org:b' at '/lib/b.xqy'; b:go()");
+		graph.update("/other.sjs", "1", "require('/lib/unrelated.sjs')");
+		graph.update("/uses-lib.sjs", "1", "require('/lib/helper')");
+
+		assertEquals(new HashSet<>(Arrays.asList("/lib/a.xqy", "/lib/b.xqy", "/main.xqy")),
+			graph.addTransitiveImporters(Collections.singletonList("/lib/a.xqy")));
+		assertEquals(new HashSet<>(Arrays.asList("/main.xqy")),
+			graph.addTransitiveImporters(Collections.singletonList("/main.xqy")));
+		assertEquals(new HashSet<>(Arrays.asList("/lib/helper.sjs", "/uses-lib.sjs")),
+			graph.addTransitiveImporters(Collections.singletonList("/lib/helper.sjs")));
+	}
+
+	@Test
+	void updateReportsChanges() {
+		assertTrue(graph.update("/a.sjs", "1", ""));
+		assertFalse(graph.update("/a.sjs", "1", ""));
+		assertTrue(graph.update("/a.sjs", "2", ""));
+	}
+
+	@Test
+	void saveAndLoad(@TempDir Path tempDir) {
+		graph.update("/lib/a.xqy", "abc", "module namespace a = 'org:a';");
+		graph.update("/main.xqy", "def", "import module namespace a = 'org:a' at '/lib/a.xqy';");
+		File file = tempDir.resolve("graph/import-graph.txt").toFile();
+		graph.save(file);
+
+		ModuleImportGraph loaded = new ModuleImportGraph();
+		loaded.load(file);
+		assertFalse(loaded.update("/lib/a.xqy", "abc", "module namespace a = 'org:a';"));
+		assertEquals(Collections.singleton("/lib/a.xqy"), loaded.getImports("/main.xqy"));
+		assertEquals(new HashSet<>(Arrays.asList("/lib/a.xqy", "/main.xqy")),
+			loaded.addTransitiveImporters(Collections.singletonList("/lib/a.xqy")));
+	}
+}
@@ -16,11 +16,25 @@
 package com.marklogic.client.ext.modulesloader.impl;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -51,4 +65,97 @@ public class PropertiesModuleManagerTest {
 
 		assertEquals("Temp", moduleManager.normalizeDriveLetter(mockFile),"Since getRoot() was null, original path is returned");
 	}
+
+	@Test
+	public void timestampsAreWrittenOnFlush(@TempDir Path tempDir) throws IOException {
+		File propertiesFile = tempDir.resolve("timestamps/module-timestamps.properties").toFile();
+		PropertiesModuleManager moduleManager = new PropertiesModuleManager(propertiesFile.getAbsolutePath());
+		moduleManager.initialize();
+
+		File module = Files.write(tempDir.resolve("module.xqy"), "1".getBytes()).toFile();
+		assertTrue(moduleManager.hasFileBeenModifiedSinceLastLoaded(module));
+		moduleManager.saveLastLoadedTimestamp(module, new Date(module.lastModified() + 1000));
+		assertFalse(moduleManager.hasFileBeenModifiedSinceLastLoaded(module));
+		assertFalse(propertiesFile.exists(), "The properties file is not written until flush is called");
+		assertTrue(moduleManager.getJournalFile().exists());
+
+		moduleManager.flush();
+		assertTrue(propertiesFile.exists());
+		assertFalse(moduleManager.getJournalFile().exists(), "The journal is removed once the properties file is written");
+		assertEquals(1, loadProperties(propertiesFile).size());
+
+		moduleManager = new PropertiesModuleManager(propertiesFile.getAbsolutePath());
+		moduleManager.initialize();
+		assertFalse(moduleManager.hasFileBeenModifiedSinceLastLoaded(module));
+	}
+
+	@Test
+	public void journalIsReplayedWhenNotFlushed(@TempDir Path tempDir) throws IOException {
+		File propertiesFile = tempDir.resolve("module-timestamps.properties").toFile();
+		PropertiesModuleManager moduleManager = new PropertiesModuleManager(propertiesFile.getAbsolutePath());
+		moduleManager.initialize();
+
+		File module = Files.write(tempDir.resolve("module.sjs"), "1".getBytes()).toFile();
+		File otherModule = Files.write(tempDir.resolve("other module=2.sjs"), "2".getBytes()).toFile();
+		moduleManager.saveLastLoadedTimestamp(module, new Date(module.lastModified() + 1000));
+		moduleManager.flush();
+		moduleManager.saveLastLoadedTimestamp(otherModule, new Date(otherModule.lastModified() + 1000));
+
+		// Simulates the process ending before flush is called
+		moduleManager = new PropertiesModuleManager(propertiesFile.getAbsolutePath());
+		moduleManager.initialize();
+		assertFalse(moduleManager.hasFileBeenModifiedSinceLastLoaded(module));
+		assertFalse(moduleManager.hasFileBeenModifiedSinceLastLoaded(otherModule));
+		assertFalse(moduleManager.getJournalFile().exists(), "The journal is compacted into the properties file");
+		assertEquals(2, loadProperties(propertiesFile).size());
+	}
+
+	@Test
+	public void journalDisabled(@TempDir Path tempDir) throws IOException {
+		File propertiesFile = tempDir.resolve("module-timestamps.properties").toFile();
+		PropertiesModuleManager moduleManager = new PropertiesModuleManager(propertiesFile.getAbsolutePath());
+		moduleManager.setJournalEnabled(false);
+		moduleManager.initialize();
+
+		File module = Files.write(tempDir.resolve("module.sjs"), "1".getBytes()).toFile();
+		moduleManager.saveLastLoadedTimestamp(module, new Date(module.lastModified() + 1000));
+		assertFalse(moduleManager.getJournalFile().exists());
+		assertFalse(propertiesFile.exists());
+		moduleManager.flush();
+		assertTrue(propertiesFile.exists());
+	}
+
+	@Test
+	public void saveFromMultipleThreads(@TempDir Path tempDir) throws Exception {
+		File propertiesFile = tempDir.resolve("module-timestamps.properties").toFile();
+		PropertiesModuleManager moduleManager = new PropertiesModuleManager(propertiesFile.getAbsolutePath());
+		moduleManager.initialize();
+
+		List<File> modules = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			modules.add(Files.write(tempDir.resolve("module" + i + ".sjs"), ("" + i).getBytes()).toFile());
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (File module : modules) {
+			executor.submit(() -> moduleManager.saveLastLoadedTimestamp(module, new Date(module.lastModified() + 1000)));
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+		moduleManager.flush();
+
+		assertEquals(200, loadProperties(propertiesFile).size());
+		PropertiesModuleManager reloaded = new PropertiesModuleManager(propertiesFile.getAbsolutePath());
+		reloaded.initialize();
+		for (File module : modules) {
+			assertFalse(reloaded.hasFileBeenModifiedSinceLastLoaded(module));
+		}
+	}
+
+	private Properties loadProperties(File file) throws IOException {
+		Properties props = new Properties();
+		try (InputStream in = new FileInputStream(file)) {
+			props.load(in);
+		}
+		return props;
+	}
 }
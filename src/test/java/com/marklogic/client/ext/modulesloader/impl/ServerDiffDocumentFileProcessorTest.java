@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.modulesloader.impl;
+
+import com.marklogic.client.DatabaseClient;
+import com.marklogic.client.eval.ServerEvaluationCall;
+import com.marklogic.client.ext.file.DocumentFile;
+import com.marklogic.client.io.Format;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ServerDiffDocumentFileProcessorTest {
+
+	@TempDir
+	Path tempDir;
+
+	private ServerEvaluationCall call;
+	private ServerDiffDocumentFileProcessor processor;
+
+	@BeforeEach
+	void setup() {
+		DatabaseClient client = mock(DatabaseClient.class);
+		call = mock(ServerEvaluationCall.class);
+		when(client.newServerEval()).thenReturn(call);
+		when(call.xquery(anyString())).thenReturn(call);
+		when(call.addVariable(anyString(), anyString())).thenReturn(call);
+		processor = new ServerDiffDocumentFileProcessor(client);
+	}
+
+	@Test
+	void unchangedContentIsNotWritten() throws Exception {
+		when(call.evalAs(String.class)).thenReturn(
+			md5("same") + "\t/same.sjs\n" +
+				md5("old") + "\t/changed.sjs\n" +
+				"\t/data.xml");
+		processor.initialize();
+
+		assertNull(processor.processDocumentFile(newFile("/same.sjs", "same", Format.TEXT)));
+		assertNotNull(processor.processDocumentFile(newFile("/changed.sjs", "new", Format.TEXT)));
+		assertNotNull(processor.processDocumentFile(newFile("/new.sjs", "new", Format.TEXT)), "Not in the modules database");
+		assertNotNull(processor.processDocumentFile(newFile("/data.xml", "<a/>", Format.XML)), "XML is always written");
+		assertEquals(1, processor.getUnchangedCount());
+	}
+
+	@Test
+	void modifiedContentIsHashed() throws Exception {
+		when(call.evalAs(String.class)).thenReturn(md5("replaced") + "\t/module.sjs");
+		processor.initialize();
+
+		DocumentFile file = newFile("/module.sjs", "%%token%%", Format.TEXT);
+		assertNotNull(processor.processDocumentFile(file));
+
+		file.setModifiedContent("replaced");
+		assertNull(processor.processDocumentFile(file));
+
+		file.setModifiedContent(null);
+		file.setModifiedContentSender(out -> out.write("replaced".getBytes(StandardCharsets.UTF_8)));
+		assertNull(processor.processDocumentFile(file));
+	}
+
+	@Test
+	void deleteOrphanedUris() throws Exception {
+		when(call.evalAs(String.class)).thenReturn(
+			md5("a") + "\t/a.sjs\n" +
+				md5("b") + "\t/b.sjs\n" +
+				md5("c") + "\t/c.sjs\n" +
+				"\t/marklogic.rest.transform/t/assets/transform.xqy\n" +
+				"\t/Default/App-Services/rest-api/options/opts.xml");
+		processor.setDeleteBatchSize(1);
+		processor.initialize();
+		processor.processDocumentFile(newFile("/a.sjs", "a", Format.TEXT));
+
+		List<String> deleted = processor.deleteOrphanedUris(Arrays.asList("/"));
+		assertEquals(Arrays.asList("/b.sjs", "/c.sjs"), deleted);
+		verify(call).addVariable("URIS", "/b.sjs");
+		verify(call).addVariable("URIS", "/c.sjs");
+		verify(call, times(2)).eval();
+	}
+
+	@Test
+	void nothingIsDeletedWithoutPrefixes() throws Exception {
+		when(call.evalAs(String.class)).thenReturn(md5("a") + "\t/a.sjs\n" + md5("b") + "\t/b.sjs");
+		processor.initialize();
+		processor.processDocumentFile(newFile("/a.sjs", "a", Format.TEXT));
+
+		assertEquals(0, processor.deleteOrphanedUris(null).size());
+		assertEquals(0, processor.deleteOrphanedUris(Collections.emptyList()).size());
+		verify(call, never()).addVariable(eq("URIS"), any(String.class));
+	}
+
+	@Test
+	void twoRootsLoadedInTwoCalls() throws Exception {
+		Files.createDirectories(tempDir.resolve("ext"));
+		Files.createDirectories(tempDir.resolve("lib"));
+		final List<String> prefixes = Arrays.asList("/ext/", "/lib/");
+
+		// First root only contains /ext/a.sjs
+		when(call.evalAs(String.class)).thenReturn(
+			md5("a") + "\t/ext/a.sjs\n" +
+				md5("old") + "\t/ext/old.sjs\n" +
+				md5("b") + "\t/lib/b.sjs\n" +
+				md5("old") + "\t/lib/old.sjs\n" +
+				md5("x") + "\t/other-app/x.sjs");
+		processor.initialize();
+		processor.processDocumentFile(newFile("/ext/a.sjs", "a", Format.TEXT));
+		assertEquals(Arrays.asList("/ext/old.sjs"), processor.deleteOrphanedUris(prefixes),
+			"Nothing under /lib/ should be deleted, as no file under it was loaded by this call");
+
+		// Second root contains /lib/b.sjs and a new file under /ext/
+		when(call.evalAs(String.class)).thenReturn(
+			md5("a") + "\t/ext/a.sjs\n" +
+				md5("b") + "\t/lib/b.sjs\n" +
+				md5("old") + "\t/lib/old.sjs\n" +
+				md5("x") + "\t/other-app/x.sjs");
+		processor.initialize();
+		processor.processDocumentFile(newFile("/lib/b.sjs", "b", Format.TEXT));
+		processor.processDocumentFile(newFile("/ext/c.sjs", "c", Format.TEXT));
+		assertEquals(Arrays.asList("/lib/old.sjs"), processor.deleteOrphanedUris(prefixes),
+			"/ext/a.sjs was loaded by the first call and thus is not an orphan, and /other-app/ is not under any prefix");
+
+		verify(call, never()).addVariable("URIS", "/ext/a.sjs");
+		verify(call, never()).addVariable("URIS", "/lib/b.sjs");
+		verify(call, never()).addVariable("URIS", "/other-app/x.sjs");
+	}
+
+	@Test
+	void noOrphans() {
+		when(call.evalAs(String.class)).thenReturn("");
+		processor.initialize();
+		assertEquals(0, processor.deleteOrphanedUris(Arrays.asList("/")).size());
+		verify(call, never()).addVariable(eq("URIS"), any(String.class));
+	}
+
+	private DocumentFile newFile(String uri, String content, Format format) throws IOException {
+		Path path = tempDir.resolve(uri.substring(1));
+		Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+		DocumentFile file = new DocumentFile(uri, path.toFile());
+		file.setFormat(format);
+		return file;
+	}
+
+	private String md5(String content) throws Exception {
+		byte[] digest = MessageDigest.getInstance("MD5").digest(content.getBytes(StandardCharsets.UTF_8));
+		return String.format("%032x", new BigInteger(1, digest));
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.modulesloader.impl;
+
+import com.marklogic.client.DatabaseClient;
+import com.marklogic.client.admin.QueryOptionsManager;
+import com.marklogic.client.admin.ServerConfigurationManager;
+import com.marklogic.client.ext.modulesloader.Modules;
+import com.marklogic.client.io.StringHandle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SkipUnchangedWritesTest {
+
+	@TempDir
+	Path tempDir;
+
+	private final DefaultModulesLoader loader = new DefaultModulesLoader();
+	private final ServerConfigurationManager configManager = mock(ServerConfigurationManager.class);
+
+	@BeforeEach
+	void setup() {
+		loader.setSkipUnchangedWrites(true);
+	}
+
+	@Test
+	void unchangedServerConfigurationIsNotWritten() throws IOException {
+		when(configManager.getQueryValidation()).thenReturn(true);
+		Set<Resource> loadedModules = loadProperties();
+
+		verify(configManager).readConfiguration();
+		verify(configManager).setQueryValidation(true);
+		verify(configManager, never()).writeConfiguration();
+		assertTrue(loadedModules.isEmpty());
+	}
+
+	@Test
+	void changedServerConfigurationIsWritten() throws IOException {
+		// Simulates the setter changing the value returned by the getter
+		when(configManager.getQueryValidation()).thenReturn(false, true);
+		Set<Resource> loadedModules = loadProperties();
+
+		verify(configManager).writeConfiguration();
+		assertEquals(1, loadedModules.size());
+	}
+
+	@Test
+	void serverConfigurationIsNotReadWhenDisabled() throws IOException {
+		loader.setSkipUnchangedWrites(false);
+		loadProperties();
+
+		verify(configManager, never()).readConfiguration();
+		verify(configManager).writeConfiguration();
+	}
+
+	@Test
+	void disabledByDefault() {
+		assertFalse(new DefaultModulesLoader().isSkipUnchangedWrites());
+	}
+
+	@Test
+	void serverConfigurationIsWrittenWhenReadFails() throws IOException {
+		doThrow(new RuntimeException("Unable to connect")).when(configManager).readConfiguration();
+		Set<Resource> loadedModules = loadProperties();
+
+		verify(configManager).writeConfiguration();
+		assertEquals(1, loadedModules.size());
+	}
+
+	@Test
+	void xmlQueryOptions() {
+		String local = "<options xmlns=\"http://marklogic.com/appservices/search\">\n" +
+			"  <!-- A comment -->\n" +
+			"  <return-facets>false</return-facets>\n" +
+			"  <constraint name=\"c\"><range type=\"xs:string\"/></constraint>\n" +
+			"</options>";
+		String server = "<search:options xmlns:search=\"http://marklogic.com/appservices/search\">" +
+			"<search:return-facets>false</search:return-facets>" +
+			"<search:constraint name=\"c\"><search:range type=\"xs:string\"/></search:constraint>" +
+			"</search:options>";
+
+		assertTrue(loader.queryOptionsAreUnchanged(mockOptionsManager(server), "opts", local, false));
+		assertFalse(loader.queryOptionsAreUnchanged(mockOptionsManager(server.replace("false", "true")), "opts", local, false));
+		assertFalse(loader.queryOptionsAreUnchanged(mockOptionsManager(server.replace("name=\"c\"", "name=\"d\"")), "opts", local, false));
+		assertFalse(loader.queryOptionsAreUnchanged(mockOptionsManager(server.replace("http://marklogic.com/appservices/search", "urn:other")), "opts", local, false));
+	}
+
+	@Test
+	void jsonQueryOptions() {
+		String local = "{\"options\": {\"return-facets\": false, \"page-length\": 10}}";
+		String server = "{\"options\":{\"page-length\":10,\"return-facets\":false}}";
+		assertTrue(loader.queryOptionsAreUnchanged(mockOptionsManager(server), "opts", local, true));
+		assertFalse(loader.queryOptionsAreUnchanged(mockOptionsManager(server.replace("10", "20")), "opts", local, true));
+	}
+
+	@Test
+	void missingQueryOptions() {
+		QueryOptionsManager mgr = mock(QueryOptionsManager.class);
+		when(mgr.readOptions(eq("opts"), any(StringHandle.class))).thenThrow(new RuntimeException("Not found"));
+		assertFalse(loader.queryOptionsAreUnchanged(mgr, "opts", "{}", true));
+	}
+
+	private Set<Resource> loadProperties() throws IOException {
+		DatabaseClient client = mock(DatabaseClient.class);
+		when(client.newServerConfigManager()).thenReturn(configManager);
+		loader.setDatabaseClient(client);
+		loader.setModulesManager(null);
+
+		Path file = tempDir.resolve("rest-properties.json");
+		Files.write(file, "{\"validate-queries\": true}".getBytes());
+		Modules modules = new Modules();
+		modules.setPropertiesFile(new FileSystemResource(file.toFile()));
+
+		Set<Resource> loadedModules = new HashSet<>();
+		loader.loadProperties(modules, loadedModules);
+		return loadedModules;
+	}
+
+	private QueryOptionsManager mockOptionsManager(String serverContent) {
+		QueryOptionsManager mgr = mock(QueryOptionsManager.class);
+		when(mgr.readOptions(eq("opts"), any(StringHandle.class))).thenAnswer(invocation -> {
+			StringHandle handle = invocation.getArgument(1);
+			handle.set(serverContent);
+			return handle;
+		});
+		return mgr;
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.modulesloader.impl;
+
+import com.marklogic.client.DatabaseClient;
+import com.marklogic.client.admin.NamespacesManager;
+import com.marklogic.client.admin.ServerConfigurationManager;
+import com.marklogic.client.ext.modulesloader.Modules;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import javax.xml.namespace.NamespaceContext;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SyncNamespacesTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void onlyChangedNamespacesAreWritten() throws IOException {
+		Map<String, String> existing = new HashMap<>();
+		existing.put("same", "http://example.org/same");
+		existing.put("changed", "http://example.org/old");
+		NamespacesManager namespacesManager = mockNamespacesManager(existing);
+
+		DefaultModulesLoader loader = newLoader(namespacesManager);
+		Set<Resource> loadedModules = new HashSet<>();
+		loader.loadNamespaces(newModules(
+			namespaceFile("same", "http://example.org/same"),
+			namespaceFile("changed", "http://example.org/new"),
+			namespaceFile("added", "http://example.org/added")
+		), loadedModules);
+
+		verify(namespacesManager, times(1)).readAll();
+		verify(namespacesManager).updatePrefix("changed", "http://example.org/new");
+		verify(namespacesManager).addPrefix("added", "http://example.org/added");
+		verify(namespacesManager, never()).addPrefix("same", "http://example.org/same");
+		verify(namespacesManager, never()).deletePrefix(anyString());
+		verify(namespacesManager, never()).readPrefix(anyString());
+		assertEquals(2, loadedModules.size());
+	}
+
+	@Test
+	void concurrentPhases() throws IOException {
+		NamespacesManager namespacesManager = mockNamespacesManager(new HashMap<>());
+		DefaultModulesLoader loader = newLoader(namespacesManager);
+		loader.setLoadPhasesConcurrently(true);
+
+		Modules modules = newModules(
+			namespaceFile("a", "http://example.org/a"),
+			namespaceFile("b", "http://example.org/b"),
+			namespaceFile("c", "http://example.org/c")
+		);
+		Set<Resource> loadedModules = loader.loadModules(modules);
+
+		verify(namespacesManager, times(1)).readAll();
+		verify(namespacesManager, times(3)).addPrefix(anyString(), anyString());
+		assertEquals(3, loadedModules.size());
+	}
+
+	@Test
+	void bulkSyncCanBeDisabled() throws IOException {
+		NamespacesManager namespacesManager = mockNamespacesManager(new HashMap<>());
+		DefaultModulesLoader loader = newLoader(namespacesManager);
+		loader.setSyncNamespacesInBulk(false);
+		loader.loadNamespaces(newModules(namespaceFile("a", "http://example.org/a")), new HashSet<>());
+
+		verify(namespacesManager, never()).readAll();
+		verify(namespacesManager).readPrefix("a");
+		verify(namespacesManager).addPrefix("a", "http://example.org/a");
+		assertFalse(new DefaultModulesLoader().isSyncNamespacesInBulk(), "Bulk sync should be opt-in");
+	}
+
+	private DefaultModulesLoader newLoader(NamespacesManager namespacesManager) {
+		ServerConfigurationManager configManager = mock(ServerConfigurationManager.class);
+		when(configManager.newNamespacesManager()).thenReturn(namespacesManager);
+		DatabaseClient client = mock(DatabaseClient.class);
+		when(client.newServerConfigManager()).thenReturn(configManager);
+
+		DefaultModulesLoader loader = new DefaultModulesLoader();
+		loader.setModulesManager(null);
+		loader.setDatabaseClient(client);
+		loader.setSyncNamespacesInBulk(true);
+		return loader;
+	}
+
+	private NamespacesManager mockNamespacesManager(Map<String, String> existing) {
+		NamespacesManager namespacesManager = mock(NamespacesManager.class);
+		when(namespacesManager.readAll()).thenReturn(new NamespaceContext() {
+			@Override
+			public String getNamespaceURI(String prefix) {
+				return existing.get(prefix);
+			}
+
+			@Override
+			public String getPrefix(String namespaceURI) {
+				return null;
+			}
+
+			@Override
+			public Iterator getPrefixes(String namespaceURI) {
+				return null;
+			}
+		});
+		return namespacesManager;
+	}
+
+	private Modules newModules(Resource... namespaceFiles) {
+		Modules modules = new Modules();
+		modules.setNamespaces(Arrays.asList(namespaceFiles));
+		return modules;
+	}
+
+	private Resource namespaceFile(String prefix, String uri) throws IOException {
+		Path path = tempDir.resolve(prefix + ".txt");
+		Files.write(path, uri.getBytes());
+		return new FileSystemResource(path.toFile());
+	}
+}
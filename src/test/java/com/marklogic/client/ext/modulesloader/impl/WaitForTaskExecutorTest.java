@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.modulesloader.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class WaitForTaskExecutorTest {
+
+	@Test
+	public void waitWithoutShuttingDown() {
+		TestModulesLoader loader = new TestModulesLoader();
+		loader.setShutdownTaskExecutorAfterLoadingModules(false);
+		loader.initializeDefaultTaskExecutor();
+		TaskExecutor taskExecutor = loader.getTaskExecutor();
+
+		AtomicInteger count = new AtomicInteger();
+		for (int i = 0; i < 4; i++) {
+			loader.executeTask(() -> {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				count.incrementAndGet();
+			});
+		}
+		loader.waitForTaskExecutorToFinish();
+		assertEquals(4, count.get(), "Should have waited for every task to finish");
+		assertSame(taskExecutor, loader.getTaskExecutor(), "The TaskExecutor should be kept for the next load");
+
+		loader.executeTask(count::incrementAndGet);
+		loader.waitForTaskExecutorToFinish();
+		assertEquals(5, count.get());
+
+		loader.close();
+		assertEquals(null, loader.getTaskExecutor());
+	}
+
+	private static class TestModulesLoader extends DefaultModulesLoader {
+		@Override
+		protected void executeTask(Runnable r) {
+			super.executeTask(r);
+		}
+	}
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.tokenreplacer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.PropertyPlaceholderHelper;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DefaultTokenReplacerTest {
+
+	private DefaultTokenReplacer replacer = new DefaultTokenReplacer();
+
+	@Test
+	void singlePass() {
+		Properties props = new Properties();
+		props.setProperty("%%host%%", "localhost");
+		props.setProperty("%%port%%", "8000");
+		props.setProperty("%%url%%", "http://${%%host%%}");
+		replacer.setProperties(props);
+
+		assertEquals("localhost:8000 localhost", replacer.replaceTokens("%%host%%:%%port%% %%host%%"));
+		assertEquals("http://localhost", replacer.replaceTokens("%%url%%"), "Placeholders in values should still be resolved");
+
+		String text = "No tokens here";
+		assertSame(text, replacer.replaceTokens(text));
+	}
+
+	@Test
+	void prefixedKeys() {
+		replacer.setPropertyPrefix("@ml.");
+		Properties props = new Properties();
+		props.setProperty("app-name", "myapp");
+		props.setProperty("app-name-modules", "mymodules");
+		replacer.setProperties(props);
+
+		String text = "@ml.app-name and @ml.app-name-modules";
+		assertEquals(replaceSequentially(text), replacer.replaceTokens(text),
+			"When one key is a prefix of another, keys should still be replaced in turn");
+	}
+
+	@Test
+	void propertiesModifiedAfterFirstUse() {
+		Properties props = new Properties();
+		props.setProperty("%%a%%", "1");
+		replacer.setProperties(props);
+		assertEquals("1 %%b%%", replacer.replaceTokens("%%a%% %%b%%"));
+
+		props.setProperty("%%b%%", "2");
+		assertEquals("1 2", replacer.replaceTokens("%%a%% %%b%%"), "Modifying the properties in place should be detected");
+
+		replacer.getProperties().remove("%%a%%");
+		assertEquals("%%a%% 2", replacer.replaceTokens("%%a%% %%b%%"));
+	}
+
+	@Test
+	void changedPropertiesSourceIsReadAgain() {
+		Properties sourceProps = new Properties();
+		sourceProps.setProperty("%%a%%", "1");
+		replacer.addPropertiesSource(() -> sourceProps);
+		assertEquals("1", replacer.replaceTokens("%%a%%"));
+
+		sourceProps.setProperty("%%a%%", "2");
+		assertEquals("1", replacer.replaceTokens("%%a%%"), "The properties are only read from a source once");
+		replacer.setProperties(null);
+		assertEquals("2", replacer.replaceTokens("%%a%%"));
+	}
+
+	@Test
+	void swappedValuesAreUsed() {
+		Properties props = new Properties();
+		props.setProperty("%%a%%", "1");
+		props.setProperty("%%b%%", "2");
+		replacer.setProperties(props);
+		assertEquals("1 2", replacer.replaceTokens("%%a%% %%b%%"));
+
+		props.setProperty("%%a%%", "2");
+		props.setProperty("%%b%%", "1");
+		assertEquals("2 1", replacer.replaceTokens("%%a%% %%b%%"));
+	}
+
+	@Test
+	void invalidPlaceholderInUnusedValue() {
+		Properties props = new Properties();
+		props.setProperty("%%a%%", "1");
+		props.setProperty("%%circular%%", "${%%circular%%}");
+		replacer.setProperties(props);
+		assertEquals("1", replacer.replaceTokens("%%a%%"), "A value is only resolved when its token is found");
+		assertThrows(IllegalArgumentException.class, () -> replacer.replaceTokens("%%circular%%"));
+	}
+
+	@Test
+	void snapshotIsRebuiltWhenSettersAreCalled() {
+		Properties props = new Properties();
+		props.setProperty("%%a%%", "1");
+		replacer.setProperties(props);
+		TokenReplacerSnapshot snapshot = replacer.snapshot();
+
+		replacer.setPropertyPlaceholderHelper(new PropertyPlaceholderHelper("${", "}"));
+		assertNotSame(snapshot, replacer.snapshot());
+		snapshot = replacer.snapshot();
+		replacer.addPropertiesSource(() -> new Properties());
+		assertNotSame(snapshot, replacer.snapshot());
+	}
+
+	/**
+	 * Compares the single-pass approach with replacing each token in turn, using small alphabets so that tokens
+	 * frequently overlap, contain each other, and form new tokens once replaced.
+	 */
+	@Test
+	void sameResultAsReplacingEachTokenInTurn() {
+		Random random = new Random(42);
+		for (int run = 0; run < 500; run++) {
+			Properties props = new Properties();
+			int keyCount = 1 + random.nextInt(8);
+			for (int i = 0; i < keyCount; i++) {
+				props.setProperty(randomString(random, 1 + random.nextInt(4), "%ab"), randomString(random, random.nextInt(4), "%abc"));
+			}
+			verifySameResult(random, props, "%abcd ");
+		}
+	}
+
+	/**
+	 * Same as above, but with delimited tokens and values that mostly do not contain the delimiter, which is the
+	 * typical case where a single pass can be used.
+	 */
+	@Test
+	void sameResultWithDelimitedTokens() {
+		Random random = new Random(7);
+		for (int run = 0; run < 500; run++) {
+			Properties props = new Properties();
+			int keyCount = 1 + random.nextInt(8);
+			for (int i = 0; i < keyCount; i++) {
+				props.setProperty("%%" + randomString(random, 1 + random.nextInt(3), "ab") + "%%",
+					randomString(random, random.nextInt(6), "abxyz%"));
+			}
+			verifySameResult(random, props, "%abxy ");
+		}
+	}
+
+	@Test
+	void placeholdersResolvedOncePerSnapshot() {
+		AtomicInteger resolveCount = new AtomicInteger();
+		replacer.setPropertyPlaceholderHelper(new PropertyPlaceholderHelper("${", "}", ":", true) {
+			@Override
+			public String replacePlaceholders(String value, Properties properties) {
+				resolveCount.incrementAndGet();
+				return super.replacePlaceholders(value, properties);
+			}
+		});
+		Properties props = new Properties();
+		props.setProperty("%%host%%", "localhost");
+		props.setProperty("%%url%%", "http://${%%host%%}");
+		replacer.setProperties(props);
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals("http://localhost localhost", replacer.replaceTokens("%%url%% %%host%%"));
+		}
+		assertEquals(2, resolveCount.get(), "Each value should have been resolved once");
+	}
+
+	@Test
+	void snapshotIsImmutable() {
+		Properties props = new Properties();
+		props.setProperty("%%a%%", "1");
+		replacer.setProperties(props);
+		TokenReplacerSnapshot snapshot = replacer.snapshot();
+		assertSame(snapshot, replacer.snapshot(), "The snapshot should be reused while the properties are unchanged");
+
+		props.setProperty("%%a%%", "2");
+		assertEquals("1", snapshot.replaceTokens("%%a%%"));
+		assertEquals("2", replacer.replaceTokens("%%a%%"));
+
+		replacer.setPropertyPrefix("@");
+		assertEquals("%%a%%", replacer.replaceTokens("%%a%%"));
+		assertEquals("2", replacer.replaceTokens("@%%a%%"));
+	}
+
+	@Test
+	void multipleThreads() throws Exception {
+		Properties props = new Properties();
+		for (int i = 0; i < 100; i++) {
+			props.setProperty("%%key" + i + "%%", "value" + i);
+		}
+		replacer.setProperties(props);
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> futures = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				final int index = i % 100;
+				futures.add(executor.submit(() -> replacer.replaceTokens("a %%key" + index + "%% b")));
+			}
+			for (int i = 0; i < 200; i++) {
+				assertEquals("a value" + (i % 100) + " b", futures.get(i).get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void streaming() throws IOException {
+		Properties props = new Properties();
+		props.setProperty("%%host%%", "localhost");
+		props.setProperty("%%port%%", "8000");
+		replacer.setProperties(props);
+
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			text.append("<host>%%host%%</host><port>%%port%%</port>\n");
+		}
+		assertTrue(replacer.canReplaceTokensWhileStreaming(new StringReader(text.toString())));
+		assertEquals(replacer.replaceTokens(text.toString()), replaceWhileStreaming(text.toString()));
+	}
+
+	@Test
+	void cannotReplaceOverlappingTokensWhileStreaming() throws IOException {
+		replacer.setPropertyPrefix("@ml.");
+		Properties props = new Properties();
+		props.setProperty("app-name", "myapp");
+		props.setProperty("app-name-modules", "mymodules");
+		replacer.setProperties(props);
+
+		assertTrue(replacer.canReplaceTokensWhileStreaming(new StringReader("@ml.app-name and @ml.other")));
+		assertFalse(replacer.canReplaceTokensWhileStreaming(new StringReader("@ml.app-name and @ml.app-name-modules")));
+	}
+
+	private String replaceWhileStreaming(String text) throws IOException {
+		StringWriter writer = new StringWriter();
+		replacer.replaceTokens(new StringReader(text), writer);
+		return writer.toString();
+	}
+
+	private void verifySameResult(Random random, Properties props, String textAlphabet) {
+		replacer = new DefaultTokenReplacer();
+		replacer.setProperties(props);
+		if (random.nextBoolean()) {
+			replacer.setPropertyPrefix("%%");
+		}
+		for (int i = 0; i < 20; i++) {
+			String text = randomString(random, random.nextInt(40), textAlphabet);
+			String expected = replaceSequentially(text);
+			assertEquals(expected, replacer.replaceTokens(text),
+				"Unexpected result for text: " + text + "; properties: " + props);
+			try {
+				if (replacer.canReplaceTokensWhileStreaming(new StringReader(text))) {
+					assertEquals(expected, replaceWhileStreaming(text),
+						"Unexpected streaming result for text: " + text + "; properties: " + props);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private String replaceSequentially(String text) {
+		replacer.replaceTokens("");
+		return replacer.replaceTokensSequentially(text);
+	}
+
+	private String randomString(Random random, int length, String alphabet) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2023 MarkLogic Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.marklogic.client.ext.tokenreplacer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenPrescannerTest {
+
+	private TokenPrescanner prescanner = new TokenPrescanner(Arrays.asList("%%host%%", "@ml.port", "x"));
+
+	@Test
+	void asciiContent() throws IOException {
+		assertTrue(containsNoTokens("<host>localhost</host> 100% sure", StandardCharsets.UTF_8));
+		assertTrue(containsNoTokens("", StandardCharsets.UTF_8));
+		assertFalse(containsNoTokens("<host>%%host%%</host>", StandardCharsets.UTF_8));
+		assertFalse(containsNoTokens("%%other%%", StandardCharsets.UTF_8), "Any content starting like a token should not be skipped");
+		assertFalse(containsNoTokens("email@ml.com", StandardCharsets.UTF_8));
+		assertFalse(containsNoTokens("box", StandardCharsets.UTF_8), "Single-character tokens should be found");
+
+		assertTrue(containsNoTokens("plain words", StandardCharsets.ISO_8859_1));
+		assertTrue(containsNoTokens("plain words", Charset.forName("windows-1252")));
+		assertFalse(containsNoTokens("plain words", StandardCharsets.UTF_16),
+			"UTF-16 content is not the same once encoded as UTF-8");
+	}
+
+	@Test
+	void nonAsciiContent() throws IOException {
+		byte[] utf8 = "caf\u00e9 \u20ac \ud83d\ude00".getBytes(StandardCharsets.UTF_8);
+		assertTrue(prescanner.containsNoTokens(new ByteArrayInputStream(utf8), StandardCharsets.UTF_8));
+		assertFalse(prescanner.containsNoTokens(new ByteArrayInputStream(utf8), StandardCharsets.ISO_8859_1),
+			"Non-ASCII content in another charset is re-encoded when tokens are replaced");
+
+		assertFalse(prescanner.containsNoTokens(new ByteArrayInputStream(new byte[]{'a', (byte) 0xC3}), StandardCharsets.UTF_8),
+			"Truncated UTF-8 is decoded as a replacement character");
+		assertFalse(prescanner.containsNoTokens(new ByteArrayInputStream(new byte[]{(byte) 0xC0, (byte) 0xAF}), StandardCharsets.UTF_8),
+			"Overlong UTF-8 is decoded as replacement characters");
+		assertFalse(prescanner.containsNoTokens(new ByteArrayInputStream(new byte[]{(byte) 0xED, (byte) 0xA0, (byte) 0x80}), StandardCharsets.UTF_8),
+			"Encoded surrogates are decoded as replacement characters");
+	}
+
+	@Test
+	void tokenAcrossBufferBoundary() throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 8191; i++) {
+			text.append('a');
+		}
+		assertTrue(containsNoTokens(text + "%", StandardCharsets.UTF_8));
+		assertFalse(containsNoTokens(text + "%%host%%", StandardCharsets.UTF_8));
+	}
+
+	private boolean containsNoTokens(String text, Charset charset) throws IOException {
+		return prescanner.containsNoTokens(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)), charset);
+	}
+}